@@ -0,0 +1,324 @@
+package com.radio.benchmarks;
+
+import com.radio.models.Genero;
+import com.radio.services.ConfiguracionLista;
+import com.radio.services.GeneradorListaService;
+import com.radio.utils.TrazaGeneracion;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Construye bibliotecas de prueba con la misma forma que una real, para pruebas de carga y benchmarks:
+ * Musica/Género/Artista/"Artista - Título.mp3", Especiales con los prefijos 01/02/03 y carpetas
+ * de rotadores con archivos numerados. Los nombres llevan acentos y eñes.
+ *
+ * Cada archivo es un MP3 (etiqueta ID3v2 y cabecera Info) o un WAV válido cuyo audio queda
+ * disperso en disco: solo se escriben las cabeceras, por eso 100.000 archivos se crean en segundos.
+ * Con la misma semilla se obtiene exactamente la misma biblioteca.
+ *
+ * Si el sistema de archivos no admite acentos con la codificación de la plataforma (por ejemplo
+ * con la configuración regional C/POSIX) los nombres de archivos y carpetas se escriben sin ellos;
+ * las etiquetas ID3 los conservan.
+ *
+ * Uso: java -cp target/benchmarks.jar com.radio.benchmarks.BibliotecaSintetica carpeta [canciones] [semilla]
+ */
+public class BibliotecaSintetica {
+
+    public static final String CARPETA_MUSICA = "Musica";
+    public static final String CARPETA_ESPECIALES = "Especiales";
+    public static final String CARPETA_IDENTIFICACIONES = "Identificaciones";
+    public static final String CARPETA_FELICITACIONES = "Felicitaciones";
+    public static final String CARPETA_PROMOS_A = "PromosA";
+    public static final String CARPETA_PROMOS_B = "PromosB";
+
+    private static final String[] PALABRAS = {
+            "Canción", "Corazón", "Mañana", "Niña", "Pasión", "Árbol", "Ilusión", "Camión", "Último", "Señor",
+            "Día", "Noche", "Río", "Montaña", "Lágrimas", "Sueño", "Música", "Invierno", "Jardín", "Océano",
+            "Fiesta", "Añoranza", "Estrella", "Corrido", "Guitarra", "Recuerdo", "Volcán", "Lluvia", "Caminé", "Acción"
+    };
+
+    // MPEG-1 Layer III, 128 kbps, 44.1 kHz, estéreo
+    private static final int CABECERA_MP3 = 0xFFFB9000;
+    private static final int BITRATE_MP3 = 128_000;
+    private static final int FRECUENCIA_MP3 = 44_100;
+    private static final int LONGITUD_TRAMA_MP3 = 144 * BITRATE_MP3 / FRECUENCIA_MP3;
+    private static final int MUESTRAS_TRAMA_MP3 = 1152;
+    private static final int POSICION_INFO = 4 + 32;
+
+    // PCM 8 kHz, mono, 16 bits: archivos pequeños aunque el sistema no admita archivos dispersos
+    private static final int FRECUENCIA_WAV = 8000;
+    private static final int BYTES_POR_SEGUNDO_WAV = FRECUENCIA_WAV * 2;
+
+    private final Path raiz;
+    private final boolean nombresAscii;
+    private int canciones = 10_000;
+    private int cancionesPorArtista = 12;
+    private int archivosPorRotador = 20;
+    private int proporcionWav = 4; // uno de cada N archivos es WAV
+    private long semilla = 1;
+
+    public BibliotecaSintetica(Path raiz) {
+        this.raiz = raiz;
+        this.nombresAscii = !admiteAcentos(raiz);
+        if (nombresAscii) {
+            TrazaGeneracion.registrar(TrazaGeneracion.Nivel.ADVERTENCIA,
+                    "La codificación de nombres de archivo ({}) no admite acentos: la biblioteca se crea con nombres ASCII",
+                    System.getProperty("sun.jnu.encoding"));
+        }
+    }
+
+    /**
+     * Crea todas las carpetas y archivos; devuelve la cantidad de archivos creados
+     */
+    public int crear() throws IOException {
+        long inicio = System.nanoTime();
+
+        crearEspeciales();
+        crearRotador(CARPETA_IDENTIFICACIONES, "Identificación", 5, 20, 1);
+        crearRotador(CARPETA_FELICITACIONES, "Felicitación", 20, 60, 2);
+        crearRotador(CARPETA_PROMOS_A, "Promoción", 20, 45, 3);
+        crearRotador(CARPETA_PROMOS_B, "Campaña", 20, 45, 4);
+
+        // Cada artista tiene su propia carpeta y su propia secuencia aleatoria, así se pueden crear en paralelo
+        int artistas = (canciones + cancionesPorArtista - 1) / cancionesPorArtista;
+        try {
+            IntStream.range(0, artistas).parallel().forEach(artista -> {
+                try {
+                    crearArtista(artista);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int total = canciones + 3 + 4 * archivosPorRotador;
+        TrazaGeneracion.registrar(TrazaGeneracion.Nivel.INFO, "Biblioteca sintética de {} archivos creada en {} ms",
+                total, (System.nanoTime() - inicio) / 1_000_000);
+        return total;
+    }
+
+    /**
+     * Configuración con un bloque por hora desde las 07:00, recorriendo los géneros en orden
+     */
+    public ConfiguracionLista crearConfiguracion() {
+        ConfiguracionLista configuracion = new ConfiguracionLista();
+        configuracion.setRutaElementosEspeciales(carpeta(CARPETA_ESPECIALES).toString());
+        configuracion.setRutaIdentificaciones(carpeta(CARPETA_IDENTIFICACIONES).toString());
+        configuracion.setRutaFelicitaciones(carpeta(CARPETA_FELICITACIONES).toString());
+        configuracion.setRutaPromosA(carpeta(CARPETA_PROMOS_A).toString());
+        configuracion.setRutaPromosB(carpeta(CARPETA_PROMOS_B).toString());
+
+        List<GeneradorListaService.ConfiguracionBloque> bloques = new ArrayList<>();
+        Genero[] generos = Genero.values();
+        for (int i = 0; i < generos.length; i++) {
+            bloques.add(new GeneradorListaService.ConfiguracionBloque(
+                    LocalTime.of(7 + i, 0), LocalTime.of(8 + i, 0), generos[i], carpetaGenero(generos[i]).toString()));
+        }
+        configuracion.setBloques(bloques);
+        return configuracion;
+    }
+
+    public Path carpeta(String nombre) {
+        return raiz.resolve(nombre);
+    }
+
+    public Path carpetaGenero(Genero genero) {
+        return resolver(raiz.resolve(CARPETA_MUSICA), genero.getNombre());
+    }
+
+    /**
+     * Archivo o carpeta dentro de otra, sin acentos si la plataforma no los admite
+     */
+    private Path resolver(Path carpeta, String nombre) {
+        return carpeta.resolve(nombresAscii ? sinAcentos(nombre) : nombre);
+    }
+
+    private static boolean admiteAcentos(Path raiz) {
+        try {
+            raiz.resolve("Canción Ñandú");
+            return true;
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static String sinAcentos(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    private void crearEspeciales() throws IOException {
+        Path carpeta = carpeta(CARPETA_ESPECIALES);
+        Files.createDirectories(carpeta);
+        escribirMp3(carpeta.resolve("01 Himno Nacional.mp3"), 180, "Himno Nacional", "Estación", "Himno");
+        escribirMp3(carpeta.resolve("02 Himno de Guerrero.mp3"), 210, "Himno de Guerrero", "Estación", "Himno");
+        escribirWav(carpeta.resolve("03 Poema a la Patria.wav"), 95);
+    }
+
+    private void crearRotador(String nombreCarpeta, String prefijo, int minimoSegundos, int maximoSegundos,
+                              long flujo) throws IOException {
+        Path carpeta = carpeta(nombreCarpeta);
+        Files.createDirectories(carpeta);
+        SplittableRandom random = new SplittableRandom(semilla * 31 + flujo);
+
+        // Dos dígitos como en las carpetas reales; tres si no alcanzan
+        String formato = archivosPorRotador > 99 ? "%03d %s.mp3" : "%02d %s.mp3";
+        for (int i = 1; i <= archivosPorRotador; i++) {
+            String titulo = prefijo + " " + PALABRAS[random.nextInt(PALABRAS.length)];
+            int segundos = random.nextInt(minimoSegundos, maximoSegundos + 1);
+            escribirMp3(resolver(carpeta, String.format(formato, i, titulo)), segundos, titulo, "Estación", "Radio");
+        }
+    }
+
+    private void crearArtista(int artista) throws IOException {
+        SplittableRandom random = new SplittableRandom(semilla * 1_000_003 + artista);
+        Genero genero = Genero.values()[artista % Genero.values().length];
+        String nombreArtista = PALABRAS[random.nextInt(PALABRAS.length)] + " y " +
+                PALABRAS[random.nextInt(PALABRAS.length)] + " " + artista;
+
+        Path carpeta = resolver(carpetaGenero(genero), nombreArtista);
+        Files.createDirectories(carpeta);
+
+        int desde = artista * cancionesPorArtista;
+        int hasta = Math.min(canciones, desde + cancionesPorArtista);
+        for (int cancion = desde; cancion < hasta; cancion++) {
+            String titulo = PALABRAS[random.nextInt(PALABRAS.length)] + " de " +
+                    PALABRAS[random.nextInt(PALABRAS.length)] + " " + cancion;
+            int segundos = random.nextInt(150, 331);
+            String base = nombreArtista + " - " + titulo;
+            if (proporcionWav > 0 && cancion % proporcionWav == 0) {
+                escribirWav(resolver(carpeta, base + ".wav"), segundos);
+            } else {
+                escribirMp3(resolver(carpeta, base + ".mp3"), segundos, titulo, nombreArtista, genero.getNombre());
+            }
+        }
+    }
+
+    /**
+     * MP3 con etiqueta ID3v2.3 (título, artista y género), una trama con cabecera Info que indica
+     * el número de tramas, y la sincronía de la segunda trama; el resto del audio queda disperso
+     */
+    static void escribirMp3(Path archivo, int segundos, String titulo, String artista, String genero) throws IOException {
+        byte[] etiqueta = etiquetaId3(titulo, artista, genero);
+        long tramas = (long) segundos * FRECUENCIA_MP3 / MUESTRAS_TRAMA_MP3;
+
+        ByteBuffer buffer = ByteBuffer.allocate(etiqueta.length + LONGITUD_TRAMA_MP3 + 4).order(ByteOrder.BIG_ENDIAN);
+        buffer.put(etiqueta);
+        int inicioTrama = buffer.position();
+        buffer.putInt(CABECERA_MP3);
+        buffer.position(inicioTrama + POSICION_INFO);
+        buffer.put("Info".getBytes(StandardCharsets.US_ASCII)).putInt(0x1).putInt((int) tramas);
+        buffer.position(inicioTrama + LONGITUD_TRAMA_MP3);
+        buffer.putInt(CABECERA_MP3);
+        buffer.flip();
+
+        escribirDisperso(archivo, buffer, etiqueta.length + tramas * LONGITUD_TRAMA_MP3);
+    }
+
+    /**
+     * WAV PCM con la cabecera RIFF completa; los datos de audio quedan dispersos
+     */
+    static void escribirWav(Path archivo, int segundos) throws IOException {
+        int datos = segundos * BYTES_POR_SEGUNDO_WAV;
+
+        ByteBuffer buffer = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + datos)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1)
+                .putInt(FRECUENCIA_WAV).putInt(BYTES_POR_SEGUNDO_WAV)
+                .putShort((short) 2).putShort((short) 16);
+        buffer.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(datos);
+        buffer.flip();
+
+        escribirDisperso(archivo, buffer, 44L + datos);
+    }
+
+    private static void escribirDisperso(Path archivo, ByteBuffer cabecera, long tamano) throws IOException {
+        try (RandomAccessFile salida = new RandomAccessFile(archivo.toFile(), "rw")) {
+            salida.getChannel().write(cabecera, 0);
+            // Extender el archivo sin escribir lo que queda en medio
+            salida.setLength(Math.max(tamano, cabecera.limit()));
+        }
+    }
+
+    private static byte[] etiquetaId3(String titulo, String artista, String genero) {
+        ByteBuffer marcos = ByteBuffer.allocate(512);
+        marcoTexto(marcos, "TIT2", titulo);
+        marcoTexto(marcos, "TPE1", artista);
+        marcoTexto(marcos, "TCON", genero);
+        int tamano = marcos.position();
+
+        ByteBuffer etiqueta = ByteBuffer.allocate(10 + tamano);
+        etiqueta.put("ID3".getBytes(StandardCharsets.US_ASCII)).put((byte) 3).put((byte) 0).put((byte) 0);
+        // Tamaño sincrosafe: 7 bits por byte
+        etiqueta.put((byte) ((tamano >> 21) & 0x7F)).put((byte) ((tamano >> 14) & 0x7F))
+                .put((byte) ((tamano >> 7) & 0x7F)).put((byte) (tamano & 0x7F));
+        etiqueta.put(marcos.array(), 0, tamano);
+        return etiqueta.array();
+    }
+
+    private static void marcoTexto(ByteBuffer marcos, String id, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.ISO_8859_1);
+        marcos.put(id.getBytes(StandardCharsets.US_ASCII)).putInt(bytes.length + 1).putShort((short) 0);
+        marcos.put((byte) 0).put(bytes); // codificación 0: ISO-8859-1
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: BibliotecaSintetica carpeta [canciones] [semilla]");
+            System.exit(2);
+        }
+
+        try {
+            BibliotecaSintetica biblioteca = new BibliotecaSintetica(Paths.get(args[0]));
+            if (args.length > 1) biblioteca.setCanciones(Integer.parseInt(args[1]));
+            if (args.length > 2) biblioteca.setSemilla(Long.parseLong(args[2]));
+
+            long inicio = System.nanoTime();
+            int archivos = biblioteca.crear();
+            Path configuracion = biblioteca.carpeta("configuracion.txt");
+            biblioteca.crearConfiguracion().guardar(configuracion.toString());
+
+            System.out.println(archivos + " archivos creados en " + (System.nanoTime() - inicio) / 1_000_000 +
+                    " ms; configuración: " + configuracion);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("No se pudo crear la biblioteca: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Getters y Setters
+    public Path getRaiz() { return raiz; }
+
+    public int getCanciones() { return canciones; }
+    public void setCanciones(int canciones) { this.canciones = canciones; }
+
+    public int getCancionesPorArtista() { return cancionesPorArtista; }
+    public void setCancionesPorArtista(int cancionesPorArtista) { this.cancionesPorArtista = Math.max(1, cancionesPorArtista); }
+
+    public int getArchivosPorRotador() { return archivosPorRotador; }
+    public void setArchivosPorRotador(int archivosPorRotador) { this.archivosPorRotador = archivosPorRotador; }
+
+    public int getProporcionWav() { return proporcionWav; }
+    public void setProporcionWav(int proporcionWav) { this.proporcionWav = proporcionWav; }
+
+    public long getSemilla() { return semilla; }
+    public void setSemilla(long semilla) { this.semilla = semilla; }
+}
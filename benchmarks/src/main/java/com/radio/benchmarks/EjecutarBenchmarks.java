@@ -0,0 +1,28 @@
+package com.radio.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lanza JMH con las opciones de la línea de comandos; si no se indica otra cosa,
+ * los resultados se guardan en JSON en jmh-resultados.json
+ */
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions lineaComandos = new CommandLineOptions(args);
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(lineaComandos);
+
+        if (!lineaComandos.getResultFormat().hasValue()) {
+            opciones.resultFormat(ResultFormatType.JSON);
+        }
+        if (!lineaComandos.getResult().hasValue()) {
+            opciones.result("jmh-resultados.json");
+        }
+
+        new Runner(opciones.build()).run();
+    }
+}
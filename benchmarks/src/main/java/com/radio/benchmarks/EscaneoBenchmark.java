@@ -0,0 +1,30 @@
+package com.radio.benchmarks;
+
+import com.radio.catalog.CatalogoMusical;
+import com.radio.services.ArchivoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listado de la carpeta de música con el catálogo vigente (caliente) y tras invalidarlo (frío)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscaneoBenchmark {
+
+    @Benchmark
+    public List<String> obtenerArchivosAudioCaliente(EstadoBiblioteca estado) {
+        return ArchivoService.obtenerArchivosAudio(estado.rutaMusica());
+    }
+
+    @Benchmark
+    public List<String> obtenerArchivosAudioFrio(EstadoBiblioteca estado) {
+        CatalogoMusical.getInstancia().invalidar(estado.rutaMusica());
+        return ArchivoService.obtenerArchivosAudio(estado.rutaMusica());
+    }
+}
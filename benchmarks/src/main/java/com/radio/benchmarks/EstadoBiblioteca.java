@@ -0,0 +1,51 @@
+package com.radio.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Biblioteca sintética compartida por los benchmarks, creada una vez por fork.
+ * Aparte se crea una biblioteca con un rotador de tantos archivos como canciones,
+ * y la carpeta de datos del generador (catálogo y caché) también es temporal.
+ */
+@State(Scope.Benchmark)
+public class EstadoBiblioteca {
+
+    @Param({"1000", "10000", "100000"})
+    public int archivos;
+
+    public BibliotecaSintetica biblioteca;
+    public BibliotecaSintetica bibliotecaRotador;
+    private Path raiz;
+
+    @Setup(Level.Trial)
+    public void crear() throws IOException {
+        raiz = Files.createTempDirectory("biblioteca-" + archivos + "-");
+        System.setProperty("radio.datos", Files.createDirectories(raiz.resolve("datos")).toString());
+
+        biblioteca = new BibliotecaSintetica(raiz.resolve("biblioteca"));
+        biblioteca.setCanciones(archivos);
+        biblioteca.crear();
+
+        bibliotecaRotador = new BibliotecaSintetica(raiz.resolve("rotador"));
+        bibliotecaRotador.setCanciones(0);
+        bibliotecaRotador.setArchivosPorRotador(archivos);
+        bibliotecaRotador.crear();
+    }
+
+    public String rutaMusica() {
+        return biblioteca.carpeta(BibliotecaSintetica.CARPETA_MUSICA).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void eliminar() throws IOException {
+        try (Stream<Path> rutas = Files.walk(raiz)) {
+            rutas.sorted(Comparator.reverseOrder()).forEach(ruta -> ruta.toFile().delete());
+        }
+    }
+}
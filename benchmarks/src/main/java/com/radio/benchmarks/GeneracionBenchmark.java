@@ -0,0 +1,65 @@
+package com.radio.benchmarks;
+
+import com.radio.models.ListaReproduccion;
+import com.radio.services.ConfiguracionLista;
+import com.radio.services.GeneradorListaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación completa de un día de 13 bloques, un género por bloque. generarListaCompleta
+ * mide solo la generación; generarYGuardar incluye además el historial y el guardado
+ * del catálogo, los metadatos y los rotadores en la carpeta de datos.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneracionBenchmark {
+
+    private GeneradorListaService generador;
+    private GeneradorListaService generadorPersistente;
+    private List<GeneradorListaService.ConfiguracionBloque> configuracion;
+
+    @Setup(Level.Trial)
+    public void preparar(EstadoBiblioteca estado) {
+        generador = crearGenerador(estado);
+        generador.setPersistir(false);
+        generadorPersistente = crearGenerador(estado);
+        configuracion = estado.biblioteca.crearConfiguracion().getBloquesConCarpeta();
+    }
+
+    /**
+     * El historial se anexa en cada generación: se borra antes de cada iteración para
+     * que no crezca durante la prueba. Se reescribe entero desde memoria en la siguiente.
+     */
+    @Setup(Level.Iteration)
+    public void vaciarHistorial() throws IOException {
+        Files.deleteIfExists(Path.of(System.getProperty("radio.datos"), "historial.dat"));
+    }
+
+    @Benchmark
+    public ListaReproduccion generarListaCompleta() {
+        return generador.generarListaCompleta(LocalDate.now(), configuracion);
+    }
+
+    @Benchmark
+    public ListaReproduccion generarYGuardar() {
+        return generadorPersistente.generarListaCompleta(LocalDate.now(), configuracion);
+    }
+
+    static GeneradorListaService crearGenerador(EstadoBiblioteca estado) {
+        GeneradorListaService generador = new GeneradorListaService();
+        ConfiguracionLista configuracion = estado.biblioteca.crearConfiguracion();
+        configuracion.aplicarA(generador);
+        return generador;
+    }
+}
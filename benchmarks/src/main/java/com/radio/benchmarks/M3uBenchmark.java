@@ -0,0 +1,53 @@
+package com.radio.benchmarks;
+
+import com.radio.models.ListaReproduccion;
+import com.radio.services.ArchivoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura y lectura del .m3u de un día generado sobre la biblioteca
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class M3uBenchmark {
+
+    private ListaReproduccion lista;
+    private Path archivoEscritura;
+    private Path archivoLectura;
+
+    @Setup(Level.Trial)
+    public void preparar(EstadoBiblioteca estado) throws IOException {
+        lista = GeneracionBenchmark.crearGenerador(estado)
+                .generarListaCompleta(LocalDate.now(), estado.biblioteca.crearConfiguracion().getBloquesConCarpeta());
+
+        archivoEscritura = Files.createTempFile("escritura-", ".m3u");
+        archivoLectura = Files.createTempFile("lectura-", ".m3u");
+        ArchivoService.guardarListaM3u(lista, archivoLectura.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(archivoEscritura);
+        Files.deleteIfExists(archivoLectura);
+    }
+
+    @Benchmark
+    public boolean guardarListaM3u() {
+        return ArchivoService.guardarListaM3u(lista, archivoEscritura.toString());
+    }
+
+    @Benchmark
+    public ListaReproduccion cargarListaM3u() {
+        return ArchivoService.cargarListaM3u(archivoLectura.toString());
+    }
+}
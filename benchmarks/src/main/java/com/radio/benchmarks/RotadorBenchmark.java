@@ -0,0 +1,35 @@
+package com.radio.benchmarks;
+
+import com.radio.catalog.CatalogoMusical;
+import com.radio.catalog.EntradaCatalogo;
+import com.radio.services.GeneradorListaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inicialización de un rotador sobre una carpeta con tantos archivos numerados como la biblioteca
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RotadorBenchmark {
+
+    private String rutaRotador;
+    private List<EntradaCatalogo> entradas;
+
+    @Setup(Level.Trial)
+    public void preparar(EstadoBiblioteca estado) {
+        rutaRotador = estado.bibliotecaRotador.carpeta(BibliotecaSintetica.CARPETA_PROMOS_A).toString();
+        entradas = CatalogoMusical.getInstancia().obtenerEntradas(rutaRotador);
+    }
+
+    @Benchmark
+    public GeneradorListaService.RotadorElementos inicializarRotador() {
+        return new GeneradorListaService.RotadorElementos(rutaRotador, "promoa", entradas);
+    }
+}
@@ -1,5 +1,6 @@
 package com.radio;
 
+import com.radio.controllers.MainController;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -7,15 +8,25 @@ import javafx.stage.Stage;
 
 public class Main extends Application {
 
+    private MainController controlador;
+
     @Override
     public void start(Stage stage) throws Exception {
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/views/main_view.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 800, 600); // tamaño inicial
+        controlador = fxmlLoader.getController();
         stage.setTitle("Generador de Listas ZaraRadio");
         stage.setScene(scene);
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        if (controlador != null) {
+            controlador.cerrar();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args); // Lanza la aplicación JavaFX
     }
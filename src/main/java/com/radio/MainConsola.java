@@ -0,0 +1,127 @@
+package com.radio;
+
+import com.radio.models.ListaReproduccion;
+import com.radio.services.ArchivoService;
+import com.radio.services.ConfiguracionLista;
+import com.radio.services.GeneradorListaService;
+import com.radio.utils.TrazaGeneracion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Punto de entrada sin interfaz gráfica, pensado para tareas programadas (cron, Programador de tareas).
+ * No carga ninguna clase de JavaFX.
+ *
+ * Uso: java -cp GeneradorListasZaraRadio.jar com.radio.MainConsola
+ *          --config archivo.txt --salida carpeta [--fecha aaaa-mm-dd] [--dias n]
+ */
+public class MainConsola {
+
+    private static final int CODIGO_ERROR = 1;
+    private static final int CODIGO_USO_INCORRECTO = 2;
+
+    public static void main(String[] args) {
+        String rutaConfiguracion = null;
+        String rutaSalida = null;
+        LocalDate fecha = LocalDate.now();
+        int dias = 1;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config":
+                        rutaConfiguracion = valor(args, ++i);
+                        break;
+                    case "--salida":
+                        rutaSalida = valor(args, ++i);
+                        break;
+                    case "--fecha":
+                        fecha = LocalDate.parse(valor(args, ++i));
+                        break;
+                    case "--dias":
+                        dias = Integer.parseInt(valor(args, ++i));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            if (rutaConfiguracion == null || rutaSalida == null) {
+                throw new IllegalArgumentException("Faltan --config o --salida");
+            }
+            if (dias < 1) {
+                throw new IllegalArgumentException("--dias debe ser al menos 1");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Uso: MainConsola --config archivo.txt --salida carpeta [--fecha aaaa-mm-dd] [--dias n]");
+            System.exit(CODIGO_USO_INCORRECTO);
+            return;
+        }
+
+        System.exit(generar(rutaConfiguracion, rutaSalida, fecha, dias));
+    }
+
+    private static int generar(String rutaConfiguracion, String rutaSalida, LocalDate fecha, int dias) {
+        ConfiguracionLista configuracion;
+        try {
+            configuracion = ConfiguracionLista.cargar(rutaConfiguracion);
+        } catch (IOException e) {
+            System.err.println("Error al cargar configuración: " + e.getMessage());
+            return CODIGO_ERROR;
+        }
+
+        List<GeneradorListaService.ConfiguracionBloque> bloques = configuracion.getBloquesConCarpeta();
+        if (bloques.isEmpty()) {
+            System.err.println("La configuración no tiene ningún bloque con carpeta");
+            return CODIGO_ERROR;
+        }
+
+        File carpetaSalida = new File(rutaSalida);
+        if (!carpetaSalida.isDirectory() && !carpetaSalida.mkdirs()) {
+            System.err.println("No se pudo crear la carpeta de salida: " + rutaSalida);
+            return CODIGO_ERROR;
+        }
+
+        GeneradorListaService generador = new GeneradorListaService();
+        configuracion.aplicarA(generador);
+
+        try {
+            if (dias > 1) {
+                List<ListaReproduccion> listas = generador.generarRango(fecha, fecha.plusDays(dias - 1),
+                        bloques, carpetaSalida.getAbsolutePath());
+                System.out.println(listas.size() + " listas generadas en " + carpetaSalida.getAbsolutePath());
+                boolean todasGuardadas = listas.stream().allMatch(lista -> lista.getRutaArchivoLst() != null);
+                return todasGuardadas ? 0 : CODIGO_ERROR;
+            }
+
+            ListaReproduccion lista = generador.generarListaCompleta(fecha, bloques);
+            String destino = new File(carpetaSalida, GeneradorListaService.nombreArchivoDia(fecha)).getPath();
+            if (!ArchivoService.guardarListaM3uCompatible(lista, destino)) {
+                System.err.println("No se pudo guardar la lista: " + destino);
+                return CODIGO_ERROR;
+            }
+            System.out.println(lista + " -> " + destino);
+            return 0;
+
+        } catch (RuntimeException e) {
+            TrazaGeneracion.registrar(TrazaGeneracion.Nivel.ERROR, "Error al generar la lista: {}", e);
+            Path archivoTraza = TrazaGeneracion.volcarEnDirectorioDatos();
+            if (archivoTraza != null) {
+                System.err.println("Traza guardada en: " + archivoTraza);
+            }
+            return CODIGO_ERROR;
+        }
+    }
+
+    private static String valor(String[] args, int indice) {
+        if (indice >= args.length) {
+            throw new IllegalArgumentException("Falta el valor de " + args[indice - 1]);
+        }
+        return args[indice];
+    }
+}
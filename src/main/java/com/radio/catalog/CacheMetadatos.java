@@ -0,0 +1,306 @@
+package com.radio.catalog;
+
+import com.radio.utils.DirectorioDatos;
+import com.radio.utils.TablaSimbolos;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Caché persistente de metadatos por archivo (duración y etiquetas ID3),
+ * con clave ruta + tamaño + fecha de modificación.
+ * Cada archivo se sondea una sola vez; si cambia su tamaño o su fecha se vuelve a sondear.
+ *
+ * En memoria los datos van en columnas indexadas por el número de {@link RegistroIds}:
+ * tamaño, fecha y duración como primitivos y las etiquetas como símbolos compartidos,
+ * así que los artistas y géneros repetidos se guardan una sola vez.
+ */
+public class CacheMetadatos {
+
+    private static final String NOMBRE_ARCHIVO = "metadatos.dat";
+    private static final int MAGICO = 0x5A524D44; // "ZRMD"
+    private static final int VERSION = 2;
+    private static final int MAX_HILOS_SONDEO = 16;
+    private static final int SIN_DATOS = Integer.MIN_VALUE; // archivo todavía no sondeado
+
+    private static CacheMetadatos instancia;
+
+    private final File archivoCache;
+    private final TablaSimbolos etiquetas = new TablaSimbolos();
+    private long[] tamanos = new long[0];
+    private long[] fechas = new long[0];
+    private int[] duracionesMs = new int[0];
+    private int[] artistas = new int[0];
+    private int[] titulos = new int[0];
+    private int[] generos = new int[0];
+    private volatile boolean modificado = false;
+
+    CacheMetadatos(File archivoCache) {
+        this.archivoCache = archivoCache;
+        cargar();
+    }
+
+    public static synchronized CacheMetadatos getInstancia() {
+        if (instancia == null) {
+            instancia = new CacheMetadatos(DirectorioDatos.archivo(NOMBRE_ARCHIVO));
+        }
+        return instancia;
+    }
+
+    /**
+     * Devuelve los metadatos de un archivo, sondeándolo si no están en caché o quedaron obsoletos
+     */
+    public MetadatosAudio obtener(EntradaCatalogo entrada) {
+        MetadatosAudio enCache = leer(entrada);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        MetadatosAudio sondeados = sondear(entrada);
+        if (sondeados == null || Thread.currentThread().isInterrupted()) {
+            // Lectura fallida o interrumpida: sin datos por ahora, se vuelve a sondear la próxima vez
+            return new MetadatosAudio(entrada.getTamano(), entrada.getFechaModificacion(), -1, null, null, null);
+        }
+        escribir(entrada.getId(), sondeados);
+        modificado = true;
+        return sondeados;
+    }
+
+    /**
+     * Devuelve la duración real del archivo o la indicada si no se pudo determinar
+     */
+    public Duration obtenerDuracion(EntradaCatalogo entrada, Duration porDefecto) {
+        long duracionMs = obtener(entrada).getDuracionMs();
+        return duracionMs > 0 ? Duration.ofMillis(duracionMs) : porDefecto;
+    }
+
+    /**
+     * Duraciones de todas las filas de la tabla en una sola pasada sobre las columnas;
+     * las que no se conocen toman el valor indicado
+     */
+    public long[] obtenerDuracionesMs(TablaEntradas tabla, long porDefectoMs) {
+        long[] resultado = new long[tabla.size()];
+        List<Integer> pendientes = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < resultado.length; i++) {
+                int id = tabla.getId(i);
+                if (vigente(id, tabla.getTamano(i), tabla.getFechaModificacion(i))) {
+                    resultado[i] = duracionesMs[id] > 0 ? duracionesMs[id] : porDefectoMs;
+                } else {
+                    pendientes.add(i);
+                }
+            }
+        }
+
+        // Normalmente completar() ya los sondeó; si no, se hace fuera del bloqueo
+        for (int i : pendientes) {
+            long duracionMs = obtener(tabla.get(i)).getDuracionMs();
+            resultado[i] = duracionMs > 0 ? duracionMs : porDefectoMs;
+        }
+        return resultado;
+    }
+
+    /**
+     * Sondea en paralelo todas las entradas que todavía no están en caché
+     */
+    public void completar(Collection<EntradaCatalogo> entradas) {
+        List<EntradaCatalogo> pendientes = new ArrayList<>();
+        synchronized (this) {
+            for (EntradaCatalogo entrada : entradas) {
+                if (!vigente(entrada.getId(), entrada.getTamano(), entrada.getFechaModificacion())) {
+                    pendientes.add(entrada);
+                }
+            }
+        }
+
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        int hilos = Math.min(MAX_HILOS_SONDEO, Math.max(1, pendientes.size() / 64));
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "sondeo-metadatos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (EntradaCatalogo entrada : pendientes) {
+                tareas.add(ejecutor.submit(() -> obtener(entrada)));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Error al sondear metadatos: " + e.getMessage());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        System.out.println("Metadatos sondeados: " + pendientes.size() + " archivos en " +
+                (System.nanoTime() - inicio) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Guarda la caché en disco si hubo cambios
+     */
+    public synchronized void guardar() {
+        if (!modificado) {
+            return;
+        }
+
+        int conDatos = 0;
+        for (int duracion : duracionesMs) {
+            if (duracion != SIN_DATOS) {
+                conDatos++;
+            }
+        }
+
+        File temporal = new File(archivoCache.getPath() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal)))) {
+
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+
+            salida.writeInt(conDatos);
+
+            for (int id = 0; id < duracionesMs.length; id++) {
+                if (duracionesMs[id] == SIN_DATOS) {
+                    continue;
+                }
+                salida.writeUTF(RegistroIds.ruta(id));
+                salida.writeLong(tamanos[id]);
+                salida.writeLong(fechas[id]);
+                salida.writeLong(duracionesMs[id]);
+                escribirOpcional(salida, etiquetas.texto(artistas[id]));
+                escribirOpcional(salida, etiquetas.texto(titulos[id]));
+                escribirOpcional(salida, etiquetas.texto(generos[id]));
+            }
+
+        } catch (IOException e) {
+            System.err.println("Error al guardar la caché de metadatos: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temporal.toPath(), archivoCache.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modificado = false;
+        } catch (IOException e) {
+            System.err.println("Error al reemplazar la caché de metadatos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre el archivo una sola vez para leer duración y etiquetas
+     *
+     * @return null si no se pudo leer el archivo (inaccesible, error de red, hilo interrumpido)
+     */
+    private MetadatosAudio sondear(EntradaCatalogo entrada) {
+        long duracionMs;
+        LectorEtiquetasId3.Etiquetas etiquetas;
+
+        try (FileChannel canal = FileChannel.open(Paths.get(entrada.getRutaAbsoluta()), StandardOpenOption.READ)) {
+            duracionMs = LectorDuracionAudio.leerDuracionMs(canal);
+            etiquetas = LectorEtiquetasId3.leer(canal);
+        } catch (IOException e) {
+            // No es un formato desconocido: no se guarda para que el próximo sondeo lo reintente
+            return null;
+        }
+
+        return new MetadatosAudio(entrada.getTamano(), entrada.getFechaModificacion(), duracionMs,
+                etiquetas.artista, etiquetas.titulo, etiquetas.genero);
+    }
+
+    private synchronized MetadatosAudio leer(EntradaCatalogo entrada) {
+        int id = entrada.getId();
+        if (!vigente(id, entrada.getTamano(), entrada.getFechaModificacion())) {
+            return null;
+        }
+        return new MetadatosAudio(tamanos[id], fechas[id], duracionesMs[id],
+                etiquetas.texto(artistas[id]), etiquetas.texto(titulos[id]), etiquetas.texto(generos[id]));
+    }
+
+    private boolean vigente(int id, long tamano, long fecha) {
+        return id < duracionesMs.length && duracionesMs[id] != SIN_DATOS
+                && tamanos[id] == tamano && fechas[id] == fecha;
+    }
+
+    private synchronized void escribir(int id, MetadatosAudio datos) {
+        if (id >= duracionesMs.length) {
+            int capacidad = Math.max(id + 1, Math.max(RegistroIds.getTotal(), duracionesMs.length * 2));
+            int anterior = duracionesMs.length;
+            tamanos = Arrays.copyOf(tamanos, capacidad);
+            fechas = Arrays.copyOf(fechas, capacidad);
+            duracionesMs = Arrays.copyOf(duracionesMs, capacidad);
+            artistas = Arrays.copyOf(artistas, capacidad);
+            titulos = Arrays.copyOf(titulos, capacidad);
+            generos = Arrays.copyOf(generos, capacidad);
+            Arrays.fill(duracionesMs, anterior, capacidad, SIN_DATOS);
+        }
+        tamanos[id] = datos.getTamano();
+        fechas[id] = datos.getFechaModificacion();
+        // Ningún audio dura más de 24 días: la duración cabe en un int
+        duracionesMs[id] = (int) Math.max(-1, Math.min(Integer.MAX_VALUE, datos.getDuracionMs()));
+        artistas[id] = etiquetas.obtener(datos.getArtista());
+        titulos[id] = etiquetas.obtener(datos.getTitulo());
+        generos[id] = etiquetas.obtener(datos.getGeneroEtiqueta());
+    }
+
+    private static void escribirOpcional(DataOutputStream salida, String valor) throws IOException {
+        salida.writeUTF(valor != null ? valor : "");
+    }
+
+    private static String leerOpcional(DataInputStream entrada) throws IOException {
+        String valor = entrada.readUTF();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private void cargar() {
+        if (!archivoCache.exists()) {
+            return;
+        }
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(archivoCache)))) {
+
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION) {
+                System.out.println("Caché de metadatos con formato desconocido, se reconstruirá.");
+                return;
+            }
+
+            int total = entrada.readInt();
+            for (int i = 0; i < total; i++) {
+                String ruta = entrada.readUTF();
+                long tamano = entrada.readLong();
+                long fecha = entrada.readLong();
+                long duracionMs = entrada.readLong();
+                String artista = leerOpcional(entrada);
+                String titulo = leerOpcional(entrada);
+                String genero = leerOpcional(entrada);
+                escribir(RegistroIds.obtener(ruta), new MetadatosAudio(tamano, fecha, duracionMs, artista, titulo, genero));
+            }
+
+        } catch (IOException e) {
+            System.err.println("Error al leer la caché de metadatos, se reconstruirá: " + e.getMessage());
+            duracionesMs = new int[0];
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.radio.catalog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contenido de una carpeta tal como se vio en el último escaneo, con los archivos en columnas.
+ * Si se escaneó con subcarpetas, también guarda la fecha de cada subcarpeta
+ * para poder detectar cambios sin volver a listarlas.
+ *
+ * Los archivos se guardan ordenados por ruta relativa: el orden no depende del sistema de archivos
+ * ni de cómo se llegó a este contenido (escaneo completo o cambios del vigilante), y así una
+ * generación con semilla fija da la misma lista sobre los mismos archivos.
+ */
+public class CarpetaCatalogo {
+    private final String ruta;
+    private final long fechaModificacion;
+    private final int profundidad;
+    private final TablaEntradas entradas;
+    private final Map<String, Long> subcarpetas;
+    private final TablaEntradas[] vistas; // entradas hasta cada profundidad menor que la del escaneo
+
+    public CarpetaCatalogo(String ruta, long fechaModificacion, int profundidad,
+                           List<EntradaCatalogo> entradas, Map<String, Long> subcarpetas) {
+        this.ruta = ruta;
+        this.fechaModificacion = fechaModificacion;
+        this.profundidad = profundidad;
+        List<EntradaCatalogo> ordenadas = new ArrayList<>(entradas);
+        ordenadas.sort(Comparator.comparing(EntradaCatalogo::getRutaRelativa));
+        this.entradas = new TablaEntradas(ruta, ordenadas);
+        this.subcarpetas = Collections.unmodifiableMap(subcarpetas);
+        this.vistas = new TablaEntradas[Math.max(0, profundidad)];
+    }
+
+    public String getRuta() {
+        return ruta;
+    }
+
+    public long getFechaModificacion() {
+        return fechaModificacion;
+    }
+
+    public int getProfundidad() {
+        return profundidad;
+    }
+
+    /**
+     * Archivos de la carpeta en columnas; la lista no se puede modificar
+     */
+    public TablaEntradas getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * Archivos hasta la profundidad indicada (0 = solo los de la carpeta). Si es menor que la del escaneo
+     * se filtran una vez y la vista queda guardada.
+     */
+    public TablaEntradas getEntradas(int hasta) {
+        if (hasta >= profundidad) {
+            return entradas;
+        }
+        int nivel = Math.max(0, hasta);
+        TablaEntradas vista = vistas[nivel];
+        if (vista == null) {
+            List<EntradaCatalogo> filtradas = new ArrayList<>();
+            for (EntradaCatalogo entrada : entradas) {
+                if (nivelDe(entrada.getRutaRelativa()) <= nivel) {
+                    filtradas.add(entrada);
+                }
+            }
+            vista = new TablaEntradas(ruta, filtradas);
+            vistas[nivel] = vista;
+        }
+        return vista;
+    }
+
+    private static int nivelDe(String rutaRelativa) {
+        int nivel = 0;
+        for (int i = 0; i < rutaRelativa.length(); i++) {
+            if (rutaRelativa.charAt(i) == File.separatorChar) {
+                nivel++;
+            }
+        }
+        return nivel;
+    }
+
+    /**
+     * Subcarpetas recorridas (ruta absoluta) con su fecha de modificación
+     */
+    public Map<String, Long> getSubcarpetas() {
+        return subcarpetas;
+    }
+}
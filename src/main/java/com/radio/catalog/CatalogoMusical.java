@@ -0,0 +1,429 @@
+package com.radio.catalog;
+
+import com.radio.utils.DirectorioDatos;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Catálogo persistente de la biblioteca musical.
+ * Guarda el contenido de cada carpeta (nombre, tamaño y fecha de cada archivo de audio)
+ * y solo vuelve a listar una carpeta cuando cambia su fecha de modificación.
+ * El resto de consultas se responden desde memoria.
+ */
+public class CatalogoMusical {
+
+    private static final String NOMBRE_ARCHIVO = "catalogo.dat";
+    private static final int MAGICO = 0x5A524354; // "ZRCT"
+    private static final int VERSION = 2;
+    private static final int MAX_HILOS_ESCANEO = 16;
+
+    /**
+     * Niveles de subcarpetas que se recorren en las carpetas de música (género/artista/álbum)
+     */
+    public static final int PROFUNDIDAD_MUSICA = 2;
+
+    private static CatalogoMusical instancia;
+
+    private final File archivoCatalogo;
+    private final Map<String, CarpetaCatalogo> carpetas = new ConcurrentHashMap<>();
+    private volatile boolean modificado = false;
+
+    CatalogoMusical(File archivoCatalogo) {
+        this.archivoCatalogo = archivoCatalogo;
+        cargar();
+    }
+
+    /**
+     * Devuelve el catálogo compartido, cargándolo del disco la primera vez
+     */
+    public static synchronized CatalogoMusical getInstancia() {
+        if (instancia == null) {
+            instancia = new CatalogoMusical(DirectorioDatos.archivo(NOMBRE_ARCHIVO));
+        }
+        return instancia;
+    }
+
+    /**
+     * Devuelve las entradas de audio que están directamente en una carpeta
+     */
+    public List<EntradaCatalogo> obtenerEntradas(String rutaCarpeta) {
+        return obtenerEntradas(rutaCarpeta, 0);
+    }
+
+    /**
+     * Devuelve las entradas de audio de una carpeta y de sus subcarpetas hasta la profundidad indicada.
+     * Solo se vuelve a leer el disco si la fecha de modificación de alguna carpeta cambió.
+     *
+     * @throws UncheckedIOException si la carpeta no se pudo leer y no había nada de ella en el catálogo
+     */
+    public List<EntradaCatalogo> obtenerEntradas(String rutaCarpeta, int profundidad) {
+        if (rutaCarpeta == null || rutaCarpeta.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        File carpeta = new File(rutaCarpeta).getAbsoluteFile();
+        String clave = carpeta.getPath();
+        long fechaCarpeta = carpeta.lastModified();
+
+        if (fechaCarpeta == 0L || !carpeta.isDirectory()) {
+            // La carpeta no existe (o no es accesible): olvidar lo que hubiera
+            if (carpetas.remove(clave) != null) {
+                modificado = true;
+            }
+            return Collections.emptyList();
+        }
+
+        CarpetaCatalogo enCache = carpetas.get(clave);
+        if (enCache != null && estaVigente(enCache, fechaCarpeta, profundidad)) {
+            return enCache.getEntradas(profundidad);
+        }
+
+        // Se vuelve a escanear con la mayor profundidad conocida: si la carpeta se pide con y sin
+        // subcarpetas, una sola entrada en caché sirve para las dos
+        int profundidadEscaneo = enCache != null ? Math.max(profundidad, enCache.getProfundidad()) : profundidad;
+        return escanearConservando(carpeta, profundidadEscaneo, enCache).getEntradas(profundidad);
+    }
+
+    /**
+     * Escanea una carpeta y la guarda en el catálogo. Si el escaneo falla se conserva lo que ya
+     * se conocía de ella (aunque esté desactualizado) y, si no se conocía nada, se propaga el error.
+     */
+    private CarpetaCatalogo escanearConservando(File carpeta, int profundidad, CarpetaCatalogo anterior) {
+        try {
+            CarpetaCatalogo escaneada = EscanerCarpetas.escanear(carpeta, profundidad);
+            carpetas.put(carpeta.getPath(), escaneada);
+            modificado = true;
+            return escaneada;
+        } catch (UncheckedIOException e) {
+            if (anterior == null) {
+                throw e;
+            }
+            System.err.println(e.getMessage() + ": se conserva el contenido anterior (" +
+                    e.getCause().getMessage() + ")");
+            return anterior;
+        }
+    }
+
+    /**
+     * Fase de escaneo sin subcarpetas
+     */
+    public InstantaneaCatalogo escanear(Collection<String> rutasCarpetas) {
+        Map<String, Integer> sinSubcarpetas = new LinkedHashMap<>();
+        for (String ruta : rutasCarpetas) {
+            sinSubcarpetas.put(ruta, 0);
+        }
+        return escanear(sinSubcarpetas);
+    }
+
+    /**
+     * Fase de escaneo: lista todas las carpetas indicadas al mismo tiempo.
+     * Cada carpeta distinta se consulta una sola vez, de modo que en unidades de red
+     * el tiempo total es el de la carpeta más lenta y no la suma de todas.
+     *
+     * @param carpetasConProfundidad ruta de cada carpeta con los niveles de subcarpetas a recorrer
+     */
+    public InstantaneaCatalogo escanear(Map<String, Integer> carpetasConProfundidad) {
+        Map<String, Integer> distintas = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> carpeta : carpetasConProfundidad.entrySet()) {
+            String ruta = carpeta.getKey();
+            if (ruta != null && !ruta.trim().isEmpty()) {
+                // Si la misma carpeta se pide con distintas profundidades, se usa la mayor
+                distintas.merge(new File(ruta.trim()).getAbsolutePath(), carpeta.getValue(), Math::max);
+            }
+        }
+
+        Map<String, List<EntradaCatalogo>> resultado = new LinkedHashMap<>();
+        if (distintas.isEmpty()) {
+            return new InstantaneaCatalogo(resultado);
+        }
+
+        int hilos = Math.min(distintas.size(), MAX_HILOS_ESCANEO);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "escaneo-catalogo");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        try {
+            Map<String, Future<List<EntradaCatalogo>>> pendientes = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> carpeta : distintas.entrySet()) {
+                String ruta = carpeta.getKey();
+                int profundidad = carpeta.getValue();
+                pendientes.put(ruta, ejecutor.submit(() -> obtenerEntradas(ruta, profundidad)));
+            }
+
+            for (Map.Entry<String, Future<List<EntradaCatalogo>>> pendiente : pendientes.entrySet()) {
+                try {
+                    resultado.put(pendiente.getKey(), pendiente.getValue().get());
+                } catch (ExecutionException e) {
+                    System.err.println("Error al escanear " + pendiente.getKey() + ": " + e.getCause());
+                    resultado.put(pendiente.getKey(), Collections.emptyList());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        return new InstantaneaCatalogo(resultado);
+    }
+
+    /**
+     * Devuelve las rutas absolutas de los archivos de audio de una carpeta.
+     * La lista devuelta es una copia que el llamador puede modificar.
+     */
+    public List<String> obtenerRutas(String rutaCarpeta, int profundidad) {
+        List<EntradaCatalogo> entradas = obtenerEntradas(rutaCarpeta, profundidad);
+        List<String> rutas = new ArrayList<>(entradas.size());
+        for (EntradaCatalogo entrada : entradas) {
+            rutas.add(entrada.getRutaAbsoluta());
+        }
+        return rutas;
+    }
+
+    /**
+     * Devuelve lo último que se conoce de una carpeta sin ir al disco (null si nunca se escaneó)
+     */
+    public CarpetaCatalogo obtenerCarpetaConocida(String rutaCarpeta) {
+        return carpetas.get(new File(rutaCarpeta).getAbsolutePath());
+    }
+
+    /**
+     * Aplica cambios puntuales a una carpeta ya catalogada sin volver a listarla.
+     * Los archivos en "actualizados" se (re)leen del disco; los de "eliminados" se quitan.
+     * Al terminar se anotan las fechas actuales de las carpetas afectadas para que
+     * la siguiente consulta no dispare un escaneo completo.
+     *
+     * @return número de entradas de la carpeta tras aplicar los cambios, o -1 si no estaba catalogada
+     */
+    public synchronized int aplicarCambios(String rutaRaiz, Collection<Path> actualizados, Collection<Path> eliminados) {
+        String clave = new File(rutaRaiz).getAbsolutePath();
+        CarpetaCatalogo actual = carpetas.get(clave);
+        if (actual == null) {
+            return -1;
+        }
+
+        Set<String> quitar = new HashSet<>();
+        for (Path ruta : eliminados) {
+            quitar.add(ruta.toString());
+        }
+        for (Path ruta : actualizados) {
+            quitar.add(ruta.toString());
+        }
+
+        List<EntradaCatalogo> entradas = new ArrayList<>(actual.getEntradas().size() + actualizados.size());
+        for (EntradaCatalogo entrada : actual.getEntradas()) {
+            if (!quitar.contains(entrada.getRutaAbsoluta())) {
+                entradas.add(entrada);
+            }
+        }
+
+        Map<String, Long> subcarpetas = new LinkedHashMap<>(actual.getSubcarpetas());
+        String prefijo = clave + File.separator;
+
+        for (Path ruta : actualizados) {
+            String absoluta = ruta.toString();
+            if (!absoluta.startsWith(prefijo) || !EscanerCarpetas.esArchivoAudio(ruta.getFileName().toString())) {
+                continue;
+            }
+            try {
+                BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+                if (atributos.isRegularFile()) {
+                    entradas.add(new EntradaCatalogo(clave, absoluta.substring(prefijo.length()),
+                            atributos.size(), atributos.lastModifiedTime().toMillis()));
+                }
+            } catch (IOException e) {
+                // Ya no existe: queda fuera del catálogo
+            }
+        }
+
+        // Refrescar las fechas de las carpetas que contenían los archivos modificados
+        for (Path ruta : concatenar(actualizados, eliminados)) {
+            Path padre = ruta.getParent();
+            if (padre != null && subcarpetas.containsKey(padre.toString())) {
+                subcarpetas.put(padre.toString(), padre.toFile().lastModified());
+            }
+        }
+
+        carpetas.put(clave, new CarpetaCatalogo(clave, new File(clave).lastModified(),
+                actual.getProfundidad(), entradas, subcarpetas));
+        modificado = true;
+        return entradas.size();
+    }
+
+    /**
+     * Vuelve a escanear una carpeta conservando la profundidad con la que se catalogó
+     */
+    public List<EntradaCatalogo> reescanear(String rutaCarpeta) {
+        File carpeta = new File(rutaCarpeta).getAbsoluteFile();
+        CarpetaCatalogo conocida = carpetas.get(carpeta.getPath());
+        int profundidad = conocida != null ? conocida.getProfundidad() : 0;
+        if (!carpeta.isDirectory()) {
+            invalidar(rutaCarpeta);
+            return Collections.emptyList();
+        }
+        return escanearConservando(carpeta, profundidad, conocida).getEntradas(profundidad);
+    }
+
+    private static List<Path> concatenar(Collection<Path> primera, Collection<Path> segunda) {
+        List<Path> todas = new ArrayList<>(primera);
+        todas.addAll(segunda);
+        return todas;
+    }
+
+    /**
+     * Descarta lo conocido de una carpeta para forzar un nuevo escaneo
+     */
+    public void invalidar(String rutaCarpeta) {
+        String clave = new File(rutaCarpeta).getAbsolutePath();
+        if (carpetas.remove(clave) != null) {
+            modificado = true;
+        }
+    }
+
+    public int getTotalCarpetas() {
+        return carpetas.size();
+    }
+
+    public int getTotalEntradas() {
+        int total = 0;
+        for (CarpetaCatalogo carpeta : carpetas.values()) {
+            total += carpeta.getEntradas().size();
+        }
+        return total;
+    }
+
+    /**
+     * Guarda el catálogo en disco si hubo cambios desde la última vez
+     */
+    public synchronized void guardar() {
+        if (!modificado) {
+            return;
+        }
+
+        File temporal = new File(archivoCatalogo.getPath() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal)))) {
+
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+
+            List<CarpetaCatalogo> copia = new ArrayList<>(carpetas.values());
+            salida.writeInt(copia.size());
+
+            for (CarpetaCatalogo carpeta : copia) {
+                salida.writeUTF(carpeta.getRuta());
+                salida.writeLong(carpeta.getFechaModificacion());
+                salida.writeInt(carpeta.getProfundidad());
+
+                salida.writeInt(carpeta.getSubcarpetas().size());
+                for (Map.Entry<String, Long> subcarpeta : carpeta.getSubcarpetas().entrySet()) {
+                    salida.writeUTF(subcarpeta.getKey());
+                    salida.writeLong(subcarpeta.getValue());
+                }
+
+                salida.writeInt(carpeta.getEntradas().size());
+                for (EntradaCatalogo entrada : carpeta.getEntradas()) {
+                    salida.writeUTF(entrada.getRutaRelativa());
+                    salida.writeLong(entrada.getTamano());
+                    salida.writeLong(entrada.getFechaModificacion());
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Error al guardar el catálogo: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temporal.toPath(), archivoCatalogo.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modificado = false;
+        } catch (IOException e) {
+            System.err.println("Error al reemplazar el catálogo: " + e.getMessage());
+        }
+    }
+
+    private void cargar() {
+        if (!archivoCatalogo.exists()) {
+            return;
+        }
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(archivoCatalogo)))) {
+
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION) {
+                System.out.println("Catálogo con formato desconocido, se reconstruirá: " + archivoCatalogo);
+                return;
+            }
+
+            int totalCarpetas = entrada.readInt();
+            for (int i = 0; i < totalCarpetas; i++) {
+                String ruta = entrada.readUTF();
+                long fechaCarpeta = entrada.readLong();
+                int profundidad = entrada.readInt();
+
+                int totalSubcarpetas = entrada.readInt();
+                Map<String, Long> subcarpetas = new LinkedHashMap<>();
+                for (int j = 0; j < totalSubcarpetas; j++) {
+                    String subcarpeta = entrada.readUTF();
+                    subcarpetas.put(subcarpeta, entrada.readLong());
+                }
+
+                int totalEntradas = entrada.readInt();
+
+                List<EntradaCatalogo> entradas = new ArrayList<>(totalEntradas);
+                for (int j = 0; j < totalEntradas; j++) {
+                    String rutaRelativa = entrada.readUTF();
+                    long tamano = entrada.readLong();
+                    long fecha = entrada.readLong();
+                    entradas.add(new EntradaCatalogo(ruta, rutaRelativa, tamano, fecha));
+                }
+
+                carpetas.put(ruta, new CarpetaCatalogo(ruta, fechaCarpeta, profundidad, entradas, subcarpetas));
+            }
+
+            System.out.println("Catálogo cargado: " + carpetas.size() + " carpetas, " +
+                    getTotalEntradas() + " archivos.");
+
+        } catch (IOException e) {
+            System.err.println("Error al leer el catálogo, se reconstruirá: " + e.getMessage());
+            carpetas.clear();
+        }
+    }
+
+    /**
+     * Una carpeta en caché sigue vigente si se escaneó con la profundidad pedida o una mayor
+     * y ni ella ni ninguna de sus subcarpetas cambió de fecha
+     */
+    private boolean estaVigente(CarpetaCatalogo carpeta, long fechaActual, int profundidad) {
+        if (carpeta.getFechaModificacion() != fechaActual || carpeta.getProfundidad() < profundidad) {
+            return false;
+        }
+
+        for (Map.Entry<String, Long> subcarpeta : carpeta.getSubcarpetas().entrySet()) {
+            if (new File(subcarpeta.getKey()).lastModified() != subcarpeta.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package com.radio.catalog;
+
+import java.io.File;
+
+/**
+ * Archivo de audio registrado en el catálogo con su tamaño y fecha de modificación.
+ * La ruta no se copia: se arma desde {@link RegistroIds} la primera vez que se pide.
+ */
+public class EntradaCatalogo {
+    private final String rutaCarpeta;
+    private final int id;
+    private final long tamano;
+    private final long fechaModificacion;
+    private String rutaAbsoluta;
+
+    /**
+     * @param rutaCarpeta  carpeta raíz escaneada
+     * @param rutaRelativa ruta del archivo dentro de la carpeta raíz (solo el nombre si está directamente en ella)
+     */
+    public EntradaCatalogo(String rutaCarpeta, String rutaRelativa, long tamano, long fechaModificacion) {
+        this.rutaCarpeta = rutaCarpeta;
+        this.rutaAbsoluta = rutaCarpeta + File.separator + rutaRelativa;
+        this.id = RegistroIds.obtener(rutaAbsoluta);
+        this.tamano = tamano;
+        this.fechaModificacion = fechaModificacion;
+    }
+
+    /**
+     * Fila de una {@link TablaEntradas}
+     */
+    EntradaCatalogo(String rutaCarpeta, int id, long tamano, long fechaModificacion) {
+        this.rutaCarpeta = rutaCarpeta;
+        this.id = id;
+        this.tamano = tamano;
+        this.fechaModificacion = fechaModificacion;
+    }
+
+    /**
+     * Número denso de la ruta (ver {@link RegistroIds}): el mismo archivo conserva su número al reescanear
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        String ruta = getRutaAbsoluta();
+        return ruta.substring(ruta.lastIndexOf(File.separatorChar) + 1);
+    }
+
+    public String getRutaRelativa() {
+        return getRutaAbsoluta().substring(rutaCarpeta.length() + 1);
+    }
+
+    public String getRutaAbsoluta() {
+        if (rutaAbsoluta == null) {
+            rutaAbsoluta = RegistroIds.ruta(id);
+        }
+        return rutaAbsoluta;
+    }
+
+    public long getTamano() {
+        return tamano;
+    }
+
+    public long getFechaModificacion() {
+        return fechaModificacion;
+    }
+
+    /**
+     * Nombre del archivo sin la extensión
+     */
+    public String getNombreSinExtension() {
+        String nombre = getNombre();
+        int punto = nombre.lastIndexOf('.');
+        return punto > 0 ? nombre.substring(0, punto) : nombre;
+    }
+
+    @Override
+    public String toString() {
+        return getRutaAbsoluta();
+    }
+}
@@ -0,0 +1,108 @@
+package com.radio.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Escáner de carpetas basado en NIO.
+ * Recorre cada carpeta con un DirectoryStream (sin construir un File[] completo),
+ * descarta por extensión antes de tocar el disco y obtiene tipo, tamaño y fecha
+ * de cada archivo con una sola lectura de atributos.
+ * Si una carpeta no se puede leer el escaneo falla entero (UncheckedIOException):
+ * un resultado a medias se tomaría por una carpeta con menos archivos.
+ */
+public class EscanerCarpetas {
+
+    private static final String[] EXTENSIONES_AUDIO = {".mp3", ".wav", ".wma", ".ogg", ".aac"};
+
+    private EscanerCarpetas() {}
+
+    /**
+     * Escanea una carpeta y, si la profundidad lo permite, sus subcarpetas.
+     *
+     * @param carpeta            carpeta raíz (ruta absoluta)
+     * @param profundidadMaxima  0 = solo la carpeta, 1 = también sus subcarpetas, etc.
+     * @throws UncheckedIOException si no se pudo leer la carpeta o alguna de sus subcarpetas
+     */
+    public static CarpetaCatalogo escanear(File carpeta, int profundidadMaxima) {
+        String ruta = carpeta.getPath();
+        List<EntradaCatalogo> entradas = new ArrayList<>();
+        Map<String, Long> subcarpetas = new LinkedHashMap<>();
+
+        recorrer(carpeta.toPath(), profundidadMaxima, entradas::add, subcarpetas);
+
+        return new CarpetaCatalogo(ruta, carpeta.lastModified(), profundidadMaxima, entradas, subcarpetas);
+    }
+
+    /**
+     * Recorre los archivos de audio de una carpeta entregándolos uno a uno al consumidor.
+     * Las subcarpetas visitadas se anotan con su fecha de modificación.
+     */
+    public static void recorrer(Path raiz, int profundidadMaxima, Consumer<EntradaCatalogo> consumidor,
+                                Map<String, Long> subcarpetasVisitadas) {
+        recorrerNivel(raiz.toString(), raiz, "", 0, profundidadMaxima, consumidor, subcarpetasVisitadas);
+    }
+
+    private static void recorrerNivel(String rutaRaiz, Path carpeta, String prefijoRelativo, int nivel,
+                                      int profundidadMaxima, Consumer<EntradaCatalogo> consumidor,
+                                      Map<String, Long> subcarpetasVisitadas) {
+        boolean descender = nivel < profundidadMaxima;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(carpeta)) {
+            for (Path elemento : stream) {
+                String nombre = elemento.getFileName().toString();
+                boolean esAudio = esArchivoAudio(nombre);
+
+                // Sin extensión de audio y sin posibilidad de descender: no hace falta ni mirar el tipo
+                if (!esAudio && !descender) {
+                    continue;
+                }
+
+                BasicFileAttributes atributos;
+                try {
+                    atributos = Files.readAttributes(elemento, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue; // Borrado mientras se recorría
+                }
+
+                if (atributos.isRegularFile()) {
+                    if (esAudio) {
+                        consumidor.accept(new EntradaCatalogo(rutaRaiz, prefijoRelativo + nombre,
+                                atributos.size(), atributos.lastModifiedTime().toMillis()));
+                    }
+                } else if (atributos.isDirectory() && descender) {
+                    subcarpetasVisitadas.put(elemento.toString(), atributos.lastModifiedTime().toMillis());
+                    recorrerNivel(rutaRaiz, elemento, prefijoRelativo + nombre + File.separator,
+                            nivel + 1, profundidadMaxima, consumidor, subcarpetasVisitadas);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al recorrer la carpeta " + carpeta, e);
+        }
+    }
+
+    /**
+     * Verifica si un archivo es de audio compatible con ZaraRadio.
+     * Compara la extensión sin convertir el nombre a minúsculas (sin crear cadenas nuevas).
+     */
+    public static boolean esArchivoAudio(String nombreArchivo) {
+        int longitud = nombreArchivo.length();
+        for (String extension : EXTENSIONES_AUDIO) {
+            if (nombreArchivo.regionMatches(true, longitud - extension.length(), extension, 0, extension.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.radio.catalog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de la fase de escaneo: contenido de cada carpeta usada en una generación.
+ * Las etapas posteriores consultan aquí en lugar de volver a ir al disco.
+ */
+public class InstantaneaCatalogo {
+    private final Map<String, List<EntradaCatalogo>> carpetas;
+
+    InstantaneaCatalogo(Map<String, List<EntradaCatalogo>> carpetas) {
+        this.carpetas = carpetas;
+    }
+
+    /**
+     * Devuelve las entradas de audio de una carpeta incluida en el escaneo.
+     * Si la carpeta no formó parte del escaneo se consulta al catálogo.
+     */
+    public List<EntradaCatalogo> obtenerEntradas(String rutaCarpeta) {
+        if (rutaCarpeta == null || rutaCarpeta.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<EntradaCatalogo> entradas = carpetas.get(new File(rutaCarpeta).getAbsolutePath());
+        if (entradas == null) {
+            return CatalogoMusical.getInstancia().obtenerEntradas(rutaCarpeta);
+        }
+        return entradas;
+    }
+
+    /**
+     * Las mismas entradas en columnas, para recorrerlas por número de ruta sin crear objetos
+     */
+    public TablaEntradas obtenerTabla(String rutaCarpeta) {
+        List<EntradaCatalogo> entradas = obtenerEntradas(rutaCarpeta);
+        return entradas instanceof TablaEntradas ? (TablaEntradas) entradas : new TablaEntradas(rutaCarpeta, entradas);
+    }
+
+    /**
+     * Devuelve las rutas absolutas de una carpeta como lista modificable
+     */
+    public List<String> obtenerRutas(String rutaCarpeta) {
+        List<EntradaCatalogo> entradas = obtenerEntradas(rutaCarpeta);
+        List<String> rutas = new ArrayList<>(entradas.size());
+        for (EntradaCatalogo entrada : entradas) {
+            rutas.add(entrada.getRutaAbsoluta());
+        }
+        return rutas;
+    }
+
+    /**
+     * Todas las entradas de todas las carpetas escaneadas
+     */
+    public List<EntradaCatalogo> getTodasLasEntradas() {
+        List<EntradaCatalogo> todas = new ArrayList<>();
+        for (List<EntradaCatalogo> entradas : carpetas.values()) {
+            todas.addAll(entradas);
+        }
+        return todas;
+    }
+
+    /**
+     * Nueva instantánea con las carpetas de esta y las de otra; si coinciden, manda la de la otra
+     */
+    public InstantaneaCatalogo combinar(InstantaneaCatalogo otra) {
+        Map<String, List<EntradaCatalogo>> combinadas = new LinkedHashMap<>(carpetas);
+        combinadas.putAll(otra.carpetas);
+        return new InstantaneaCatalogo(combinadas);
+    }
+
+    public int getTotalCarpetas() {
+        return carpetas.size();
+    }
+}
@@ -0,0 +1,359 @@
+package com.radio.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Obtiene la duración de un archivo de audio leyendo solo sus cabeceras (sin decodificar).
+ * Soporta MP3 (cabecera Xing/Info o VBRI, o estimación CBR), WAV (fragmentos RIFF),
+ * OGG Vorbis/Opus (posición de gránulo de la última página) y AAC ADTS.
+ * Devuelve -1 cuando el formato no se reconoce (por ejemplo WMA); los fallos de lectura
+ * se propagan para que quien llama no los confunda con un formato desconocido.
+ */
+public class LectorDuracionAudio {
+
+    private static final int TAMANO_BUSQUEDA = 64 * 1024;
+    private static final int TAMANO_MUESTRA_AAC = 256 * 1024;
+
+    private static final int[][] BITRATES_MPEG1 = {
+            {},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},     // Layer III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // Layer II
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}  // Layer I
+    };
+    private static final int[][] BITRATES_MPEG2 = {
+            {},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},         // Layer III
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},         // Layer II
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256}     // Layer I
+    };
+    private static final int[][] FRECUENCIAS_MPEG = {
+            {11025, 12000, 8000},   // MPEG 2.5
+            {},
+            {22050, 24000, 16000},  // MPEG 2
+            {44100, 48000, 32000}   // MPEG 1
+    };
+    private static final int[] FRECUENCIAS_AAC = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+
+    private LectorDuracionAudio() {}
+
+    /**
+     * Devuelve la duración en milisegundos o -1 si no se pudo determinar
+     */
+    public static long leerDuracionMs(Path archivo) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return leerDuracionMs(canal);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Igual que {@link #leerDuracionMs(Path)} sobre un canal ya abierto (no lo cierra),
+     * pero un error al leer se lanza en lugar de devolver -1
+     */
+    public static long leerDuracionMs(FileChannel canal) throws IOException {
+        try {
+            long tamano = canal.size();
+            if (tamano < 16) {
+                return -1;
+            }
+
+            ByteBuffer inicio = leer(canal, 0, (int) Math.min(TAMANO_BUSQUEDA, tamano));
+
+            if (coincide(inicio, 0, "RIFF") && coincide(inicio, 8, "WAVE")) {
+                return duracionWav(canal, tamano);
+            }
+            if (coincide(inicio, 0, "OggS")) {
+                return duracionOgg(canal, inicio, tamano);
+            }
+
+            int inicioAudio = saltarId3v2(inicio);
+            if (inicioAudio >= tamano) {
+                return -1;
+            }
+            if (inicioAudio + 10 > inicio.limit()) {
+                // Etiqueta ID3v2 más grande que el primer bloque (carátulas): leer a partir del audio
+                ByteBuffer audio = leer(canal, inicioAudio, (int) Math.min(TAMANO_BUSQUEDA, tamano - inicioAudio));
+                return duracionMpegOAac(canal, audio, 0, tamano, inicioAudio);
+            }
+            return duracionMpegOAac(canal, inicio, inicioAudio, tamano, 0);
+
+        } catch (RuntimeException e) {
+            return -1; // cabeceras dañadas
+        }
+    }
+
+    private static long duracionMpegOAac(FileChannel canal, ByteBuffer buffer, int desde,
+                                         long tamano, long desplazamientoBuffer) throws IOException {
+        for (int i = desde; i + 7 < buffer.limit(); i++) {
+            if ((buffer.get(i) & 0xFF) != 0xFF) {
+                continue;
+            }
+            int b1 = buffer.get(i + 1) & 0xFF;
+
+            // ADTS: sincronía de 12 bits y capa 00
+            if ((b1 & 0xF6) == 0xF0) {
+                long duracion = duracionAdts(canal, desplazamientoBuffer + i, tamano);
+                if (duracion > 0) {
+                    return duracion;
+                }
+                continue;
+            }
+
+            if ((b1 & 0xE0) == 0xE0) {
+                long duracion = duracionMp3(canal, buffer, i, desplazamientoBuffer, tamano);
+                if (duracion > 0) {
+                    return duracion;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------- MP3
+
+    private static long duracionMp3(FileChannel canal, ByteBuffer buffer, int posicion,
+                                    long desplazamientoBuffer, long tamano) throws IOException {
+        int cabecera = buffer.order(ByteOrder.BIG_ENDIAN).getInt(posicion);
+        int version = (cabecera >>> 19) & 0x3;
+        int capa = (cabecera >>> 17) & 0x3;
+        int indiceBitrate = (cabecera >>> 12) & 0xF;
+        int indiceFrecuencia = (cabecera >>> 10) & 0x3;
+        int relleno = (cabecera >>> 9) & 0x1;
+        int modoCanal = (cabecera >>> 6) & 0x3;
+
+        if (version == 1 || capa == 0 || indiceBitrate == 0 || indiceBitrate == 15 || indiceFrecuencia == 3) {
+            return -1;
+        }
+
+        boolean mpeg1 = version == 3;
+        int bitrate = (mpeg1 ? BITRATES_MPEG1 : BITRATES_MPEG2)[capa][indiceBitrate] * 1000;
+        int frecuencia = FRECUENCIAS_MPEG[version][indiceFrecuencia];
+
+        int muestrasPorTrama;
+        int longitudTrama;
+        if (capa == 3) { // Layer I
+            muestrasPorTrama = 384;
+            longitudTrama = (12 * bitrate / frecuencia + relleno) * 4;
+        } else if (capa == 2 || mpeg1) { // Layer II o Layer III MPEG1
+            muestrasPorTrama = 1152;
+            longitudTrama = 144 * bitrate / frecuencia + relleno;
+        } else { // Layer III MPEG2/2.5
+            muestrasPorTrama = 576;
+            longitudTrama = 72 * bitrate / frecuencia + relleno;
+        }
+
+        // Comprobar que la siguiente trama también empieza con sincronía (evita falsos positivos)
+        int siguiente = posicion + longitudTrama;
+        if (siguiente + 1 < buffer.limit()) {
+            if ((buffer.get(siguiente) & 0xFF) != 0xFF || (buffer.get(siguiente + 1) & 0xE0) != 0xE0) {
+                return -1;
+            }
+        }
+
+        // Cabecera Xing/Info justo después de la información lateral
+        boolean mono = modoCanal == 3;
+        int lateral = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int posicionXing = posicion + 4 + lateral;
+        if (posicionXing + 12 <= buffer.limit()
+                && (coincide(buffer, posicionXing, "Xing") || coincide(buffer, posicionXing, "Info"))) {
+            int banderas = buffer.getInt(posicionXing + 4);
+            if ((banderas & 0x1) != 0) {
+                long tramas = buffer.getInt(posicionXing + 8) & 0xFFFFFFFFL;
+                if (tramas > 0) {
+                    return tramas * muestrasPorTrama * 1000L / frecuencia;
+                }
+            }
+        }
+
+        // Cabecera VBRI (Fraunhofer), siempre 32 bytes tras la cabecera
+        int posicionVbri = posicion + 4 + 32;
+        if (posicionVbri + 18 <= buffer.limit() && coincide(buffer, posicionVbri, "VBRI")) {
+            long tramas = buffer.getInt(posicionVbri + 14) & 0xFFFFFFFFL;
+            if (tramas > 0) {
+                return tramas * muestrasPorTrama * 1000L / frecuencia;
+            }
+        }
+
+        // Sin cabecera VBR: estimar como CBR descontando la etiqueta ID3v1 si existe
+        long bytesAudio = tamano - (desplazamientoBuffer + posicion);
+        if (tieneId3v1(canal, tamano)) {
+            bytesAudio -= 128;
+        }
+        return bytesAudio * 8L * 1000L / bitrate;
+    }
+
+    private static boolean tieneId3v1(FileChannel canal, long tamano) throws IOException {
+        if (tamano < 128) {
+            return false;
+        }
+        return coincide(leer(canal, tamano - 128, 3), 0, "TAG");
+    }
+
+    // ---------------------------------------------------------------- AAC (ADTS)
+
+    private static long duracionAdts(FileChannel canal, long inicio, long tamano) throws IOException {
+        int aLeer = (int) Math.min(TAMANO_MUESTRA_AAC, tamano - inicio);
+        ByteBuffer buffer = leer(canal, inicio, aLeer);
+
+        long tramas = 0;
+        int frecuencia = -1;
+        int posicion = 0;
+
+        while (posicion + 7 <= buffer.limit()) {
+            int b0 = buffer.get(posicion) & 0xFF;
+            int b1 = buffer.get(posicion + 1) & 0xFF;
+            if (b0 != 0xFF || (b1 & 0xF6) != 0xF0) {
+                break;
+            }
+
+            int b2 = buffer.get(posicion + 2) & 0xFF;
+            int b3 = buffer.get(posicion + 3) & 0xFF;
+            int b4 = buffer.get(posicion + 4) & 0xFF;
+            int b5 = buffer.get(posicion + 5) & 0xFF;
+            int b6 = buffer.get(posicion + 6) & 0xFF;
+
+            int indiceFrecuencia = (b2 >> 2) & 0xF;
+            if (indiceFrecuencia >= FRECUENCIAS_AAC.length) {
+                break;
+            }
+            frecuencia = FRECUENCIAS_AAC[indiceFrecuencia];
+
+            int longitud = ((b3 & 0x3) << 11) | (b4 << 3) | ((b5 & 0xE0) >> 5);
+            if (longitud < 7) {
+                break;
+            }
+
+            tramas += (b6 & 0x3) + 1;
+            posicion += longitud;
+        }
+
+        if (tramas == 0 || frecuencia <= 0) {
+            return -1;
+        }
+
+        // Si no se recorrió todo el archivo, extrapolar con la media de bytes por trama
+        long bytesAudio = tamano - inicio;
+        if (posicion < bytesAudio) {
+            tramas = tramas * bytesAudio / posicion;
+        }
+        return tramas * 1024L * 1000L / frecuencia;
+    }
+
+    // ---------------------------------------------------------------- WAV
+
+    private static long duracionWav(FileChannel canal, long tamano) throws IOException {
+        long posicion = 12;
+        long bytesPorSegundo = -1;
+        ByteBuffer cabecera = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (posicion + 8 <= tamano) {
+            cabecera.clear();
+            canal.read(cabecera, posicion);
+            String id = new String(cabecera.array(), 0, 4, StandardCharsets.US_ASCII);
+            long longitud = cabecera.getInt(4) & 0xFFFFFFFFL;
+
+            if (id.equals("fmt ")) {
+                ByteBuffer formato = leer(canal, posicion + 8, 16).order(ByteOrder.LITTLE_ENDIAN);
+                bytesPorSegundo = formato.getInt(8) & 0xFFFFFFFFL;
+            } else if (id.equals("data")) {
+                if (bytesPorSegundo <= 0) {
+                    return -1;
+                }
+                // Algunos programas dejan el tamaño sin cerrar: usar lo que realmente hay en disco
+                long datos = Math.min(longitud, tamano - posicion - 8);
+                return datos * 1000L / bytesPorSegundo;
+            }
+
+            posicion += 8 + longitud + (longitud & 1);
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------- OGG
+
+    private static long duracionOgg(FileChannel canal, ByteBuffer inicio, long tamano) throws IOException {
+        if (inicio.limit() < 28) {
+            return -1;
+        }
+        int segmentos = inicio.get(26) & 0xFF;
+        int paquete = 27 + segmentos;
+        if (paquete + 19 > inicio.limit()) {
+            return -1;
+        }
+
+        long frecuencia;
+        long preskip = 0;
+        inicio.order(ByteOrder.LITTLE_ENDIAN);
+        if ((inicio.get(paquete) & 0xFF) == 0x01 && coincide(inicio, paquete + 1, "vorbis")) {
+            frecuencia = inicio.getInt(paquete + 12) & 0xFFFFFFFFL;
+        } else if (coincide(inicio, paquete, "OpusHead")) {
+            frecuencia = 48000;
+            preskip = inicio.getShort(paquete + 10) & 0xFFFF;
+        } else {
+            return -1;
+        }
+        if (frecuencia <= 0) {
+            return -1;
+        }
+
+        // Buscar hacia atrás la última página "OggS" para leer su posición de gránulo
+        int aLeer = (int) Math.min(TAMANO_BUSQUEDA, tamano);
+        ByteBuffer fin = leer(canal, tamano - aLeer, aLeer).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = fin.limit() - 14; i >= 0; i--) {
+            if (coincide(fin, i, "OggS")) {
+                long granulo = fin.getLong(i + 6);
+                if (granulo > 0) {
+                    return Math.max(0, granulo - preskip) * 1000L / frecuencia;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------- Auxiliares
+
+    /**
+     * Devuelve la posición donde empieza el audio saltando la etiqueta ID3v2 si existe
+     */
+    static int saltarId3v2(ByteBuffer buffer) {
+        if (buffer.limit() < 10 || !coincide(buffer, 0, "ID3")) {
+            return 0;
+        }
+        int tamano = ((buffer.get(6) & 0x7F) << 21) | ((buffer.get(7) & 0x7F) << 14)
+                | ((buffer.get(8) & 0x7F) << 7) | (buffer.get(9) & 0x7F);
+        boolean pie = (buffer.get(5) & 0x10) != 0;
+        return 10 + tamano + (pie ? 10 : 0);
+    }
+
+    private static ByteBuffer leer(FileChannel canal, long posicion, int cantidad) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(cantidad);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean coincide(ByteBuffer buffer, int posicion, String texto) {
+        if (posicion < 0 || posicion + texto.length() > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (buffer.get(posicion + i) != (byte) texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,331 @@
+package com.radio.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector de etiquetas ID3v2 (2.2, 2.3 y 2.4) e ID3v1.
+ * Solo lee la región de la etiqueta ID3v2 y, si hace falta, los últimos 128 bytes
+ * del archivo; el audio nunca se lee. No se proyecta el archivo en memoria: en Windows
+ * una proyección lo deja bloqueado (sin poder renombrarlo ni borrarlo) hasta que la libera el GC.
+ * Extrae artista (TPE1), título (TIT2) y género (TCON).
+ */
+public class LectorEtiquetasId3 {
+
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    // Géneros estándar de ID3v1 (referenciados en TCON como "(n)" o "n")
+    private static final String[] GENEROS_ID3V1 = {
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+            "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+            "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop",
+            "Vocal", "Jazz+Funk", "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game",
+            "Sound Clip", "Gospel", "Noise", "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative",
+            "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial",
+            "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta",
+            "Top 40", "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave",
+            "Psychedelic", "Rave", "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz",
+            "Polka", "Retro", "Musical", "Rock & Roll", "Hard Rock"
+    };
+
+    /**
+     * Etiquetas encontradas; cualquiera de los campos puede ser null
+     */
+    public static class Etiquetas {
+        public String artista;
+        public String titulo;
+        public String genero;
+
+        boolean estaCompleta() {
+            return artista != null && titulo != null && genero != null;
+        }
+    }
+
+    private LectorEtiquetasId3() {}
+
+    /**
+     * Lee las etiquetas de un canal abierto (no lo cierra). Nunca devuelve null.
+     * Una etiqueta dañada da lo que se haya podido leer; un error al leer el archivo se lanza.
+     */
+    public static Etiquetas leer(FileChannel canal) throws IOException {
+        Etiquetas etiquetas = new Etiquetas();
+        try {
+            long tamano = canal.size();
+            leerId3v2(canal, tamano, etiquetas);
+            if (!etiquetas.estaCompleta()) {
+                leerId3v1(canal, tamano, etiquetas);
+            }
+        } catch (RuntimeException e) {
+            // Etiqueta dañada: devolver lo que se haya podido leer
+        }
+        return etiquetas;
+    }
+
+    // ---------------------------------------------------------------- ID3v2
+
+    private static void leerId3v2(FileChannel canal, long tamanoArchivo, Etiquetas etiquetas) throws IOException {
+        if (tamanoArchivo < 10) {
+            return;
+        }
+
+        ByteBuffer cabecera = ByteBuffer.allocate(10);
+        canal.read(cabecera, 0);
+        if (cabecera.get(0) != 'I' || cabecera.get(1) != 'D' || cabecera.get(2) != '3') {
+            return;
+        }
+
+        int version = cabecera.get(3) & 0xFF;
+        int banderas = cabecera.get(5) & 0xFF;
+        int tamanoEtiqueta = enteroSincronizado(cabecera, 6);
+        if (version < 2 || version > 4 || tamanoEtiqueta <= 0) {
+            return;
+        }
+
+        int disponible = (int) Math.min(tamanoEtiqueta, tamanoArchivo - 10);
+        ByteBuffer region = leerRegion(canal, 10, disponible);
+
+        ByteBuffer cuerpo = region;
+        // En 2.2 y 2.3 la desincronización se aplica a toda la etiqueta
+        if ((banderas & 0x80) != 0 && version < 4) {
+            cuerpo = quitarDesincronizacion(region, 0, region.limit());
+        }
+
+        int posicion = 0;
+        if ((banderas & 0x40) != 0 && version >= 3) {
+            // Cabecera extendida: en 2.3 el tamaño no se incluye a sí mismo, en 2.4 sí (y es sincronizado)
+            posicion = version == 3 ? cuerpo.getInt(0) + 4 : enteroSincronizado(cuerpo, 0);
+        }
+
+        int tamanoId = version == 2 ? 3 : 4;
+        int tamanoCabeceraTrama = version == 2 ? 6 : 10;
+
+        while (posicion + tamanoCabeceraTrama <= cuerpo.limit() && !etiquetas.estaCompleta()) {
+            if (cuerpo.get(posicion) == 0) {
+                break; // Relleno
+            }
+
+            String id = ascii(cuerpo, posicion, tamanoId);
+            int tamanoTrama;
+            int banderasFormato = 0;
+            if (version == 2) {
+                tamanoTrama = ((cuerpo.get(posicion + 3) & 0xFF) << 16)
+                        | ((cuerpo.get(posicion + 4) & 0xFF) << 8) | (cuerpo.get(posicion + 5) & 0xFF);
+            } else if (version == 3) {
+                tamanoTrama = cuerpo.getInt(posicion + 4);
+            } else {
+                tamanoTrama = enteroSincronizado(cuerpo, posicion + 4);
+                banderasFormato = cuerpo.get(posicion + 9) & 0xFF;
+            }
+
+            int inicioDatos = posicion + tamanoCabeceraTrama;
+            if (tamanoTrama <= 0 || inicioDatos + tamanoTrama > cuerpo.limit()) {
+                break;
+            }
+
+            String campo = campoDeTrama(id);
+            if (campo != null) {
+                ByteBuffer datos = cuerpo;
+                int desde = inicioDatos;
+                int longitud = tamanoTrama;
+
+                // 2.4: desincronización por trama y longitud de datos antepuesta
+                if ((banderasFormato & 0x01) != 0) {
+                    desde += 4;
+                    longitud -= 4;
+                }
+                if ((banderasFormato & 0x02) != 0) {
+                    datos = quitarDesincronizacion(cuerpo, desde, longitud);
+                    desde = 0;
+                    longitud = datos.limit();
+                }
+
+                // Tramas comprimidas o cifradas (2.3/2.4) no se interpretan
+                boolean ilegible = version == 3
+                        ? (cuerpo.get(posicion + 9) & 0xC0) != 0
+                        : (banderasFormato & 0x0C) != 0;
+                if (!ilegible && longitud > 0) {
+                    asignar(etiquetas, campo, decodificarTexto(datos, desde, longitud));
+                }
+            }
+
+            posicion = inicioDatos + tamanoTrama;
+        }
+    }
+
+    private static String campoDeTrama(String id) {
+        switch (id) {
+            case "TPE1":
+            case "TP1":
+                return "artista";
+            case "TIT2":
+            case "TT2":
+                return "titulo";
+            case "TCON":
+            case "TCO":
+                return "genero";
+            default:
+                return null;
+        }
+    }
+
+    private static void asignar(Etiquetas etiquetas, String campo, String valor) {
+        if (valor == null || valor.isEmpty()) {
+            return;
+        }
+        switch (campo) {
+            case "artista":
+                if (etiquetas.artista == null) etiquetas.artista = valor;
+                break;
+            case "titulo":
+                if (etiquetas.titulo == null) etiquetas.titulo = valor;
+                break;
+            case "genero":
+                if (etiquetas.genero == null) etiquetas.genero = resolverGenero(valor);
+                break;
+        }
+    }
+
+    /**
+     * Decodifica una trama de texto: primer byte = codificación, después el texto.
+     * Si hay varios valores separados por nulos se toma el primero.
+     */
+    private static String decodificarTexto(ByteBuffer datos, int desde, int longitud) {
+        int codificacion = datos.get(desde) & 0xFF;
+        byte[] bytes = new byte[longitud - 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = datos.get(desde + 1 + i);
+        }
+
+        String texto;
+        switch (codificacion) {
+            case 1: // UTF-16 con BOM
+                texto = new String(bytes, 0, longitudHastaNulo(bytes, 2), StandardCharsets.UTF_16);
+                break;
+            case 2: // UTF-16BE sin BOM
+                texto = new String(bytes, 0, longitudHastaNulo(bytes, 2), StandardCharsets.UTF_16BE);
+                break;
+            case 3: // UTF-8
+                texto = new String(bytes, 0, longitudHastaNulo(bytes, 1), StandardCharsets.UTF_8);
+                break;
+            default: // ISO-8859-1
+                texto = new String(bytes, 0, longitudHastaNulo(bytes, 1), StandardCharsets.ISO_8859_1);
+        }
+        return texto.trim();
+    }
+
+    private static int longitudHastaNulo(byte[] bytes, int anchoCaracter) {
+        for (int i = 0; i + anchoCaracter <= bytes.length; i += anchoCaracter) {
+            boolean nulo = true;
+            for (int j = 0; j < anchoCaracter; j++) {
+                if (bytes[i + j] != 0) {
+                    nulo = false;
+                    break;
+                }
+            }
+            if (nulo) {
+                return i;
+            }
+        }
+        return bytes.length - (bytes.length % anchoCaracter);
+    }
+
+    /**
+     * Convierte referencias numéricas como "(17)" o "17" al nombre del género
+     */
+    private static String resolverGenero(String valor) {
+        String numero = valor;
+        if (valor.startsWith("(")) {
+            int cierre = valor.indexOf(')');
+            if (cierre < 0) {
+                return valor;
+            }
+            String resto = valor.substring(cierre + 1).trim();
+            if (!resto.isEmpty()) {
+                return resto; // "(17)Rock": el texto refinado tiene prioridad
+            }
+            numero = valor.substring(1, cierre);
+        }
+        try {
+            int indice = Integer.parseInt(numero);
+            return indice >= 0 && indice < GENEROS_ID3V1.length ? GENEROS_ID3V1[indice] : valor;
+        } catch (NumberFormatException e) {
+            return valor;
+        }
+    }
+
+    // ---------------------------------------------------------------- ID3v1
+
+    private static void leerId3v1(FileChannel canal, long tamanoArchivo, Etiquetas etiquetas) throws IOException {
+        if (tamanoArchivo < 128) {
+            return;
+        }
+
+        ByteBuffer cola = leerRegion(canal, tamanoArchivo - 128, 128);
+        if (cola.get(0) != 'T' || cola.get(1) != 'A' || cola.get(2) != 'G') {
+            return;
+        }
+
+        asignar(etiquetas, "titulo", textoFijo(cola, 3, 30));
+        asignar(etiquetas, "artista", textoFijo(cola, 33, 30));
+        int genero = cola.get(127) & 0xFF;
+        if (genero < GENEROS_ID3V1.length) {
+            asignar(etiquetas, "genero", GENEROS_ID3V1[genero]);
+        }
+    }
+
+    private static String textoFijo(ByteBuffer buffer, int desde, int longitud) {
+        byte[] bytes = new byte[longitud];
+        for (int i = 0; i < longitud; i++) {
+            bytes[i] = buffer.get(desde + i);
+        }
+        return new String(bytes, 0, longitudHastaNulo(bytes, 1), WINDOWS_1252).trim();
+    }
+
+    // ---------------------------------------------------------------- Auxiliares
+
+    private static ByteBuffer leerRegion(FileChannel canal, long posicion, int cantidad) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(cantidad);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicion + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int enteroSincronizado(ByteBuffer buffer, int posicion) {
+        return ((buffer.get(posicion) & 0x7F) << 21) | ((buffer.get(posicion + 1) & 0x7F) << 14)
+                | ((buffer.get(posicion + 2) & 0x7F) << 7) | (buffer.get(posicion + 3) & 0x7F);
+    }
+
+    /**
+     * Deshace la desincronización: cada 0xFF 0x00 vuelve a ser 0xFF
+     */
+    private static ByteBuffer quitarDesincronizacion(ByteBuffer origen, int desde, int longitud) {
+        ByteBuffer destino = ByteBuffer.allocate(longitud);
+        boolean anteriorFF = false;
+        for (int i = desde; i < desde + longitud; i++) {
+            byte b = origen.get(i);
+            if (anteriorFF && b == 0) {
+                anteriorFF = false;
+                continue;
+            }
+            destino.put(b);
+            anteriorFF = (b & 0xFF) == 0xFF;
+        }
+        destino.flip();
+        return destino;
+    }
+
+    private static String ascii(ByteBuffer buffer, int desde, int longitud) {
+        char[] caracteres = new char[longitud];
+        for (int i = 0; i < longitud; i++) {
+            caracteres[i] = (char) (buffer.get(desde + i) & 0xFF);
+        }
+        return new String(caracteres);
+    }
+}
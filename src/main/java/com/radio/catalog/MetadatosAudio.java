@@ -0,0 +1,66 @@
+package com.radio.catalog;
+
+/**
+ * Información leída de un archivo de audio, válida mientras no cambien su tamaño ni su fecha
+ */
+public class MetadatosAudio {
+    private final long tamano;
+    private final long fechaModificacion;
+    private final long duracionMs;
+    private final String artista;
+    private final String titulo;
+    private final String generoEtiqueta;
+
+    public MetadatosAudio(long tamano, long fechaModificacion, long duracionMs,
+                          String artista, String titulo, String generoEtiqueta) {
+        this.tamano = tamano;
+        this.fechaModificacion = fechaModificacion;
+        this.duracionMs = duracionMs;
+        this.artista = artista;
+        this.titulo = titulo;
+        this.generoEtiqueta = generoEtiqueta;
+    }
+
+    public long getTamano() {
+        return tamano;
+    }
+
+    public long getFechaModificacion() {
+        return fechaModificacion;
+    }
+
+    /**
+     * Duración en milisegundos, o -1 si no se pudo determinar
+     */
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    /**
+     * Artista de la etiqueta ID3, o null si el archivo no la tiene
+     */
+    public String getArtista() {
+        return artista;
+    }
+
+    /**
+     * Título de la etiqueta ID3, o null si el archivo no la tiene
+     */
+    public String getTitulo() {
+        return titulo;
+    }
+
+    /**
+     * Género tal como aparece en la etiqueta ID3 (no tiene por qué coincidir con Genero)
+     */
+    public String getGeneroEtiqueta() {
+        return generoEtiqueta;
+    }
+
+    /**
+     * Indica si estos metadatos corresponden a la versión actual del archivo
+     */
+    public boolean correspondeA(EntradaCatalogo entrada) {
+        return tamano == entrada.getTamano() && fechaModificacion == entrada.getFechaModificacion();
+    }
+}
@@ -0,0 +1,132 @@
+package com.radio.catalog;
+
+import com.radio.utils.TablaSimbolos;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Número denso (0, 1, 2...) de cada ruta de audio, válido mientras dure el proceso.
+ * Los conjuntos de canciones usadas se guardan como bits indexados por este número.
+ *
+ * Las rutas se guardan en columnas: la carpeta como símbolo compartido por todos sus archivos
+ * y el nombre del archivo en UTF-8 dentro de un único arreglo de bytes. La búsqueda por ruta
+ * usa una tabla hash abierta de enteros, sin un objeto por archivo.
+ */
+public final class RegistroIds {
+
+    private static final TablaSimbolos carpetas = new TablaSimbolos();
+
+    private static int total = 0;
+    private static int[] carpetaDe = new int[1024];
+    private static int[] finNombre = new int[1024];     // el nombre de i ocupa [finNombre[i-1], finNombre[i])
+    private static byte[] nombres = new byte[32 * 1024];
+    private static int[] tabla = new int[2048];         // id + 1 en cada posición ocupada, 0 si está libre
+
+    private RegistroIds() {}
+
+    /**
+     * Número de la ruta, asignando el siguiente libre si es la primera vez que aparece
+     */
+    public static int obtener(String ruta) {
+        int corte = ruta.lastIndexOf(File.separatorChar);
+        String carpeta = corte >= 0 ? ruta.substring(0, corte) : null;
+        byte[] nombre = ruta.substring(corte + 1).getBytes(StandardCharsets.UTF_8);
+        int numeroCarpeta = carpetas.obtener(carpeta);
+        int hash = hash(numeroCarpeta, nombre);
+
+        synchronized (RegistroIds.class) {
+            int mascara = tabla.length - 1;
+            int posicion = hash & mascara;
+            while (tabla[posicion] != 0) {
+                int id = tabla[posicion] - 1;
+                if (carpetaDe[id] == numeroCarpeta && mismoNombre(id, nombre)) {
+                    return id;
+                }
+                posicion = (posicion + 1) & mascara;
+            }
+            return agregar(numeroCarpeta, nombre, posicion);
+        }
+    }
+
+    /**
+     * Ruta registrada con ese número; se arma en cada llamada
+     */
+    public static String ruta(int id) {
+        int carpeta;
+        String nombre;
+        synchronized (RegistroIds.class) {
+            carpeta = carpetaDe[id];
+            int inicio = inicioNombre(id);
+            nombre = new String(nombres, inicio, finNombre[id] - inicio, StandardCharsets.UTF_8);
+        }
+        String textoCarpeta = carpetas.texto(carpeta);
+        return textoCarpeta == null ? nombre : textoCarpeta + File.separator + nombre;
+    }
+
+    /**
+     * Cantidad de números asignados: todos los conocidos son menores que este valor
+     */
+    public static synchronized int getTotal() {
+        return total;
+    }
+
+    private static int agregar(int numeroCarpeta, byte[] nombre, int posicion) {
+        int id = total;
+        if (id == carpetaDe.length) {
+            carpetaDe = Arrays.copyOf(carpetaDe, id * 2);
+            finNombre = Arrays.copyOf(finNombre, id * 2);
+        }
+        int inicio = id == 0 ? 0 : finNombre[id - 1];
+        if (inicio + nombre.length > nombres.length) {
+            nombres = Arrays.copyOf(nombres, Math.max(nombres.length * 2, inicio + nombre.length));
+        }
+        System.arraycopy(nombre, 0, nombres, inicio, nombre.length);
+        carpetaDe[id] = numeroCarpeta;
+        finNombre[id] = inicio + nombre.length;
+        total++;
+        tabla[posicion] = id + 1;
+
+        // Ocupación máxima del 50 %: las secuencias de sondeo se mantienen cortas
+        if (total * 2 > tabla.length) {
+            redimensionar();
+        }
+        return id;
+    }
+
+    private static void redimensionar() {
+        int[] nueva = new int[tabla.length * 2];
+        int mascara = nueva.length - 1;
+        for (int id = 0; id < total; id++) {
+            int inicio = inicioNombre(id);
+            int posicion = hash(carpetaDe[id], nombres, inicio, finNombre[id]) & mascara;
+            while (nueva[posicion] != 0) {
+                posicion = (posicion + 1) & mascara;
+            }
+            nueva[posicion] = id + 1;
+        }
+        tabla = nueva;
+    }
+
+    private static int inicioNombre(int id) {
+        return id == 0 ? 0 : finNombre[id - 1];
+    }
+
+    private static boolean mismoNombre(int id, byte[] nombre) {
+        int inicio = inicioNombre(id);
+        return Arrays.equals(nombres, inicio, finNombre[id], nombre, 0, nombre.length);
+    }
+
+    private static int hash(int carpeta, byte[] nombre) {
+        return hash(carpeta, nombre, 0, nombre.length);
+    }
+
+    private static int hash(int carpeta, byte[] bytes, int desde, int hasta) {
+        int h = carpeta * 0x9E3779B1;
+        for (int i = desde; i < hasta; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
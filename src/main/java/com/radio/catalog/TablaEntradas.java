@@ -0,0 +1,56 @@
+package com.radio.catalog;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Archivos de una carpeta del catálogo guardados en columnas: número de ruta, tamaño y fecha
+ * en arreglos primitivos. Cada {@link EntradaCatalogo} se crea al pedirla y no se conserva,
+ * así una carpeta de cien mil archivos ocupa tres arreglos y no cien mil objetos con sus cadenas.
+ */
+public class TablaEntradas extends AbstractList<EntradaCatalogo> implements RandomAccess {
+
+    private final String rutaRaiz;
+    private final int[] ids;
+    private final long[] tamanos;
+    private final long[] fechas;
+
+    public TablaEntradas(String rutaRaiz, List<EntradaCatalogo> entradas) {
+        this.rutaRaiz = rutaRaiz;
+        this.ids = new int[entradas.size()];
+        this.tamanos = new long[ids.length];
+        this.fechas = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            EntradaCatalogo entrada = entradas.get(i);
+            ids[i] = entrada.getId();
+            tamanos[i] = entrada.getTamano();
+            fechas[i] = entrada.getFechaModificacion();
+        }
+    }
+
+    @Override
+    public EntradaCatalogo get(int indice) {
+        return new EntradaCatalogo(rutaRaiz, ids[indice], tamanos[indice], fechas[indice]);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Número de ruta de la fila, sin crear la entrada
+     */
+    public int getId(int indice) {
+        return ids[indice];
+    }
+
+    public long getTamano(int indice) {
+        return tamanos[indice];
+    }
+
+    public long getFechaModificacion(int indice) {
+        return fechas[indice];
+    }
+}
@@ -0,0 +1,281 @@
+package com.radio.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Mantiene el catálogo al día mientras la aplicación está abierta.
+ * Vigila las carpetas configuradas con un WatchService y aplica altas, bajas y
+ * renombrados de forma incremental; si el sistema pierde eventos (OVERFLOW)
+ * se vuelve a escanear solo la carpeta afectada.
+ */
+public class VigilanteCatalogo {
+
+    /**
+     * Recibe el nuevo total de archivos de una carpeta vigilada cada vez que cambia.
+     * Se invoca desde el hilo del vigilante o desde el que llamó a {@link #vigilar}.
+     */
+    public interface OyenteCambios {
+        void carpetaActualizada(String rutaCarpeta, int totalArchivos);
+    }
+
+    // Carpeta registrada y carpeta raíz del catálogo a la que pertenece
+    private static class Registro {
+        final String raiz;
+        final Path directorio;
+
+        Registro(String raiz, Path directorio) {
+            this.raiz = raiz;
+            this.directorio = directorio;
+        }
+    }
+
+    private final CatalogoMusical catalogo;
+    private final Map<WatchKey, Registro> registros = new ConcurrentHashMap<>();
+    private final Map<String, Integer> raicesVigiladas = new ConcurrentHashMap<>(); // con la profundidad vigilada
+    private final List<OyenteCambios> oyentes = new CopyOnWriteArrayList<>();
+    private WatchService servicio;
+    private Thread hilo;
+
+    public VigilanteCatalogo(CatalogoMusical catalogo) {
+        this.catalogo = catalogo;
+    }
+
+    public void agregarOyente(OyenteCambios oyente) {
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Empieza a vigilar una carpeta (y las subcarpetas que el catálogo recorrió en ella).
+     * Si la carpeta aún no estaba catalogada se escanea primero. Si ya se vigilaba con menos
+     * profundidad se escanea y se vigila también lo que faltaba.
+     * En cualquier caso los oyentes reciben enseguida su total de archivos.
+     *
+     * @throws UncheckedIOException si no se pudo leer o vigilar la carpeta
+     */
+    public synchronized void vigilar(String rutaCarpeta, int profundidad) {
+        if (rutaCarpeta == null || rutaCarpeta.trim().isEmpty()) {
+            return;
+        }
+
+        String raiz = new File(rutaCarpeta.trim()).getAbsolutePath();
+        Integer vigilada = raicesVigiladas.get(raiz);
+        int profundidadTotal = vigilada != null ? Math.max(vigilada, profundidad) : profundidad;
+
+        try {
+            iniciarSiHaceFalta();
+            int total = catalogo.obtenerEntradas(raiz, profundidadTotal).size();
+            if (vigilada == null || vigilada < profundidad) {
+                registrarArbol(raiz);
+                raicesVigiladas.put(raiz, profundidadTotal);
+            }
+            notificar(raiz, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo vigilar la carpeta " + raiz, e);
+        }
+    }
+
+    /**
+     * Detiene el vigilante y guarda lo aprendido en el catálogo
+     */
+    public synchronized void cerrar() {
+        if (servicio != null) {
+            try {
+                servicio.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar el vigilante de carpetas: " + e.getMessage());
+            }
+            servicio = null;
+        }
+        registros.clear();
+        raicesVigiladas.clear();
+        catalogo.guardar();
+    }
+
+    private void iniciarSiHaceFalta() throws IOException {
+        if (servicio != null) {
+            return;
+        }
+
+        servicio = FileSystems.getDefault().newWatchService();
+        WatchService actual = servicio;
+        hilo = new Thread(() -> procesarEventos(actual), "vigilante-catalogo");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private void registrarArbol(String raiz) throws IOException {
+        registrarDirectorio(raiz, new File(raiz).toPath());
+
+        CarpetaCatalogo carpeta = catalogo.obtenerCarpetaConocida(raiz);
+        if (carpeta != null) {
+            for (String subcarpeta : carpeta.getSubcarpetas().keySet()) {
+                registrarDirectorio(raiz, new File(subcarpeta).toPath());
+            }
+        }
+    }
+
+    private void registrarDirectorio(String raiz, Path directorio) throws IOException {
+        WatchKey clave = directorio.register(servicio, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        registros.put(clave, new Registro(raiz, directorio));
+    }
+
+    private void procesarEventos(WatchService vigilado) {
+        try {
+            while (true) {
+                WatchKey clave = vigilado.take();
+                Map<String, Cambios> porRaiz = new LinkedHashMap<>();
+                Set<String> desbordadas = new HashSet<>();
+
+                // Agrupar todo lo pendiente para aplicar un solo cambio por carpeta
+                do {
+                    acumular(clave, porRaiz, desbordadas);
+                    clave = vigilado.poll();
+                } while (clave != null);
+
+                for (String raiz : desbordadas) {
+                    porRaiz.remove(raiz);
+                    try {
+                        int total = catalogo.reescanear(raiz).size();
+                        volverARegistrar(raiz);
+                        notificar(raiz, total);
+                    } catch (UncheckedIOException e) {
+                        System.err.println(e.getMessage() + ": " + e.getCause().getMessage());
+                    }
+                }
+
+                for (Map.Entry<String, Cambios> cambio : porRaiz.entrySet()) {
+                    try {
+                        aplicar(cambio.getKey(), cambio.getValue());
+                    } catch (UncheckedIOException e) {
+                        System.err.println(e.getMessage() + ": " + e.getCause().getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Vigilante cerrado
+        }
+    }
+
+    private void acumular(WatchKey clave, Map<String, Cambios> porRaiz, Set<String> desbordadas) {
+        Registro registro = registros.get(clave);
+        if (registro == null) {
+            clave.pollEvents();
+            clave.reset();
+            return;
+        }
+
+        for (WatchEvent<?> evento : clave.pollEvents()) {
+            if (evento.kind() == OVERFLOW) {
+                desbordadas.add(registro.raiz);
+                continue;
+            }
+
+            Path afectado = registro.directorio.resolve((Path) evento.context());
+            Cambios cambios = porRaiz.computeIfAbsent(registro.raiz, r -> new Cambios());
+
+            if (evento.kind() == ENTRY_DELETE) {
+                cambios.actualizados.remove(afectado);
+                cambios.eliminados.add(afectado);
+                if (esSubcarpetaConocida(registro.raiz, afectado)) {
+                    cambios.cambioEstructura = true;
+                }
+            } else {
+                // Alta, modificación o segunda mitad de un renombrado
+                cambios.eliminados.remove(afectado);
+                cambios.actualizados.add(afectado);
+                if (evento.kind() == ENTRY_CREATE && afectado.toFile().isDirectory()) {
+                    cambios.cambioEstructura = true;
+                }
+            }
+        }
+
+        if (!clave.reset()) {
+            // El directorio ya no existe
+            registros.remove(clave);
+            desbordadas.add(registro.raiz);
+        }
+    }
+
+    private boolean esSubcarpetaConocida(String raiz, Path directorio) {
+        CarpetaCatalogo carpeta = catalogo.obtenerCarpetaConocida(raiz);
+        return carpeta != null && carpeta.getSubcarpetas().containsKey(directorio.toString());
+    }
+
+    private void aplicar(String raiz, Cambios cambios) {
+        CarpetaCatalogo conocida = catalogo.obtenerCarpetaConocida(raiz);
+        boolean recorreSubcarpetas = conocida != null && conocida.getProfundidad() > 0;
+
+        int total;
+        if (cambios.cambioEstructura && recorreSubcarpetas) {
+            // Una subcarpeta nueva o borrada puede traer muchos archivos: escanear solo esta raíz
+            total = catalogo.reescanear(raiz).size();
+            volverARegistrar(raiz);
+        } else {
+            total = catalogo.aplicarCambios(raiz, cambios.actualizados, cambios.eliminados);
+            if (total < 0) {
+                total = catalogo.reescanear(raiz).size();
+            }
+        }
+        notificar(raiz, total);
+    }
+
+    private synchronized void volverARegistrar(String raiz) {
+        if (servicio == null) {
+            return;
+        }
+
+        List<WatchKey> anteriores = new ArrayList<>();
+        for (Map.Entry<WatchKey, Registro> registro : registros.entrySet()) {
+            if (registro.getValue().raiz.equals(raiz)) {
+                anteriores.add(registro.getKey());
+            }
+        }
+        for (WatchKey clave : anteriores) {
+            clave.cancel();
+            registros.remove(clave);
+        }
+
+        try {
+            if (new File(raiz).isDirectory()) {
+                registrarArbol(raiz);
+            } else {
+                raicesVigiladas.remove(raiz);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo volver a vigilar " + raiz + ": " + e.getMessage());
+        }
+    }
+
+    private void notificar(String raiz, int total) {
+        for (OyenteCambios oyente : oyentes) {
+            oyente.carpetaActualizada(raiz, total);
+        }
+    }
+
+    private static class Cambios {
+        final Set<Path> actualizados = new LinkedHashSet<>();
+        final Set<Path> eliminados = new LinkedHashSet<>();
+        boolean cambioEstructura = false;
+    }
+}
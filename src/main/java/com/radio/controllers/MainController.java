@@ -1,16 +1,25 @@
 package com.radio.controllers;
 
+import com.radio.catalog.CarpetaCatalogo;
+import com.radio.catalog.CatalogoMusical;
+import com.radio.catalog.EntradaCatalogo;
+import com.radio.catalog.VigilanteCatalogo;
 import com.radio.models.*;
 import com.radio.services.ArchivoService;
+import com.radio.services.ConfiguracionLista;
 import com.radio.services.GeneradorListaService;
+import com.radio.utils.TrazaGeneracion;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.ComboBoxTableCell;
 import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.scene.layout.GridPane;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
@@ -18,6 +27,7 @@ import javafx.util.StringConverter;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -25,10 +35,15 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 public class MainController implements Initializable {
 
@@ -59,16 +74,31 @@ public class MainController implements Initializable {
     @FXML private Button btnCargarConfiguracion;
     @FXML private Button btnGuardarConfiguracion;
     @FXML private Button btnGenerarLista;
+    @FXML private Button btnGenerarRango;
     @FXML private Button btnVistaPrevia;
+    @FXML private Button btnRegenerarBloque;
     @FXML private Button btnExportarM3U;
+    @FXML private Button btnAbrirM3U;
     @FXML private Button btnLimpiar;
 
     // Estado
     @FXML private Label lblEstado;
+    @FXML private ProgressBar barraProgreso;
+    @FXML private Button btnCancelar;
 
     // Servicios
     private GeneradorListaService generadorService;
     private ListaReproduccion listaGenerada;
+    private VigilanteCatalogo vigilante;
+    private Task<?> tareaActual;
+    private ConfiguracionLista opcionesCargadas = new ConfiguracionLista(); // descanso y separación del último archivo cargado
+
+    private static final int LINEAS_TRAZA_VISIBLES = 500;
+    private static final Pattern ARCHIVO_NUMERADO = Pattern.compile("^\\d{2,3}.*");
+
+    // Tipo con el que se eligió cada carpeta y las que esperan su primer recuento
+    private final Map<String, String> tiposCarpeta = new ConcurrentHashMap<>();
+    private final Set<String> carpetasPorVerificar = ConcurrentHashMap.newKeySet();
 
     // Datos de la tabla
     private ObservableList<ConfiguracionHora> datosHoras;
@@ -78,6 +108,16 @@ public class MainController implements Initializable {
         generadorService = new GeneradorListaService();
         datosHoras = FXCollections.observableArrayList();
 
+        // Mantener el catálogo al día mientras la aplicación está abierta
+        vigilante = new VigilanteCatalogo(CatalogoMusical.getInstancia());
+        // El recuento se hace en el hilo del vigilante con lo que ya tiene el catálogo
+        vigilante.agregarOyente((rutaCarpeta, totalArchivos) -> {
+            String tipo = tiposCarpeta.get(rutaCarpeta);
+            int total = esCarpetaNumerada(tipo) ? contarArchivosNumerados(rutaCarpeta) : totalArchivos;
+            boolean primera = carpetasPorVerificar.remove(rutaCarpeta);
+            Platform.runLater(() -> mostrarRecuento(rutaCarpeta, tipo, total, primera));
+        });
+
         configurarTabla();
         inicializarHorarios();
         actualizarEstado("Aplicación iniciada. Configure las carpetas y géneros.");
@@ -243,6 +283,7 @@ public class MainController implements Initializable {
         if (carpetaSeleccionada != null) {
             campo.setText(carpetaSeleccionada.getAbsolutePath());
             verificarArchivosEnCarpeta(carpetaSeleccionada, titulo);
+            vigilarCarpeta(carpetaSeleccionada.getAbsolutePath(), 0);
         }
     }
 
@@ -256,88 +297,95 @@ public class MainController implements Initializable {
             config.setRutaCarpeta(carpetaSeleccionada.getAbsolutePath());
             tablaHoras.refresh();
             verificarArchivosEnCarpeta(carpetaSeleccionada, config.getGenero().getNombre());
+            vigilarCarpeta(carpetaSeleccionada.getAbsolutePath(), CatalogoMusical.PROFUNDIDAD_MUSICA);
         }
     }
 
+    /**
+     * Registra una carpeta en el vigilante fuera del hilo de la interfaz
+     * (el primer registro puede requerir escanearla)
+     */
+    private void vigilarCarpeta(String rutaCarpeta, int profundidad) {
+        CompletableFuture.runAsync(() -> vigilante.vigilar(rutaCarpeta, profundidad))
+                .exceptionally(error -> {
+                    Throwable causa = error.getCause() != null ? error.getCause() : error;
+                    TrazaGeneracion.registrar(TrazaGeneracion.Nivel.ERROR, "No se pudo vigilar la carpeta {}: {}",
+                            rutaCarpeta, String.valueOf(causa.getMessage()));
+                    carpetasPorVerificar.remove(new File(rutaCarpeta).getAbsolutePath());
+                    Platform.runLater(() -> actualizarEstado("No se pudo leer la carpeta " + rutaCarpeta + "."));
+                    return null;
+                });
+    }
+
+    /**
+     * Vigila una carpeta recién elegida; su total de archivos llega con la primera notificación del vigilante
+     */
     private void verificarArchivosEnCarpeta(File carpeta, String tipo) {
-        // Para carpetas especiales (promos, identificaciones, etc.), usar verificación específica
-        if (tipo.contains("Promo") || tipo.contains("Identificacion") || tipo.contains("Felicitacion")) {
-            List<String> archivosEspeciales = obtenerArchivosEspecialesNumerados(carpeta.getAbsolutePath(), tipo);
-            if (archivosEspeciales.isEmpty()) {
-                mostrarAlerta("Advertencia",
-                        "No se encontraron archivos numerados en la carpeta de " + tipo + ".\n" +
-                                "Los archivos deben empezar con números (01, 02, 03, etc.)");
-            } else {
-                actualizarEstado("Carpeta " + tipo + " configurada: " + archivosEspeciales.size() + " archivos numerados encontrados.");
-            }
-        } else {
-            // Para carpetas de música, usar el método original
-            List<String> archivos = ArchivoService.obtenerArchivosAudio(carpeta.getAbsolutePath());
-            if (archivos.isEmpty()) {
-                mostrarAlerta("Advertencia", "No se encontraron archivos de audio en la carpeta de " + tipo + ".");
-            } else {
-                actualizarEstado("Carpeta " + tipo + " configurada: " + archivos.size() + " archivos encontrados.");
-            }
-        }
+        String ruta = carpeta.getAbsolutePath();
+        tiposCarpeta.put(ruta, tipo);
+        carpetasPorVerificar.add(ruta);
+        actualizarEstado("Leyendo la carpeta de " + tipo + "...");
     }
 
-    private List<String> obtenerArchivosEspecialesNumerados(String rutaCarpeta, String tipo) {
-        List<String> archivos = new ArrayList<>();
-        File carpeta = new File(rutaCarpeta);
+    /**
+     * Promos, identificaciones y felicitaciones se reproducen en el orden de su número (01, 02...)
+     */
+    private static boolean esCarpetaNumerada(String tipo) {
+        return tipo != null && (tipo.contains("Promo") || tipo.contains("Identificacion") || tipo.contains("Felicitacion"));
+    }
 
-        if (!carpeta.exists() || !carpeta.isDirectory()) {
-            return archivos;
+    private static int contarArchivosNumerados(String rutaCarpeta) {
+        CarpetaCatalogo carpeta = CatalogoMusical.getInstancia().obtenerCarpetaConocida(rutaCarpeta);
+        if (carpeta == null) {
+            return 0;
         }
-
-        File[] listaArchivos = carpeta.listFiles((dir, nombre) -> {
-            // Debe ser archivo de audio
-            String extension = nombre.toLowerCase();
-            boolean esAudio = extension.endsWith(".mp3") || extension.endsWith(".wav") ||
-                    extension.endsWith(".wma") || extension.endsWith(".ogg") ||
-                    extension.endsWith(".aac");
-
-            // Debe empezar con número (01, 02, 03, etc.)
-            boolean tieneNumero = nombre.matches("^\\d{2,3}.*");
-
-            return esAudio && tieneNumero;
-        });
-
-        if (listaArchivos != null) {
-            // Ordenar por número
-            java.util.Arrays.sort(listaArchivos, (a, b) -> {
-                String numA = extraerNumero(a.getName());
-                String numB = extraerNumero(b.getName());
-                try {
-                    return Integer.compare(Integer.parseInt(numA), Integer.parseInt(numB));
-                } catch (NumberFormatException e) {
-                    return a.getName().compareTo(b.getName());
-                }
-            });
-
-            for (File archivo : listaArchivos) {
-                archivos.add(archivo.getAbsolutePath());
-            }
-
-            // Debugging: mostrar los archivos encontrados
-            System.out.println("Archivos numerados encontrados en " + rutaCarpeta + " (" + tipo + "):");
-            for (int i = 0; i < listaArchivos.length; i++) {
-                String numero = extraerNumero(listaArchivos[i].getName());
-                System.out.println("  [" + i + "] " + listaArchivos[i].getName() + " (número: " + numero + ")");
+        int total = 0;
+        for (EntradaCatalogo entrada : carpeta.getEntradas(0)) {
+            if (ARCHIVO_NUMERADO.matcher(entrada.getNombre()).matches()) {
+                total++;
             }
         }
-
-        return archivos;
+        return total;
     }
 
-    private String extraerNumero(String nombreArchivo) {
-        java.util.regex.Pattern patron = java.util.regex.Pattern.compile("^(\\d{2,3})");
-        java.util.regex.Matcher matcher = patron.matcher(nombreArchivo);
+    private void mostrarRecuento(String rutaCarpeta, String tipo, int total, boolean primera) {
+        boolean numerada = esCarpetaNumerada(tipo);
+        if (!primera) {
+            actualizarEstado("Carpeta actualizada: " + new File(rutaCarpeta).getName() +
+                    " (" + total + (numerada ? " archivos numerados)" : " archivos)"));
+        } else if (total == 0 && numerada) {
+            mostrarAlerta("Advertencia",
+                    "No se encontraron archivos numerados en la carpeta de " + tipo + ".\n" +
+                            "Los archivos deben empezar con números (01, 02, 03, etc.)");
+        } else if (total == 0) {
+            mostrarAlerta("Advertencia", "No se encontraron archivos de audio en la carpeta de " + tipo + ".");
+        } else {
+            actualizarEstado("Carpeta " + tipo + " configurada: " + total +
+                    (numerada ? " archivos numerados encontrados." : " archivos encontrados."));
+        }
+    }
 
-        if (matcher.find()) {
-            return matcher.group(1);
+    /**
+     * Vigila todas las carpetas de la configuración actual
+     */
+    private void vigilarCarpetasConfiguradas() {
+        vigilarCarpeta(txtElementosEspeciales.getText().trim(), 0);
+        vigilarCarpeta(txtIdentificaciones.getText().trim(), 0);
+        vigilarCarpeta(txtFelicitaciones.getText().trim(), 0);
+        vigilarCarpeta(txtPromosA.getText().trim(), 0);
+        vigilarCarpeta(txtPromosB.getText().trim(), 0);
+        for (ConfiguracionHora config : datosHoras) {
+            vigilarCarpeta(config.getRutaCarpeta().trim(), CatalogoMusical.PROFUNDIDAD_MUSICA);
         }
+    }
 
-        return "999"; // Valor por defecto
+    /**
+     * Libera el vigilante de carpetas al cerrar la aplicación
+     */
+    public void cerrar() {
+        if (vigilante != null) {
+            vigilante.cerrar();
+        }
     }
 
 //    private List<String> obtenerArchivosEspeciales(String rutaCarpeta) {
@@ -393,34 +441,108 @@ public class MainController implements Initializable {
             return;
         }
 
-        try {
-            actualizarEstado("Generando lista...");
-            btnGenerarLista.setDisable(true);
-
-            // Configurar rutas en el servicio
-            configurarRutasServicio();
+        // Configurar rutas en el servicio
+        configurarRutasServicio();
 
-            // Crear configuración de bloques (solo los que tienen carpeta)
-            List<GeneradorListaService.ConfiguracionBloque> configuracion = crearConfiguracionBloques();
-
-            // Generar la lista
-            listaGenerada = generadorService.generarListaCompleta(LocalDate.now(), configuracion);
+        // Crear configuración de bloques (solo los que tienen carpeta)
+        List<GeneradorListaService.ConfiguracionBloque> configuracion = crearConfiguracionBloques();
+        LocalDate fecha = LocalDate.now();
 
+        actualizarEstado("Generando lista...");
+        iniciarTarea(new TareaGeneracion<ListaReproduccion>() {
+            @Override
+            protected ListaReproduccion call() {
+                return generadorService.generarListaCompleta(fecha, configuracion, this);
+            }
+        }, lista -> {
+            listaGenerada = lista;
             btnExportarM3U.setDisable(false);
             btnVistaPrevia.setDisable(false);
+            btnRegenerarBloque.setDisable(false);
 
             // Contar horas programadas
             int horasProgramadas = configuracion.size();
 
             actualizarEstado(String.format("Lista generada exitosamente. %d horas programadas, %d canciones, %d elementos especiales.",
                     horasProgramadas, listaGenerada.getTotalCanciones(), listaGenerada.getTotalInserciones()));
+        }, "Error al generar la lista");
+    }
 
-        } catch (Exception e) {
-            mostrarAlerta("Error", "Error al generar la lista: " + e.getMessage());
-            actualizarEstado("Error en la generación.");
-        } finally {
-            btnGenerarLista.setDisable(false);
+    /**
+     * Genera un .m3u por día para un rango de fechas, fuera del hilo de la interfaz
+     */
+    @FXML
+    private void generarRango() {
+        if (!validarConfiguracion()) {
+            return;
+        }
+
+        Optional<LocalDate[]> rango = mostrarDialogoRango();
+        if (rango.isEmpty()) {
+            return;
+        }
+
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Carpeta destino de las listas");
+        File carpetaDestino = chooser.showDialog(getStage());
+        if (carpetaDestino == null) {
+            return;
         }
+
+        configurarRutasServicio();
+        List<GeneradorListaService.ConfiguracionBloque> configuracion = crearConfiguracionBloques();
+        LocalDate desde = rango.get()[0];
+        LocalDate hasta = rango.get()[1];
+
+        actualizarEstado("Generando listas del " + desde + " al " + hasta + "...");
+        iniciarTarea(new TareaGeneracion<List<ListaReproduccion>>() {
+            @Override
+            protected List<ListaReproduccion> call() {
+                return generadorService.generarRango(desde, hasta, configuracion, carpetaDestino.getAbsolutePath(), this);
+            }
+        }, listas -> {
+            listaGenerada = listas.get(listas.size() - 1);
+            btnExportarM3U.setDisable(false);
+            btnVistaPrevia.setDisable(false);
+            btnRegenerarBloque.setDisable(false);
+            actualizarEstado(String.format("%d listas generadas en %s (%s a %s).",
+                    listas.size(), carpetaDestino.getName(),
+                    GeneradorListaService.nombreArchivoDia(desde), GeneradorListaService.nombreArchivoDia(hasta)));
+        }, "Error al generar las listas");
+    }
+
+    /**
+     * Pide las fechas inicial y final del rango a generar
+     */
+    private Optional<LocalDate[]> mostrarDialogoRango() {
+        Dialog<LocalDate[]> dialogo = new Dialog<>();
+        dialogo.setTitle("Generar varios días");
+        dialogo.setHeaderText("Seleccione el rango de fechas (ambas incluidas)");
+
+        DatePicker desde = new DatePicker(LocalDate.now());
+        DatePicker hasta = new DatePicker(LocalDate.now().plusDays(6));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Desde:"), desde);
+        grid.addRow(1, new Label("Hasta:"), hasta);
+        dialogo.getDialogPane().setContent(grid);
+        dialogo.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        dialogo.setResultConverter(boton -> {
+            if (boton != ButtonType.OK || desde.getValue() == null || hasta.getValue() == null) {
+                return null;
+            }
+            return new LocalDate[]{desde.getValue(), hasta.getValue()};
+        });
+
+        Optional<LocalDate[]> resultado = dialogo.showAndWait();
+        if (resultado.isPresent() && resultado.get()[1].isBefore(resultado.get()[0])) {
+            mostrarAlerta("Error", "La fecha final no puede ser anterior a la inicial.");
+            return Optional.empty();
+        }
+        return resultado;
     }
 
     @FXML
@@ -457,6 +579,54 @@ public class MainController implements Initializable {
     }
 
 
+    /**
+     * Vuelve a generar las canciones de un bloque de la lista actual sin tocar los demás
+     */
+    @FXML
+    private void regenerarBloque() {
+        if (listaGenerada == null) {
+            mostrarAlerta("Error", "Debe generar una lista primero.");
+            return;
+        }
+
+        List<BloqueHora> bloques = listaGenerada.getBloques();
+        List<String> opciones = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < bloques.size(); i++) {
+            BloqueHora bloque = bloques.get(i);
+            if (bloque.getRutaCarpeta() != null && !bloque.getRutaCarpeta().isEmpty()) {
+                opciones.add(bloque.getHoraInicio() + " - " + bloque.getHoraFin() + " (" + bloque.getGenero() + ")");
+                indices.add(i);
+            }
+        }
+        if (opciones.isEmpty()) {
+            mostrarAlerta("Error", "Ningún bloque de la lista tiene carpeta de música.");
+            return;
+        }
+
+        ChoiceDialog<String> dialogo = new ChoiceDialog<>(opciones.get(0), opciones);
+        dialogo.setTitle("Regenerar bloque");
+        dialogo.setHeaderText("Seleccione el bloque a regenerar; el resto de la lista no cambia");
+        dialogo.setContentText("Bloque:");
+        Optional<String> elegido = dialogo.showAndWait();
+        if (elegido.isEmpty()) {
+            return;
+        }
+
+        int indiceBloque = indices.get(opciones.indexOf(elegido.get()));
+
+        configurarRutasServicio();
+        ListaReproduccion lista = listaGenerada;
+        actualizarEstado("Regenerando bloque " + elegido.get() + "...");
+        iniciarTarea(new TareaGeneracion<BloqueHora>() {
+            @Override
+            protected BloqueHora call() {
+                return generadorService.regenerarBloque(lista, indiceBloque, this);
+            }
+        }, bloque -> actualizarEstado(String.format("Bloque %s - %s regenerado. La lista tiene %d canciones; exporte de nuevo el .M3U para guardarla.",
+                bloque.getHoraInicio(), bloque.getHoraFin(), lista.getTotalCanciones())), "Error al regenerar el bloque");
+    }
+
     // Reemplazar el método exportarM3U() en MainController.java
     @FXML
     private void exportarM3U() {
@@ -474,19 +644,26 @@ public class MainController implements Initializable {
                 LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".m3u");
 
         File archivo = fileChooser.showSaveDialog(getStage());
-        if (archivo != null) {
-            // Mostrar diálogo de opciones de codificación
-            String codificacionElegida = mostrarDialogoCodificacion();
+        if (archivo == null) {
+            return;
+        }
 
-            boolean exito;
-            if ("AUTO".equals(codificacionElegida)) {
-                // Usar el método que prueba múltiples codificaciones
-                exito = ArchivoService.guardarListaM3uCompatible(listaGenerada, archivo.getAbsolutePath());
-            } else {
+        // Mostrar diálogo de opciones de codificación
+        String codificacionElegida = mostrarDialogoCodificacion();
+        ListaReproduccion lista = listaGenerada;
+
+        actualizarEstado("Exportando " + archivo.getName() + "...");
+        iniciarTarea(new Task<Boolean>() {
+            @Override
+            protected Boolean call() {
+                if ("AUTO".equals(codificacionElegida)) {
+                    // Usar el método que prueba múltiples codificaciones
+                    return ArchivoService.guardarListaM3uCompatible(lista, archivo.getAbsolutePath(), this::isCancelled);
+                }
                 // Usar codificación específica (requiere modificar el método original)
-                exito = ArchivoService.guardarListaM3u(listaGenerada, archivo.getAbsolutePath());
+                return ArchivoService.guardarListaM3u(lista, archivo.getAbsolutePath(), this::isCancelled);
             }
-
+        }, exito -> {
             if (exito) {
                 actualizarEstado("Lista exportada exitosamente: " + archivo.getName());
                 mostrarInformacion("Éxito",
@@ -496,8 +673,154 @@ public class MainController implements Initializable {
                                 "Si ZaraRadio no puede leer los caracteres especiales,\n" +
                                 "intente arrastrar los archivos directamente al programa.");
             } else {
+                actualizarEstado("Error al exportar.");
                 mostrarAlerta("Error", "No se pudo exportar la lista M3U.");
             }
+        }, "Error al exportar la lista");
+    }
+
+    /**
+     * Carga una o varias listas .m3u ya generadas para revisarlas o volver a exportarlas;
+     * la última queda como lista actual
+     */
+    @FXML
+    private void abrirM3U() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Abrir Listas M3U");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Archivos M3U", "*.m3u")
+        );
+
+        List<File> archivos = fileChooser.showOpenMultipleDialog(getStage());
+        if (archivos == null || archivos.isEmpty()) {
+            return;
+        }
+
+        List<String> rutas = new ArrayList<>();
+        for (File archivo : archivos) {
+            rutas.add(archivo.getAbsolutePath());
+        }
+
+        // Con la configuración de horas actual cada bloque recupera su horario, género y carpeta
+        List<GeneradorListaService.ConfiguracionBloque> configuracion = crearConfiguracionBloques();
+
+        actualizarEstado("Cargando " + rutas.size() + " listas...");
+        iniciarTarea(new Task<List<ListaReproduccion>>() {
+            @Override
+            protected List<ListaReproduccion> call() {
+                return ArchivoService.cargarListasM3u(rutas, configuracion);
+            }
+        }, listas -> {
+            ListaReproduccion ultima = null;
+            int cargadas = 0;
+            for (ListaReproduccion lista : listas) {
+                if (lista != null) {
+                    ultima = lista;
+                    cargadas++;
+                }
+            }
+            if (ultima == null) {
+                mostrarAlerta("Error", "No se pudo leer ninguna de las listas seleccionadas.");
+                return;
+            }
+
+            listaGenerada = ultima;
+            btnExportarM3U.setDisable(false);
+            btnVistaPrevia.setDisable(false);
+            btnRegenerarBloque.setDisable(false);
+            actualizarEstado(String.format("%d de %d listas cargadas. Actual: %s", cargadas, listas.size(), ultima));
+        }, "Error al abrir las listas");
+    }
+
+    /**
+     * Ejecuta una tarea larga en un hilo aparte. El avance se muestra en la barra y la etiqueta
+     * de estado, y el resultado se entrega en el hilo de JavaFX.
+     */
+    private <T> void iniciarTarea(Task<T> tarea, Consumer<T> alTerminar, String mensajeError) {
+        tareaActual = tarea;
+        establecerTareaEnCurso(true);
+
+        tarea.messageProperty().addListener((observable, anterior, mensaje) -> {
+            if (mensaje != null && !mensaje.isEmpty()) {
+                actualizarEstado(mensaje);
+            }
+        });
+        barraProgreso.progressProperty().bind(tarea.progressProperty());
+
+        tarea.setOnSucceeded(evento -> {
+            establecerTareaEnCurso(false);
+            alTerminar.accept(tarea.getValue());
+        });
+        tarea.setOnCancelled(evento -> {
+            establecerTareaEnCurso(false);
+            actualizarEstado("Operación cancelada.");
+        });
+        tarea.setOnFailed(evento -> {
+            establecerTareaEnCurso(false);
+            Throwable error = tarea.getException();
+            TrazaGeneracion.registrar(TrazaGeneracion.Nivel.ERROR, "{}: {}", mensajeError, error);
+            Path archivoTraza = TrazaGeneracion.volcarEnDirectorioDatos();
+            mostrarAlerta("Error", mensajeError + ": " + (error != null ? error.getMessage() : "desconocido") +
+                    (archivoTraza != null ? "\n\nTraza guardada en: " + archivoTraza : ""));
+            actualizarEstado("Error en la operación.");
+        });
+
+        Thread hilo = new Thread(tarea, "tarea-generacion");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private void establecerTareaEnCurso(boolean enCurso) {
+        if (!enCurso) {
+            barraProgreso.progressProperty().unbind();
+            tareaActual = null;
+        }
+        barraProgreso.setVisible(enCurso);
+        btnCancelar.setVisible(enCurso);
+        btnGenerarLista.setDisable(enCurso);
+        btnGenerarRango.setDisable(enCurso);
+        btnAbrirM3U.setDisable(enCurso);
+        btnExportarM3U.setDisable(enCurso || listaGenerada == null);
+        btnVistaPrevia.setDisable(enCurso || listaGenerada == null);
+        btnRegenerarBloque.setDisable(enCurso || listaGenerada == null);
+    }
+
+    /**
+     * Muestra los últimos eventos de la traza de generación
+     */
+    @FXML
+    private void mostrarTraza() {
+        List<String> lineas = TrazaGeneracion.ultimos(LINEAS_TRAZA_VISIBLES);
+        if (lineas.isEmpty()) {
+            mostrarInformacion("Traza", "Todavía no hay eventos registrados.");
+            return;
+        }
+        mostrarVentanaTexto("Traza de generación (últimos " + lineas.size() + " eventos)", String.join("\n", lineas));
+    }
+
+    @FXML
+    private void cancelarTarea() {
+        if (tareaActual != null) {
+            tareaActual.cancel();
+        }
+    }
+
+    /**
+     * Tarea de generación que hace de oyente del generador: pasa su avance a la interfaz
+     * y le transmite la cancelación
+     */
+    private abstract static class TareaGeneracion<T> extends Task<T> implements GeneradorListaService.OyenteProgreso {
+        @Override
+        public void progreso(String mensaje, int bloquesTerminados, int bloquesTotales) {
+            updateMessage(mensaje);
+            if (bloquesTotales > 0) {
+                updateProgress(bloquesTerminados, bloquesTotales);
+            }
+        }
+
+        @Override
+        public boolean isCancelado() {
+            return isCancelled();
         }
     }
 
@@ -618,6 +941,7 @@ public class MainController implements Initializable {
             listaGenerada = null;
             btnExportarM3U.setDisable(true);
             btnVistaPrevia.setDisable(true);
+            btnRegenerarBloque.setDisable(true);
 
             actualizarEstado("Configuración limpiada.");
         }
@@ -661,11 +985,7 @@ public class MainController implements Initializable {
 
     // Actualizar el método configurarRutasServicio:
     private void configurarRutasServicio() {
-        generadorService.setRutaElementosEspeciales(txtElementosEspeciales.getText().trim());
-        generadorService.setRutaIdentificaciones(txtIdentificaciones.getText().trim());
-        generadorService.setRutaFelicitaciones(txtFelicitaciones.getText().trim());
-        generadorService.setRutaPromosA(txtPromosA.getText().trim());
-        generadorService.setRutaPromosB(txtPromosB.getText().trim());
+        crearConfiguracionLista().aplicarA(generadorService);
     }
 
     private List<GeneradorListaService.ConfiguracionBloque> crearConfiguracionBloques() {
@@ -792,205 +1112,58 @@ public class MainController implements Initializable {
      * Carga la configuración desde un archivo de texto (MÉTODO ACTUALIZADO)
      */
     private boolean cargarConfiguracionDesdeArchivo(String rutaArchivo) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(rutaArchivo))) {
-            String linea;
-            datosHoras.clear();
-
-            while ((linea = reader.readLine()) != null) {
-                linea = linea.trim();
-
-                // Saltar comentarios y líneas vacías
-                if (linea.startsWith("#") || linea.isEmpty()) {
-                    continue;
-                }
-
-                // Buscar líneas de configuración de carpetas especiales
-                if (linea.startsWith("ElementosEspeciales=")) {
-                    txtElementosEspeciales.setText(linea.substring("ElementosEspeciales=".length()));
-                    continue;
-                }
-
-                if (linea.startsWith("Identificaciones=")) {
-                    txtIdentificaciones.setText(linea.substring("Identificaciones=".length()));
-                    continue;
-                }
-
-                if (linea.startsWith("Felicitaciones=")) {
-                    txtFelicitaciones.setText(linea.substring("Felicitaciones=".length()));
-                    continue;
-                }
-
-                if (linea.startsWith("PromosA=")) {
-                    txtPromosA.setText(linea.substring("PromosA=".length()));
-                    continue;
-                }
-
-                if (linea.startsWith("PromosB=")) {
-                    txtPromosB.setText(linea.substring("PromosB=".length()));
-                    continue;
-                }
-
-                // Mantener compatibilidad con archivos antiguos que usen "Promos="
-                if (linea.startsWith("Promos=") && !linea.startsWith("PromosA=") && !linea.startsWith("PromosB=")) {
-                    // Asignar a PromosA para mantener compatibilidad
-                    txtPromosA.setText(linea.substring("Promos=".length()));
-                    continue;
-                }
-
-                // Procesar líneas de bloques de hora
-                if (linea.startsWith("Bloque")) {
-                    procesarLineaBloque(linea);
-                }
-            }
-
-            tablaHoras.refresh();
-            return true;
-
+        ConfiguracionLista configuracion;
+        try {
+            configuracion = ConfiguracionLista.cargar(rutaArchivo);
         } catch (IOException e) {
             System.err.println("Error al cargar configuración: " + e.getMessage());
             return false;
         }
+
+        txtElementosEspeciales.setText(configuracion.getRutaElementosEspeciales());
+        txtIdentificaciones.setText(configuracion.getRutaIdentificaciones());
+        txtFelicitaciones.setText(configuracion.getRutaFelicitaciones());
+        txtPromosA.setText(configuracion.getRutaPromosA());
+        txtPromosB.setText(configuracion.getRutaPromosB());
+        opcionesCargadas = configuracion;
+
+        datosHoras.clear();
+        for (GeneradorListaService.ConfiguracionBloque bloque : configuracion.getBloques()) {
+            datosHoras.add(new ConfiguracionHora(bloque.getHoraInicio(), bloque.getHoraFin(),
+                    bloque.getGenero(), bloque.getRutaCarpeta()));
+        }
+
+        tablaHoras.refresh();
+        vigilarCarpetasConfiguradas();
+        return true;
     }
 
     /**
      * Exporta la configuración completa incluyendo carpetas especiales y bloques (MÉTODO ACTUALIZADO)
      */
     private boolean exportarConfiguracionCompleta(String rutaDestino) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(rutaDestino))) {
-
-            writer.write("# Configuración de Lista ZaraRadio\n");
-            writer.write("# Fecha de creación: " + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + "\n");
-            writer.write("# Generado por: Generador de Listas ZaraRadio v2.0\n\n");
-
-            // Escribir configuración de carpetas especiales
-            writer.write("# === CARPETAS ESPECIALES ===\n");
-            writer.write("# Elementos especiales (himnos y poemas)\n");
-            writer.write("ElementosEspeciales=" + txtElementosEspeciales.getText().trim() + "\n\n");
-
-            writer.write("# Carpetas de elementos rotatorios\n");
-            writer.write("Identificaciones=" + txtIdentificaciones.getText().trim() + "\n");
-            writer.write("Felicitaciones=" + txtFelicitaciones.getText().trim() + "\n");
-            writer.write("PromosA=" + txtPromosA.getText().trim() + "\n");
-            writer.write("PromosB=" + txtPromosB.getText().trim() + "\n\n");
-
-
-
-            // CORREGIDO: Escribir configuración de bloques de hora directamente de datosHoras
-            writer.write("# === PROGRAMACIÓN POR HORAS ===\n");
-            writer.write("# Formato: Bloque XX: HH:MM:SS - HH:MM:SS | Género | Ruta\n");
-
-            int numeroBloque = 1;
-            for (ConfiguracionHora config : datosHoras) { // Usar datosHoras directamente
-                // Solo guardar bloques que tengan carpeta configurada
-                if (!config.getRutaCarpeta().trim().isEmpty()) {
-                    writer.write(String.format("Bloque %02d: %s - %s | %s | %s\n",
-                            numeroBloque,
-                            config.getHoraInicio().format(DateTimeFormatter.ofPattern("HH:mm:ss")),
-                            config.getHoraFin().format(DateTimeFormatter.ofPattern("HH:mm:ss")),
-                            config.getGenero().getNombre(),
-                            config.getRutaCarpeta()
-                    ));
-                    numeroBloque++;
-                }
-            }
-
-            writer.write("\n# === ESTADÍSTICAS ===\n");
-            writer.write("# Total de bloques configurados: " + (numeroBloque - 1) + "\n");
-
-            if (!datosHoras.isEmpty()) {
-                LocalTime primeraHora = null;
-                LocalTime ultimaHora = null;
-
-                for (ConfiguracionHora config : datosHoras) {
-                    if (!config.getRutaCarpeta().trim().isEmpty()) {
-                        if (primeraHora == null) {
-                            primeraHora = config.getHoraInicio();
-                        }
-                        ultimaHora = config.getHoraFin();
-                    }
-                }
-
-                if (primeraHora != null && ultimaHora != null) {
-                    writer.write("# Hora de inicio: " + primeraHora.format(DateTimeFormatter.ofPattern("HH:mm")) + "\n");
-                    writer.write("# Hora de fin: " + ultimaHora.format(DateTimeFormatter.ofPattern("HH:mm")) + "\n");
-                }
-            } else {
-                writer.write("# Hora de inicio: N/A\n");
-                writer.write("# Hora de fin: N/A\n");
-            }
-
+        try {
+            crearConfiguracionLista().guardar(rutaDestino);
             return true;
-
         } catch (IOException e) {
             System.err.println("Error al exportar configuración: " + e.getMessage());
             return false;
         }
     }
 
-
     /**
-     * Procesa una línea de configuración de bloque
-     * Formato esperado: Bloque 01: 07:00:00 - 08:00:00 | Género | Ruta
+     * Configuración actual de la pantalla
      */
-    private void procesarLineaBloque(String linea) {
-        try {
-            // Ejemplo: "Bloque 01: 07:00:00 - 08:00:00 | Pop | C:\\Music\\Pop"
-            String[] partes = linea.split("\\|");
-            if (partes.length != 3) {
-                System.err.println("Formato incorrecto en línea: " + linea);
-                return;
-            }
-
-            // CORREGIDO: Extraer información de tiempo correctamente
-            String parteHora = partes[0].trim(); // "Bloque 01: 07:00:00 - 08:00:00"
-
-            // Buscar el patrón después de los dos puntos
-            int indiceDosPuntos = parteHora.indexOf(": ");
-            if (indiceDosPuntos == -1) {
-                System.err.println("No se encontró ':' en: " + parteHora);
-                return;
-            }
-
-            String horarios = parteHora.substring(indiceDosPuntos + 2); // "07:00:00 - 08:00:00"
-            String[] segmentosHora = horarios.split(" - ");
-
-            if (segmentosHora.length != 2) {
-                System.err.println("Formato de horario incorrecto: " + horarios);
-                return;
-            }
-
-            LocalTime horaInicio = LocalTime.parse(segmentosHora[0].trim());
-            LocalTime horaFin = LocalTime.parse(segmentosHora[1].trim());
-
-            // Extraer género
-            String nombreGenero = partes[1].trim();
-            Genero genero = buscarGeneroPorNombre(nombreGenero);
-
-            // Extraer ruta
-            String rutaCarpeta = partes[2].trim();
-
-            // Crear configuración
-            ConfiguracionHora config = new ConfiguracionHora(horaInicio, horaFin, genero, rutaCarpeta);
-            datosHoras.add(config);
-
-            System.out.println("Bloque procesado correctamente: " + horaInicio + " - " + horaFin + " | " + genero.getNombre() + " | " + rutaCarpeta);
-
-        } catch (Exception e) {
-            System.err.println("Error al procesar línea de bloque: " + linea);
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Busca un género por su nombre
-     */
-    private Genero buscarGeneroPorNombre(String nombre) {
-        for (Genero genero : Genero.values()) {
-            if (genero.getNombre().equals(nombre)) {
-                return genero;
-            }
-        }
-        return Genero.VARIADO; // Por defecto
+    private ConfiguracionLista crearConfiguracionLista() {
+        ConfiguracionLista configuracion = new ConfiguracionLista();
+        configuracion.setRutaElementosEspeciales(txtElementosEspeciales.getText().trim());
+        configuracion.setRutaIdentificaciones(txtIdentificaciones.getText().trim());
+        configuracion.setRutaFelicitaciones(txtFelicitaciones.getText().trim());
+        configuracion.setRutaPromosA(txtPromosA.getText().trim());
+        configuracion.setRutaPromosB(txtPromosB.getText().trim());
+        configuracion.copiarOpcionesDe(opcionesCargadas);
+        configuracion.setBloques(crearConfiguracionBloques());
+        return configuracion;
     }
 
     private Stage getStage() {
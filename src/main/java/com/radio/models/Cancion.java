@@ -1,5 +1,7 @@
 package com.radio.models;
 
+import com.radio.catalog.EntradaCatalogo;
+
 import java.time.Duration;
 
 public class Cancion {
@@ -8,6 +10,7 @@ public class Cancion {
     private String rutaArchivo;
     private Duration duracion;
     private Genero genero;
+    private EntradaCatalogo entrada; // null si no viene del catálogo (marcadores, listas importadas de otro equipo)
 
     public Cancion() {}
 
@@ -42,6 +45,23 @@ public class Cancion {
 
     public void setRutaArchivo(String rutaArchivo) {
         this.rutaArchivo = rutaArchivo;
+        if (entrada != null && !entrada.getRutaAbsoluta().equals(rutaArchivo)) {
+            entrada = null;
+        }
+    }
+
+    public EntradaCatalogo getEntrada() {
+        return entrada;
+    }
+
+    /**
+     * Asocia la canción a su entrada del catálogo; la ruta pasa a ser la misma cadena de la entrada
+     */
+    public void setEntrada(EntradaCatalogo entrada) {
+        this.entrada = entrada;
+        if (entrada != null) {
+            this.rutaArchivo = entrada.getRutaAbsoluta();
+        }
     }
 
     public Duration getDuracion() {
@@ -1,16 +1,34 @@
 package com.radio.services;
 
+import com.radio.catalog.CatalogoMusical;
 import com.radio.models.*;
+import com.radio.utils.DetectorCodificacion;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public class ArchivoService {
 
     private static final String EXTENSION_M3U = ".m3u";
     private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final Charset[] CODIFICACIONES_ZARA = {DetectorCodificacion.WINDOWS_1252, StandardCharsets.ISO_8859_1};
 
     /**
      * Guarda una lista de reproducción en formato .m3u
@@ -54,6 +72,16 @@ public class ArchivoService {
      * CORREGIDO: Usa Windows-1252 en lugar de UTF-8 para compatibilidad con ZaraRadio
      */
     public static boolean guardarListaM3u(ListaReproduccion lista, String rutaDestino) {
+        return guardarListaM3u(lista, rutaDestino, () -> false);
+    }
+
+    /**
+     * Igual que {@link #guardarListaM3u(ListaReproduccion, String)}; si ya se canceló no escribe nada
+     */
+    public static boolean guardarListaM3u(ListaReproduccion lista, String rutaDestino, BooleanSupplier cancelado) {
+        if (cancelado.getAsBoolean()) {
+            return false;
+        }
         try {
             // Crear el archivo con la fecha en el nombre si no se especifica
             String nombreArchivo = rutaDestino;
@@ -95,104 +123,149 @@ public class ArchivoService {
     }
 
     /**
-     * ALTERNATIVO: Método con detección automática de codificación
-     * Intenta primero Windows-1252, luego ISO-8859-1 como fallback
+     * ALTERNATIVO: Método con detección automática de codificación.
+     * Elige de antemano la primera codificación (Windows-1252 o ISO-8859-1) que puede representar
+     * todas las rutas y escribe la lista en una sola pasada a un archivo temporal, que luego
+     * reemplaza al destino: ZaraRadio nunca ve una lista a medio escribir.
      */
     public static boolean guardarListaM3uCompatible(ListaReproduccion lista, String rutaDestino) {
-        // Probar diferentes codificaciones en orden de compatibilidad
-        String[] codificaciones = {"Windows-1252", "ISO-8859-1", "CP1252"};
-
-        for (String codificacion : codificaciones) {
-            try {
-                String nombreArchivo = rutaDestino;
-                if (!nombreArchivo.endsWith(EXTENSION_M3U)) {
-                    nombreArchivo += "_" + lista.getFecha().format(FORMATO_FECHA) + EXTENSION_M3U;
-                }
-
-                try (BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(new FileOutputStream(nombreArchivo), codificacion))) {
-
-                    // Escribir cabecera M3U
-                    writer.write("#EXTM3U\n");
+        return guardarListaM3uCompatible(lista, rutaDestino, () -> false);
+    }
 
-                    // Escribir apertura
-                    escribirInsercionesM3uSeguro(writer, lista.getApertura(), codificacion);
+    /**
+     * Igual que {@link #guardarListaM3uCompatible(ListaReproduccion, String)}; si se cancela antes de
+     * reemplazar el destino se borra el temporal y el destino queda como estaba
+     */
+    public static boolean guardarListaM3uCompatible(ListaReproduccion lista, String rutaDestino, BooleanSupplier cancelado) {
+        String nombreArchivo = rutaDestino;
+        if (!nombreArchivo.endsWith(EXTENSION_M3U)) {
+            nombreArchivo += "_" + lista.getFecha().format(FORMATO_FECHA) + EXTENSION_M3U;
+        }
 
-                    // Escribir cada bloque de hora
-                    for (BloqueHora bloque : lista.getBloques()) {
-                        escribirBloqueHoraM3uSeguro(writer, bloque, codificacion);
-                    }
+        List<String> lineas = lineasM3uCompatible(lista);
+        Charset codificacion = elegirCodificacion(lineas);
 
-                    // Escribir cierre
-                    escribirInsercionesM3uSeguro(writer, lista.getCierre(), codificacion);
+        Path destino = Paths.get(nombreArchivo).toAbsolutePath();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try {
+            escribirLineas(lineas, codificacion, temporal);
+            if (cancelado.getAsBoolean()) {
+                Files.deleteIfExists(temporal);
+                return false;
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error al guardar el archivo M3U: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException ignorada) {
+                // El temporal queda huérfano; se sobrescribe en el próximo guardado
+            }
+            return false;
+        }
 
-                    lista.setRutaArchivoLst(nombreArchivo);
+        lista.setRutaArchivoLst(nombreArchivo);
+        System.out.println("Archivo M3U guardado exitosamente con codificación: " + codificacion);
+        return true;
+    }
 
-                    System.out.println("Archivo M3U guardado exitosamente con codificación: " + codificacion);
-                    return true;
+    /**
+     * Líneas del .m3u en orden: cabecera, apertura, bloques y cierre; se omiten los archivos que no existen
+     */
+    private static List<String> lineasM3uCompatible(ListaReproduccion lista) {
+        List<String> lineas = new ArrayList<>();
+        lineas.add("#EXTM3U");
+        agregarInserciones(lineas, lista.getApertura());
+
+        for (BloqueHora bloque : lista.getBloques()) {
+            for (Cancion cancion : bloque.getCanciones()) {
+                if (cancion.getRutaArchivo().equals(".time")) {
+                    // Locución de hora con formato especial para M3U
+                    lineas.add("#EXTINF:-1,Locución de hora");
+                    lineas.add(".time");
+                } else if (new File(cancion.getRutaArchivo()).exists()) {
+                    lineas.add(limpiarRutaParaZara(cancion.getRutaArchivo()));
+                } else {
+                    System.err.println("Advertencia: Archivo no encontrado: " + cancion.getRutaArchivo());
                 }
-
-            } catch (UnsupportedEncodingException e) {
-                System.err.println("Codificación no soportada: " + codificacion);
-                continue; // Probar siguiente codificación
-            } catch (IOException e) {
-                System.err.println("Error de E/S con codificación " + codificacion + ": " + e.getMessage());
-                continue; // Probar siguiente codificación
             }
         }
 
-        System.err.println("No se pudo guardar el archivo con ninguna codificación compatible");
-        return false;
+        agregarInserciones(lineas, lista.getCierre());
+        return lineas;
     }
 
-    // NUEVOS métodos auxiliares para escritura segura
-    private static void escribirBloqueHoraM3uSeguro(BufferedWriter writer, BloqueHora bloque, String codificacion) throws IOException {
-        for (Cancion cancion : bloque.getCanciones()) {
-            escribirCancionM3uSeguro(writer, cancion, codificacion);
+    private static void agregarInserciones(List<String> lineas, List<InsercionEspecial> inserciones) {
+        for (InsercionEspecial insercion : inserciones) {
+            if (new File(insercion.getRutaArchivo()).exists()) {
+                lineas.add(limpiarRutaParaZara(insercion.getRutaArchivo()));
+            } else {
+                System.err.println("Advertencia: Archivo no encontrado: " + insercion.getRutaArchivo());
+            }
         }
     }
 
-    private static void escribirCancionM3uSeguro(BufferedWriter writer, Cancion cancion, String codificacion) throws IOException {
-        if (cancion.getRutaArchivo().equals(".time")) {
-            // Escribir locución de hora con formato especial para M3U
-            writer.write("#EXTINF:-1,Locución de hora\n");
-            writer.write(".time\n");
-        } else {
-            File archivo = new File(cancion.getRutaArchivo());
-            if (!archivo.exists()) {
-                System.err.println("Advertencia: Archivo no encontrado: " + cancion.getRutaArchivo());
-                return;
+    /**
+     * Primera codificación compatible con ZaraRadio que representa todas las líneas.
+     * Si ninguna alcanza se usa Windows-1252 y los caracteres sin equivalente quedan como '?'.
+     */
+    private static Charset elegirCodificacion(List<String> lineas) {
+        for (Charset codificacion : CODIFICACIONES_ZARA) {
+            CharsetEncoder codificador = codificacion.newEncoder();
+            boolean todas = true;
+            for (String linea : lineas) {
+                if (!codificador.canEncode(linea)) {
+                    todas = false;
+                    break;
+                }
             }
-
-            // Verificar si la ruta contiene caracteres problemáticos
-            String rutaArchivo = cancion.getRutaArchivo();
-            if (contieneCaracteresProblematicos(rutaArchivo)) {
-                System.out.println("Advertencia: Ruta con caracteres especiales: " + rutaArchivo);
-                // Intentar convertir caracteres problemáticos
-                rutaArchivo = limpiarRutaParaZara(rutaArchivo);
-                System.out.println("Ruta limpiada: " + rutaArchivo);
+            if (todas) {
+                return codificacion;
             }
+        }
 
-            writer.write(rutaArchivo + "\n");
+        CharsetEncoder codificador = DetectorCodificacion.WINDOWS_1252.newEncoder();
+        for (String linea : lineas) {
+            if (!codificador.canEncode(linea)) {
+                System.err.println("Advertencia: Ruta con caracteres no representables en Windows-1252: " + linea);
+            }
         }
+        return DetectorCodificacion.WINDOWS_1252;
     }
 
-    private static void escribirInsercionesM3uSeguro(BufferedWriter writer, List<InsercionEspecial> inserciones, String codificacion) throws IOException {
-        for (InsercionEspecial insercion : inserciones) {
-            File archivo = new File(insercion.getRutaArchivo());
-            if (!archivo.exists()) {
-                System.err.println("Advertencia: Archivo no encontrado: " + insercion.getRutaArchivo());
-                continue;
+    /**
+     * Codifica cada línea una vez en un búfer reutilizado y lo vuelca al canal cuando se llena
+     */
+    private static void escribirLineas(List<String> lineas, Charset codificacion, Path archivo) throws IOException {
+        CharsetEncoder codificador = codificacion.newEncoder()
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .onMalformedInput(CodingErrorAction.REPLACE);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        CharBuffer salto = CharBuffer.wrap("\n");
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String linea : lineas) {
+                codificar(codificador, CharBuffer.wrap(linea), buffer, canal);
+                codificar(codificador, salto.rewind(), buffer, canal);
             }
-
-            String rutaArchivo = insercion.getRutaArchivo();
-            if (contieneCaracteresProblematicos(rutaArchivo)) {
-                System.out.println("Advertencia: Inserción con caracteres especiales: " + rutaArchivo);
-                rutaArchivo = limpiarRutaParaZara(rutaArchivo);
-                System.out.println("Ruta de inserción limpiada: " + rutaArchivo);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
             }
+            // Que el contenido esté en disco antes de reemplazar el destino
+            canal.force(false);
+        }
+    }
 
-            writer.write(rutaArchivo + "\n");
+    private static void codificar(CharsetEncoder codificador, CharBuffer texto, ByteBuffer buffer,
+                                  FileChannel canal) throws IOException {
+        while (codificador.encode(texto, buffer, false).isOverflow()) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
         }
     }
 
@@ -221,57 +294,26 @@ public class ArchivoService {
     }
 
     /**
-     * Carga una lista de reproducción desde un archivo .m3u
-     */
-    /**
-     * Carga una lista de reproducción desde un archivo .m3u
-     * CORREGIDO: Intenta diferentes codificaciones para máxima compatibilidad
+     * Carga una lista de reproducción desde un archivo .m3u, reconstruyendo apertura, bloques,
+     * inserciones y cierre. Devuelve null si el archivo no se pudo leer.
      */
     public static ListaReproduccion cargarListaM3u(String rutaArchivo) {
-        String[] codificaciones = {"Windows-1252", "ISO-8859-1", "UTF-8", "CP1252"};
-
-        for (String codificacion : codificaciones) {
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(rutaArchivo), codificacion))) {
-
-                System.out.println("Intentando cargar M3U con codificación: " + codificacion);
-
-                ListaReproduccion lista = new ListaReproduccion();
-                String linea;
-                int numeroLinea = 0;
-                boolean caracteresLegibles = true;
-
-                while ((linea = reader.readLine()) != null) {
-                    numeroLinea++;
-
-                    // Verificar si hay caracteres raros que indican codificación incorrecta
-                    if (contieneCaracteresIlegibles(linea)) {
-                        caracteresLegibles = false;
-                        System.out.println("Caracteres ilegibles detectados en línea " + numeroLinea +
-                                " con codificación " + codificacion + ": " + linea);
-                        break; // Probar siguiente codificación
-                    }
-
-                    procesarLineaM3u(linea, lista);
-                }
-
-                if (caracteresLegibles) {
-                    lista.setRutaArchivoLst(rutaArchivo);
-                    System.out.println("Archivo M3U cargado exitosamente con codificación: " + codificacion);
-                    return lista;
-                }
+        return LectorListaM3u.cargar(rutaArchivo);
+    }
 
-            } catch (UnsupportedEncodingException e) {
-                System.err.println("Codificación no soportada: " + codificacion);
-                continue;
-            } catch (IOException e) {
-                System.err.println("Error de E/S con codificación " + codificacion + ": " + e.getMessage());
-                continue;
-            }
-        }
+    /**
+     * Carga varias listas .m3u (por ejemplo, un mes) con una sola consulta al catálogo
+     */
+    public static List<ListaReproduccion> cargarListasM3u(List<String> rutasArchivos) {
+        return LectorListaM3u.cargar(rutasArchivos);
+    }
 
-        System.err.println("No se pudo cargar el archivo M3U con ninguna codificación");
-        return null;
+    /**
+     * Igual, repartiendo las canciones en los bloques configurados en lugar de suponer bloques de una hora
+     */
+    public static List<ListaReproduccion> cargarListasM3u(List<String> rutasArchivos,
+                                                          List<GeneradorListaService.ConfiguracionBloque> configuracion) {
+        return LectorListaM3u.cargar(rutasArchivos, configuracion);
     }
 
     /**
@@ -290,6 +332,12 @@ public class ArchivoService {
 
         System.out.println("=== DIAGNÓSTICO DE CODIFICACIÓN ===");
         System.out.println("Archivo: " + rutaArchivo);
+        try {
+            System.out.println("Codificación detectada: " +
+                    DetectorCodificacion.leer(Paths.get(rutaArchivo)).getCodificacion());
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("No se pudo detectar la codificación: " + e.getMessage());
+        }
 
         for (String codificacion : codificaciones) {
             try (BufferedReader reader = new BufferedReader(
@@ -362,27 +410,8 @@ public class ArchivoService {
      * Obtiene la lista de archivos de audio en una carpeta
      */
     public static List<String> obtenerArchivosAudio(String rutaCarpeta) {
-        List<String> archivos = new ArrayList<>();
-        File carpeta = new File(rutaCarpeta);
-
-        if (!carpeta.exists() || !carpeta.isDirectory()) {
-            return archivos;
-        }
-
-        File[] listaArchivos = carpeta.listFiles((dir, nombre) -> {
-            String extension = nombre.toLowerCase();
-            return extension.endsWith(".mp3") || extension.endsWith(".wav") ||
-                    extension.endsWith(".wma") || extension.endsWith(".ogg") ||
-                    extension.endsWith(".aac");
-        });
-
-        if (listaArchivos != null) {
-            for (File archivo : listaArchivos) {
-                archivos.add(archivo.getAbsolutePath());
-            }
-        }
-
-        return archivos;
+        // El catálogo solo vuelve a listar la carpeta si cambió desde el último escaneo
+        return CatalogoMusical.getInstancia().obtenerRutas(rutaCarpeta, CatalogoMusical.PROFUNDIDAD_MUSICA);
     }
 
     // Métodos privados auxiliares para formato M3U
@@ -422,19 +451,4 @@ public class ArchivoService {
             writer.write(insercion.getRutaArchivo() + "\n");
         }
     }
-
-    private static void procesarLineaM3u(String linea, ListaReproduccion lista) {
-        // Lógica básica para procesar líneas del archivo M3U
-        if (linea.startsWith("#") || linea.trim().isEmpty()) {
-            return; // Ignorar comentarios y líneas vacías
-        }
-
-        // Aquí se podría implementar la lógica completa de parsing
-        // Por ahora es una implementación básica
-        File archivo = new File(linea.trim());
-        if (archivo.exists()) {
-            // Crear canción básica y agregarla al último bloque
-            // Esta es una implementación simplificada
-        }
-    }
 }
\ No newline at end of file
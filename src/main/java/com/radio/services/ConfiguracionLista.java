@@ -0,0 +1,307 @@
+package com.radio.services;
+
+import com.radio.models.Genero;
+import com.radio.utils.DetectorCodificacion;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de una lista: carpetas especiales y programación por horas.
+ * Lee y escribe el archivo de texto que usa la pantalla principal, sin depender de JavaFX.
+ */
+public class ConfiguracionLista {
+
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private String rutaElementosEspeciales = "";
+    private String rutaIdentificaciones = "";
+    private String rutaFelicitaciones = "";
+    private String rutaPromosA = "";
+    private String rutaPromosB = "";
+    private int descansoHoras = GeneradorListaService.DESCANSO_HORAS_DEFAULT;
+    private int separacionArtistaCanciones = SeparadorArtistas.CANCIONES_DEFAULT;
+    private int separacionArtistaMinutos = SeparadorArtistas.MINUTOS_DEFAULT;
+    private Long semilla; // null = una semilla nueva en cada generación
+    private List<GeneradorListaService.ConfiguracionBloque> bloques = new ArrayList<>();
+
+    /**
+     * Carga la configuración desde un archivo de texto; la codificación se detecta
+     * (archivos guardados en Windows-1252 o UTF-8 conservan los acentos de los géneros y rutas)
+     */
+    public static ConfiguracionLista cargar(String rutaArchivo) throws IOException {
+        ConfiguracionLista configuracion = new ConfiguracionLista();
+
+        String texto = DetectorCodificacion.leer(Paths.get(rutaArchivo)).getTexto();
+        texto.lines().forEach(linea -> configuracion.procesarLinea(linea.trim()));
+
+        return configuracion;
+    }
+
+    private void procesarLinea(String linea) {
+        // Saltar comentarios y líneas vacías
+        if (linea.startsWith("#") || linea.isEmpty()) {
+            return;
+        }
+
+        // Buscar líneas de configuración de carpetas especiales
+        if (linea.startsWith("ElementosEspeciales=")) {
+            rutaElementosEspeciales = linea.substring("ElementosEspeciales=".length());
+        } else if (linea.startsWith("Identificaciones=")) {
+            rutaIdentificaciones = linea.substring("Identificaciones=".length());
+        } else if (linea.startsWith("Felicitaciones=")) {
+            rutaFelicitaciones = linea.substring("Felicitaciones=".length());
+        } else if (linea.startsWith("PromosA=")) {
+            rutaPromosA = linea.substring("PromosA=".length());
+        } else if (linea.startsWith("PromosB=")) {
+            rutaPromosB = linea.substring("PromosB=".length());
+        } else if (linea.startsWith("DescansoHoras=")) {
+            descansoHoras = leerEntero(linea, "DescansoHoras=", descansoHoras);
+        } else if (linea.startsWith("SeparacionArtistaCanciones=")) {
+            separacionArtistaCanciones = leerEntero(linea, "SeparacionArtistaCanciones=", separacionArtistaCanciones);
+        } else if (linea.startsWith("SeparacionArtistaMinutos=")) {
+            separacionArtistaMinutos = leerEntero(linea, "SeparacionArtistaMinutos=", separacionArtistaMinutos);
+        } else if (linea.startsWith("Semilla=")) {
+            semilla = leerSemilla(linea);
+        } else if (linea.startsWith("Promos=")) {
+            // Mantener compatibilidad con archivos antiguos: se asigna a PromosA
+            rutaPromosA = linea.substring("Promos=".length());
+        } else if (linea.startsWith("Bloque")) {
+            procesarLineaBloque(linea);
+        }
+    }
+
+    private static int leerEntero(String linea, String prefijo, int actual) {
+        try {
+            return Integer.parseInt(linea.substring(prefijo.length()).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Número incorrecto en línea: " + linea);
+            return actual;
+        }
+    }
+
+    private static Long leerSemilla(String linea) {
+        String valor = linea.substring("Semilla=".length()).trim();
+        if (valor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            System.err.println("Semilla incorrecta en línea: " + linea);
+            return null;
+        }
+    }
+
+    /**
+     * Procesa una línea de configuración de bloque
+     * Formato esperado: Bloque 01: 07:00:00 - 08:00:00 | Género | Ruta
+     */
+    private void procesarLineaBloque(String linea) {
+        try {
+            // Ejemplo: "Bloque 01: 07:00:00 - 08:00:00 | Pop | C:\\Music\\Pop"
+            String[] partes = linea.split("\\|");
+            if (partes.length != 3) {
+                System.err.println("Formato incorrecto en línea: " + linea);
+                return;
+            }
+
+            String parteHora = partes[0].trim(); // "Bloque 01: 07:00:00 - 08:00:00"
+
+            // Buscar el patrón después de los dos puntos
+            int indiceDosPuntos = parteHora.indexOf(": ");
+            if (indiceDosPuntos == -1) {
+                System.err.println("No se encontró ':' en: " + parteHora);
+                return;
+            }
+
+            String horarios = parteHora.substring(indiceDosPuntos + 2); // "07:00:00 - 08:00:00"
+            String[] segmentosHora = horarios.split(" - ");
+
+            if (segmentosHora.length != 2) {
+                System.err.println("Formato de horario incorrecto: " + horarios);
+                return;
+            }
+
+            LocalTime horaInicio = LocalTime.parse(segmentosHora[0].trim());
+            LocalTime horaFin = LocalTime.parse(segmentosHora[1].trim());
+            Genero genero = buscarGeneroPorNombre(partes[1].trim());
+            String rutaCarpeta = partes[2].trim();
+
+            bloques.add(new GeneradorListaService.ConfiguracionBloque(horaInicio, horaFin, genero, rutaCarpeta));
+
+            System.out.println("Bloque procesado correctamente: " + horaInicio + " - " + horaFin + " | " + genero.getNombre() + " | " + rutaCarpeta);
+
+        } catch (Exception e) {
+            System.err.println("Error al procesar línea de bloque: " + linea);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Busca un género por su nombre
+     */
+    public static Genero buscarGeneroPorNombre(String nombre) {
+        for (Genero genero : Genero.values()) {
+            if (genero.getNombre().equals(nombre)) {
+                return genero;
+            }
+        }
+        return Genero.VARIADO; // Por defecto
+    }
+
+    /**
+     * Guarda la configuración completa; solo se escriben los bloques con carpeta
+     */
+    public void guardar(String rutaDestino) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(rutaDestino))) {
+
+            writer.write("# Configuración de Lista ZaraRadio\n");
+            writer.write("# Fecha de creación: " + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + "\n");
+            writer.write("# Generado por: Generador de Listas ZaraRadio v2.0\n\n");
+
+            // Escribir configuración de carpetas especiales
+            writer.write("# === CARPETAS ESPECIALES ===\n");
+            writer.write("# Elementos especiales (himnos y poemas)\n");
+            writer.write("ElementosEspeciales=" + rutaElementosEspeciales + "\n\n");
+
+            writer.write("# Carpetas de elementos rotatorios\n");
+            writer.write("Identificaciones=" + rutaIdentificaciones + "\n");
+            writer.write("Felicitaciones=" + rutaFelicitaciones + "\n");
+            writer.write("PromosA=" + rutaPromosA + "\n");
+            writer.write("PromosB=" + rutaPromosB + "\n\n");
+
+            writer.write("# Horas que descansa una canción antes de repetirse en otro día (0 = sin descanso)\n");
+            writer.write("DescansoHoras=" + descansoHoras + "\n");
+            writer.write("# Un artista no se repite hasta pasadas estas canciones y estos minutos (0 = sin límite)\n");
+            writer.write("SeparacionArtistaCanciones=" + separacionArtistaCanciones + "\n");
+            writer.write("SeparacionArtistaMinutos=" + separacionArtistaMinutos + "\n");
+            writer.write("# Semilla fija para repetir exactamente una generación (vacío = distinta cada vez)\n");
+            writer.write("Semilla=" + (semilla != null ? semilla : "") + "\n\n");
+
+            writer.write("# === PROGRAMACIÓN POR HORAS ===\n");
+            writer.write("# Formato: Bloque XX: HH:MM:SS - HH:MM:SS | Género | Ruta\n");
+
+            int numeroBloque = 1;
+            LocalTime primeraHora = null;
+            LocalTime ultimaHora = null;
+            for (GeneradorListaService.ConfiguracionBloque bloque : bloques) {
+                if (bloque.getRutaCarpeta().trim().isEmpty()) {
+                    continue;
+                }
+                writer.write(String.format("Bloque %02d: %s - %s | %s | %s\n",
+                        numeroBloque,
+                        bloque.getHoraInicio().format(FORMATO_HORA),
+                        bloque.getHoraFin().format(FORMATO_HORA),
+                        bloque.getGenero().getNombre(),
+                        bloque.getRutaCarpeta()
+                ));
+                numeroBloque++;
+
+                if (primeraHora == null) {
+                    primeraHora = bloque.getHoraInicio();
+                }
+                ultimaHora = bloque.getHoraFin();
+            }
+
+            writer.write("\n# === ESTADÍSTICAS ===\n");
+            writer.write("# Total de bloques configurados: " + (numeroBloque - 1) + "\n");
+
+            if (primeraHora != null) {
+                writer.write("# Hora de inicio: " + primeraHora.format(DateTimeFormatter.ofPattern("HH:mm")) + "\n");
+                writer.write("# Hora de fin: " + ultimaHora.format(DateTimeFormatter.ofPattern("HH:mm")) + "\n");
+            } else {
+                writer.write("# Hora de inicio: N/A\n");
+                writer.write("# Hora de fin: N/A\n");
+            }
+        }
+    }
+
+    /**
+     * Configura las carpetas especiales en el generador
+     */
+    public void aplicarA(GeneradorListaService generador) {
+        generador.setRutaElementosEspeciales(rutaElementosEspeciales.trim());
+        generador.setRutaIdentificaciones(rutaIdentificaciones.trim());
+        generador.setRutaFelicitaciones(rutaFelicitaciones.trim());
+        generador.setRutaPromosA(rutaPromosA.trim());
+        generador.setRutaPromosB(rutaPromosB.trim());
+        generador.setDescansoHoras(descansoHoras);
+        generador.setSeparacionArtistaCanciones(separacionArtistaCanciones);
+        generador.setSeparacionArtistaMinutos(separacionArtistaMinutos);
+        generador.setSemilla(semilla);
+    }
+
+    /**
+     * Copia las opciones de generación que no tienen campo en pantalla (descanso, separación de artistas y semilla)
+     */
+    public void copiarOpcionesDe(ConfiguracionLista otra) {
+        descansoHoras = otra.descansoHoras;
+        separacionArtistaCanciones = otra.separacionArtistaCanciones;
+        separacionArtistaMinutos = otra.separacionArtistaMinutos;
+        semilla = otra.semilla;
+    }
+
+    /**
+     * Bloques con carpeta configurada, listos para el generador
+     */
+    public List<GeneradorListaService.ConfiguracionBloque> getBloquesConCarpeta() {
+        List<GeneradorListaService.ConfiguracionBloque> conCarpeta = new ArrayList<>();
+        for (GeneradorListaService.ConfiguracionBloque bloque : bloques) {
+            if (!bloque.getRutaCarpeta().trim().isEmpty()) {
+                conCarpeta.add(bloque);
+            }
+        }
+        return conCarpeta;
+    }
+
+    // Getters y Setters
+    public String getRutaElementosEspeciales() { return rutaElementosEspeciales; }
+    public void setRutaElementosEspeciales(String rutaElementosEspeciales) {
+        this.rutaElementosEspeciales = rutaElementosEspeciales != null ? rutaElementosEspeciales : "";
+    }
+
+    public String getRutaIdentificaciones() { return rutaIdentificaciones; }
+    public void setRutaIdentificaciones(String rutaIdentificaciones) {
+        this.rutaIdentificaciones = rutaIdentificaciones != null ? rutaIdentificaciones : "";
+    }
+
+    public String getRutaFelicitaciones() { return rutaFelicitaciones; }
+    public void setRutaFelicitaciones(String rutaFelicitaciones) {
+        this.rutaFelicitaciones = rutaFelicitaciones != null ? rutaFelicitaciones : "";
+    }
+
+    public String getRutaPromosA() { return rutaPromosA; }
+    public void setRutaPromosA(String rutaPromosA) {
+        this.rutaPromosA = rutaPromosA != null ? rutaPromosA : "";
+    }
+
+    public String getRutaPromosB() { return rutaPromosB; }
+    public void setRutaPromosB(String rutaPromosB) {
+        this.rutaPromosB = rutaPromosB != null ? rutaPromosB : "";
+    }
+
+    public int getDescansoHoras() { return descansoHoras; }
+    public void setDescansoHoras(int descansoHoras) { this.descansoHoras = descansoHoras; }
+
+    public int getSeparacionArtistaCanciones() { return separacionArtistaCanciones; }
+    public void setSeparacionArtistaCanciones(int separacionArtistaCanciones) {
+        this.separacionArtistaCanciones = separacionArtistaCanciones;
+    }
+
+    public int getSeparacionArtistaMinutos() { return separacionArtistaMinutos; }
+    public void setSeparacionArtistaMinutos(int separacionArtistaMinutos) {
+        this.separacionArtistaMinutos = separacionArtistaMinutos;
+    }
+
+    public Long getSemilla() { return semilla; }
+    public void setSemilla(Long semilla) { this.semilla = semilla; }
+
+    public List<GeneradorListaService.ConfiguracionBloque> getBloques() { return bloques; }
+    public void setBloques(List<GeneradorListaService.ConfiguracionBloque> bloques) { this.bloques = bloques; }
+}
@@ -0,0 +1,160 @@
+package com.radio.services;
+
+import com.radio.utils.DirectorioDatos;
+import com.radio.utils.TrazaGeneracion;
+import com.radio.utils.TrazaGeneracion.Nivel;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado persistente de los rotadores de identificaciones y promos: la secuencia ordenada
+ * de cada carpeta, la huella de la carpeta con la que se ordenó y el próximo elemento.
+ * Así cada generación sigue la rotación donde la dejó la anterior y solo se reordena
+ * cuando la carpeta cambia.
+ */
+public class EstadoRotadores {
+
+    private static final String NOMBRE_ARCHIVO = "rotadores.dat";
+    private static final int MAGICO = 0x5A52524F; // "ZRRO"
+    private static final int VERSION = 1;
+
+    private static EstadoRotadores instancia;
+
+    private final File archivo;
+    private final Map<String, Estado> estados = new HashMap<>();
+    private boolean modificado = false;
+
+    /**
+     * Secuencia guardada de un rotador: rutas relativas en orden de emisión y posición del próximo
+     */
+    public static class Estado {
+        private final long huella;
+        private final List<String> secuencia;
+        private final int cursor;
+
+        Estado(long huella, List<String> secuencia, int cursor) {
+            this.huella = huella;
+            this.secuencia = secuencia;
+            this.cursor = cursor;
+        }
+
+        public long getHuella() {
+            return huella;
+        }
+
+        public List<String> getSecuencia() {
+            return secuencia;
+        }
+
+        public int getCursor() {
+            return cursor;
+        }
+    }
+
+    EstadoRotadores(File archivo) {
+        this.archivo = archivo;
+        cargar();
+    }
+
+    public static synchronized EstadoRotadores getInstancia() {
+        if (instancia == null) {
+            instancia = new EstadoRotadores(DirectorioDatos.archivo(NOMBRE_ARCHIVO));
+        }
+        return instancia;
+    }
+
+    /**
+     * Estado guardado del rotador, o null si nunca se guardó
+     */
+    public synchronized Estado obtener(String clave) {
+        return estados.get(clave);
+    }
+
+    public synchronized void actualizar(String clave, long huella, List<String> secuencia, int cursor) {
+        Estado anterior = estados.get(clave);
+        if (anterior != null && anterior.huella == huella && anterior.cursor == cursor
+                && anterior.secuencia.equals(secuencia)) {
+            return;
+        }
+        estados.put(clave, new Estado(huella, new ArrayList<>(secuencia), cursor));
+        modificado = true;
+    }
+
+    /**
+     * Guarda el estado en disco si hubo cambios
+     */
+    public synchronized void guardar() {
+        if (!modificado) {
+            return;
+        }
+
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal)))) {
+
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeInt(estados.size());
+            for (Map.Entry<String, Estado> registro : estados.entrySet()) {
+                Estado estado = registro.getValue();
+                salida.writeUTF(registro.getKey());
+                salida.writeLong(estado.huella);
+                salida.writeInt(estado.cursor);
+                salida.writeInt(estado.secuencia.size());
+                for (String ruta : estado.secuencia) {
+                    salida.writeUTF(ruta);
+                }
+            }
+
+        } catch (IOException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al guardar el estado de los rotadores: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temporal.toPath(), archivo.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modificado = false;
+        } catch (IOException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al reemplazar el estado de los rotadores: {}", e.getMessage());
+        }
+    }
+
+    private void cargar() {
+        if (!archivo.exists()) {
+            return;
+        }
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(archivo)))) {
+
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION) {
+                TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Estado de rotadores con formato desconocido, se empezará de nuevo.");
+                return;
+            }
+
+            int total = entrada.readInt();
+            for (int i = 0; i < total; i++) {
+                String clave = entrada.readUTF();
+                long huella = entrada.readLong();
+                int cursor = entrada.readInt();
+                int elementos = entrada.readInt();
+                List<String> secuencia = new ArrayList<>(elementos);
+                for (int j = 0; j < elementos; j++) {
+                    secuencia.add(entrada.readUTF());
+                }
+                estados.put(clave, new Estado(huella, secuencia, cursor));
+            }
+
+        } catch (IOException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al leer el estado de los rotadores, se empezará de nuevo: {}", e.getMessage());
+            estados.clear();
+        }
+    }
+}
@@ -1,19 +1,70 @@
 package com.radio.services;
 
+import com.radio.catalog.CacheMetadatos;
+import com.radio.catalog.CatalogoMusical;
+import com.radio.catalog.EntradaCatalogo;
+import com.radio.catalog.MetadatosAudio;
+import com.radio.catalog.EscanerCarpetas;
+import com.radio.catalog.InstantaneaCatalogo;
+import com.radio.catalog.RegistroIds;
+import com.radio.catalog.TablaEntradas;
 import com.radio.models.*;
+import com.radio.utils.BitSetConcurrente;
+import com.radio.utils.FlujoAleatorio;
+import com.radio.utils.MuestraAleatoria;
 import com.radio.utils.Randomizador;
+import com.radio.utils.TrazaGeneracion;
+import com.radio.utils.TrazaGeneracion.Nivel;
 import java.io.File;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.random.RandomGenerator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class GeneradorListaService {
-    private Set<String> cancionesUsadas = new HashSet<>();
     // Configuraciones por defecto
-    private static final int CANCIONES_POR_HORA = 15; // Aproximadamente para llenar 1 hora
-    private static final int CADA_N_CANCIONES_LOCUCION = 3; // Locución cada 3 canciones
-    private static final int TOLERANCIA_MINUTOS_DEFAULT = 5;
+    static final int CADA_N_CANCIONES_LOCUCION = 3; // Locución cada 3 canciones
+    static final int TOLERANCIA_MINUTOS_DEFAULT = 5;
+    static final Duration DURACION_CANCION_DEFAULT = Duration.ofMinutes(3).plusSeconds(30);
+    static final Duration DURACION_MARCADOR_TIEMPO = Duration.ofSeconds(1);
+    private static final int INTENTOS_RECLAMO = 4; // elecciones de un bloque si otro le gana canciones
+    public static final int DESCANSO_HORAS_DEFAULT = 48;
+
+    // Horas que una canción programada espera antes de volver a elegirse en otro día (0 = sin descanso)
+    private int descansoHoras = DESCANSO_HORAS_DEFAULT;
+
+    // Un artista no se repite hasta pasadas estas canciones y estos minutos (0 = sin límite)
+    private int separacionArtistaCanciones = SeparadorArtistas.CANCIONES_DEFAULT;
+    private int separacionArtistaMinutos = SeparadorArtistas.MINUTOS_DEFAULT;
+
+    // Semilla fija para reproducir una generación (null = una nueva en cada generación)
+    private Long semilla;
+
+    // Si las generaciones escriben en la carpeta de datos: historial, catálogo, metadatos y rotadores
+    private boolean persistir = true;
+
+    // Semilla de la generación en curso: de ella salen los flujos de cada día, bloque y rotador
+    private long semillaGeneracion;
+    // Bloques regenerados desde esa semilla: cada regeneración toma un flujo distinto
+    private int regeneraciones;
+    private static final long FLUJO_BLOQUE = 1;
+    private static final long FLUJO_APERTURA = 2;
+    private static final long FLUJO_CIERRE = 3;
+    private static final long FLUJO_ROTADOR = 4;
 
     // Rutas de carpetas especiales
     private String rutaElementosEspeciales;
@@ -28,6 +79,30 @@ public class GeneradorListaService {
     private RotadorElementos rotadorPromosA;
     private RotadorElementos rotadorPromosB;
 
+    // Contenido de las carpetas leído en la fase de escaneo de la generación actual
+    private InstantaneaCatalogo instantanea;
+
+    // Duración de cada entrada de las carpetas de música, en el mismo orden que la instantánea
+    private final Map<String, long[]> duracionesCarpeta = new ConcurrentHashMap<>();
+
+    // Un bloqueo por grupo de carpetas solapadas, con la que contiene a las demás como clave,
+    // para que dos días de un rango no elijan a la vez la misma canción
+    private final Map<String, Object> bloqueosCarpeta = new ConcurrentHashMap<>();
+
+    // Avance de la generación en curso
+    private volatile OyenteProgreso oyenteProgreso;
+    private final AtomicInteger bloquesTerminados = new AtomicInteger();
+    private volatile int bloquesTotales;
+
+    /**
+     * Recibe el avance de una generación y permite cancelarla desde otro hilo
+     */
+    public interface OyenteProgreso {
+        void progreso(String mensaje, int bloquesTerminados, int bloquesTotales);
+
+        boolean isCancelado();
+    }
+
     public GeneradorListaService() {
         // Los rotadores se inicializarán cuando se configuren las rutas
     }
@@ -36,27 +111,640 @@ public class GeneradorListaService {
      * Genera una lista completa de reproducción aplicando todas las reglas
      */
     public ListaReproduccion generarListaCompleta(LocalDate fecha, List<ConfiguracionBloque> configuracion) {
-        ListaReproduccion lista = new ListaReproduccion(fecha);
+        return generarListaCompleta(fecha, configuracion, null);
+    }
+
+    /**
+     * Igual que {@link #generarListaCompleta(LocalDate, List)}, informando del avance bloque a bloque.
+     * Si el oyente pide cancelar se lanza CancellationException.
+     */
+    public ListaReproduccion generarListaCompleta(LocalDate fecha, List<ConfiguracionBloque> configuracion,
+                                                  OyenteProgreso oyente) {
+        iniciarProgreso(oyente, configuracion.size());
+        prepararGeneracion(configuracion);
 
-        // Limpiar set de canciones usadas al inicio
-        cancionesUsadas.clear();
+        PlanDia plan = new PlanDia(fecha, semillaDia(fecha), new BitSetConcurrente(RegistroIds.getTotal()), null, true, indiceDescanso(fecha), crearSeparador());
+        ListaReproduccion lista = planificarDia(fecha, configuracion, plan);
+        registrarHistorial(lista);
 
-        inicializarRotadores();
-        configurarBloques(lista, configuracion);
-        generarApertura(lista);
+        informar("Insertando elementos especiales...");
+        // CORREGIDO: Insertar elementos especiales después de generar las canciones
+        insertarElementosEspecialesCorregido(lista);
+        generarCierre(lista, FlujoAleatorio.derivar(semillaDia(lista.getFecha()), FLUJO_CIERRE));
+
+        guardarCatalogo();
+
+        return lista;
+    }
+
+    /**
+     * Genera una lista por cada día del rango (ambos incluidos) y guarda un .m3u por día en la carpeta destino.
+     * Los días se planifican en paralelo sobre un mismo escaneo; una canción no se repite entre días
+     * mientras la carpeta tenga canciones sin usar en el rango. Las inserciones se reparten después
+     * en orden de fecha, así los rotadores continúan su secuencia de un día al siguiente.
+     * Con una semilla fija los días se planifican uno tras otro para que el resultado sea reproducible.
+     */
+    public List<ListaReproduccion> generarRango(LocalDate desde, LocalDate hasta,
+                                                List<ConfiguracionBloque> configuracion, String carpetaDestino) {
+        return generarRango(desde, hasta, configuracion, carpetaDestino, null);
+    }
+
+    /**
+     * Igual que {@link #generarRango(LocalDate, LocalDate, List, String)}, informando del avance
+     */
+    public List<ListaReproduccion> generarRango(LocalDate desde, LocalDate hasta, List<ConfiguracionBloque> configuracion,
+                                                String carpetaDestino, OyenteProgreso oyente) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha final es anterior a la inicial");
+        }
+
+        long inicio = System.nanoTime();
+        List<LocalDate> fechas = desde.datesUntil(hasta.plusDays(1)).collect(Collectors.toList());
+
+        iniciarProgreso(oyente, fechas.size() * configuracion.size());
+        prepararGeneracion(configuracion);
+
+        BitSetConcurrente usadasEnRango = new BitSetConcurrente(RegistroIds.getTotal());
+        HistorialEmisiones.IndiceDescanso descanso = indiceDescanso(desde);
+        ForkJoinPool pool = new ForkJoinPool(Math.min(fechas.size(), Runtime.getRuntime().availableProcessors()));
+        List<ListaReproduccion> listas;
+        try {
+            // Con semilla fija los días van en orden: qué día se queda una canción que quieren
+            // dos días del rango no puede depender de qué hilo llega antes
+            listas = pool.submit(() -> (semilla != null ? fechas.stream() : fechas.parallelStream())
+                    .map(fecha -> planificarDia(fecha, configuracion,
+                            new PlanDia(fecha, semillaDia(fecha), new BitSetConcurrente(RegistroIds.getTotal()), usadasEnRango, false, descanso, crearSeparador())))
+                    .collect(Collectors.toList())).get();
+
+            // Dentro del rango no se repite nada mientras haya canciones; el historial cubre los días siguientes
+            for (ListaReproduccion lista : listas) {
+                registrarHistorial(lista);
+            }
+
+            // Secuencial: el orden de fechas fija por dónde sigue cada rotador
+            informar("Insertando elementos especiales...");
+            for (ListaReproduccion lista : listas) {
+                insertarElementosEspecialesCorregido(lista);
+                generarCierre(lista, FlujoAleatorio.derivar(semillaDia(lista.getFecha()), FLUJO_CIERRE));
+            }
+
+            if (carpetaDestino != null) {
+                verificarCancelacion();
+                informar("Guardando " + listas.size() + " listas...");
+                List<String> fallidas = pool.submit(() -> listas.parallelStream()
+                        .filter(lista -> !ArchivoService.guardarListaM3uCompatible(lista,
+                                new File(carpetaDestino, nombreArchivoDia(lista.getFecha())).getPath()))
+                        .map(lista -> lista.getFecha().toString())
+                        .collect(Collectors.toList())).get();
+                if (!fallidas.isEmpty()) {
+                    TrazaGeneracion.registrar(Nivel.ERROR, "No se pudieron guardar las listas de: {}", String.join(", ", fallidas));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Generación cancelada");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            throw new IllegalStateException("Error al generar el rango: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        guardarCatalogo();
+
+        TrazaGeneracion.registrar(Nivel.INFO, "Rango {}: {} listas en {} ms",
+                desde + " - " + hasta, listas.size(), (System.nanoTime() - inicio) / 1_000_000);
+        return listas;
+    }
+
+    /**
+     * Vuelve a elegir las canciones de un solo bloque de una lista ya generada, sin tocar el resto del día.
+     * Las canciones de los demás bloques siguen tomadas y las que tenía el bloque quedan como último recurso.
+     *
+     * Las locuciones del bloque (marcador e inserciones) se conservan en su orden: los rotadores no se
+     * mueven y los bloques vecinos mantienen las suyas. Por eso el bloque no puede quedar con más
+     * locuciones de las que tenía. Se reutiliza el escaneo de la última generación; solo si la carpeta
+     * no formó parte de ella se escanea esa carpeta.
+     *
+     * @return el mismo bloque, ya con sus nuevas canciones
+     */
+    public BloqueHora regenerarBloque(ListaReproduccion lista, int indiceBloque) {
+        return regenerarBloque(lista, indiceBloque, null);
+    }
+
+    /**
+     * Igual que {@link #regenerarBloque(ListaReproduccion, int)}; si el oyente la cancela antes de
+     * reemplazar las canciones, la lista y el historial quedan como estaban
+     */
+    public BloqueHora regenerarBloque(ListaReproduccion lista, int indiceBloque, OyenteProgreso oyente) {
+        iniciarProgreso(oyente, 1);
+        long inicio = System.nanoTime();
+        List<BloqueHora> bloques = lista.getBloques();
+        BloqueHora bloque = bloques.get(indiceBloque);
+        String rutaCarpeta = bloque.getRutaCarpeta();
+        if (rutaCarpeta == null || rutaCarpeta.isEmpty()) {
+            throw new IllegalArgumentException("El bloque " + bloque.getHoraInicio() + "-" + bloque.getHoraFin() +
+                    " no tiene carpeta de música");
+        }
+        if (instantanea == null) {
+            iniciarSemilla();
+        }
+        prepararCarpeta(rutaCarpeta);
+        regeneraciones++;
+
+        // Separar las canciones del bloque de sus locuciones: cada locución es un marcador
+        // y las inserciones que lo siguen
+        List<Cancion> cancionesAnteriores = new ArrayList<>();
+        List<List<Cancion>> locuciones = new ArrayList<>();
+        List<Cancion> delanteras = new ArrayList<>(); // inserciones antes del primer marcador
+        List<Cancion> locucion = null;
+        for (Cancion cancion : bloque.getCanciones()) {
+            if (esMarcadorTiempo(cancion)) {
+                locucion = new ArrayList<>();
+                locucion.add(cancion);
+                locuciones.add(locucion);
+            } else if (esCancionDeCarpeta(cancion, rutaCarpeta)) {
+                cancionesAnteriores.add(cancion);
+                locucion = null;
+            } else if (locucion != null) {
+                locucion.add(cancion);
+            } else {
+                delanteras.add(cancion);
+            }
+        }
+
+        // Lo que suena en el resto del día sigue tomado. Las canciones actuales del bloque
+        // van al final de los candidatos, como las de otros días en un rango
+        List<Integer> idsResto = new ArrayList<>();
+        for (int indice = 0; indice < bloques.size(); indice++) {
+            if (indice != indiceBloque) {
+                for (Cancion cancion : bloques.get(indice).getCanciones()) {
+                    if (!esMarcadorTiempo(cancion)) {
+                        idsResto.add(idDe(cancion));
+                    }
+                }
+            }
+        }
+        List<Integer> idsBloque = new ArrayList<>();
+        for (Cancion cancion : cancionesAnteriores) {
+            idsBloque.add(idDe(cancion));
+        }
+        BitSetConcurrente usadas = new BitSetConcurrente(RegistroIds.getTotal());
+        BitSetConcurrente actuales = new BitSetConcurrente(RegistroIds.getTotal());
+        idsResto.forEach(usadas::agregar);
+        idsBloque.forEach(actuales::agregar);
+
+        PlanDia plan = new PlanDia(lista.getFecha(), semillaDia(lista.getFecha()), usadas, actuales, true,
+                indiceDescanso(lista.getFecha()), crearSeparador());
+        plan.llenadoEnOrden = false;
+        Duration ocupado = indiceBloque == 0 ? duracionTotal(lista.getApertura()) : Duration.ZERO;
+        CancionesElegidas elegidas = llenarBloque(bloque, ocupado, plan, plan.flujo(FLUJO_BLOQUE, indiceBloque, regeneraciones));
+
+        // Con las locuciones ya conocidas: la n-ésima dura lo que sus elementos y no puede haber más
+        long[] rellenoAcumuladoMs = new long[locuciones.size() + 1];
+        for (int i = 0; i < locuciones.size(); i++) {
+            rellenoAcumuladoMs[i + 1] = rellenoAcumuladoMs[i] + duracionCanciones(locuciones.get(i));
+        }
+        long sobraMs = elegidas.objetivoMs + 1;
+        elegir(elegidas, id -> true, cantidad -> {
+            int numero = cantidad / CADA_N_CANCIONES_LOCUCION;
+            int conocidas = Math.min(numero, locuciones.size());
+            return rellenoAcumuladoMs[conocidas] + (numero - conocidas) * sobraMs;
+        });
+
+        // La separación de artistas parte de cómo terminó el bloque anterior
+        if (indiceBloque > 0) {
+            BloqueHora previo = bloques.get(indiceBloque - 1);
+            List<Cancion> cancionesPrevio = new ArrayList<>();
+            for (Cancion cancion : previo.getCanciones()) {
+                if (esCancionDeCarpeta(cancion, previo.getRutaCarpeta())) {
+                    cancionesPrevio.add(cancion);
+                }
+            }
+            long[] duracionesPrevioMs = new long[cancionesPrevio.size()];
+            for (int i = 0; i < duracionesPrevioMs.length; i++) {
+                duracionesPrevioMs[i] = duracionCanciones(List.of(cancionesPrevio.get(i)));
+            }
+            plan.separador.iniciarBloque(previo.getHoraInicio(),
+                    indiceBloque - 1 == 0 ? duracionTotal(lista.getApertura()) : Duration.ZERO);
+            plan.separador.anotar(i -> cancionesPrevio.get(i).getArtista(), duracionesPrevioMs);
+        }
+
+        long[] duracionesMs = new long[elegidas.getTotal()];
+        for (int i = 0; i < duracionesMs.length; i++) {
+            duracionesMs[i] = elegidas.duracionesMs[elegidas.seleccion[i]];
+        }
+        plan.separador.iniciarBloque(bloque.getHoraInicio(), ocupado);
+
+        // ...y el final del bloque no debe repetir a quien abre el siguiente
+        if (indiceBloque + 1 < bloques.size()) {
+            BloqueHora proximo = bloques.get(indiceBloque + 1);
+            List<Cancion> cancionesProximo = new ArrayList<>();
+            List<Long> duracionesProximoMs = new ArrayList<>();
+            long delanteMs = 0; // lo que suena antes de su primera canción
+            for (Cancion cancion : proximo.getCanciones()) {
+                long duracionMs = duracionCanciones(List.of(cancion));
+                if (esCancionDeCarpeta(cancion, proximo.getRutaCarpeta())) {
+                    cancionesProximo.add(cancion);
+                    duracionesProximoMs.add(duracionMs);
+                } else if (duracionesProximoMs.isEmpty()) {
+                    delanteMs += duracionMs;
+                } else {
+                    int ultima = duracionesProximoMs.size() - 1;
+                    duracionesProximoMs.set(ultima, duracionesProximoMs.get(ultima) + duracionMs);
+                }
+            }
+            plan.separador.anticipar(i -> cancionesProximo.get(i).getArtista(),
+                    duracionesProximoMs.stream().mapToLong(Long::longValue).toArray(),
+                    proximo.getHoraInicio(), Duration.ofMillis(delanteMs));
+        }
+        int[] colocacion = plan.separador.colocar(i -> artistaDe(elegidas.getArchivo(i)), duracionesMs);
+
+        // Las locuciones vuelven cada tres canciones, en su orden original
+        List<Cancion> cancionesBloque = new ArrayList<>(delanteras);
+        int locucionesColocadas = 0;
+        long totalMs = 0;
+        for (int i = 0; i < colocacion.length; i++) {
+            cancionesBloque.add(crearCancionDesdeEntrada(elegidas.getArchivo(colocacion[i]), bloque.getGenero()));
+            totalMs += duracionesMs[colocacion[i]];
+            if ((i + 1) % CADA_N_CANCIONES_LOCUCION == 0 && locucionesColocadas < locuciones.size()) {
+                cancionesBloque.addAll(locuciones.get(locucionesColocadas));
+                totalMs += rellenoAcumuladoMs[locucionesColocadas + 1] - rellenoAcumuladoMs[locucionesColocadas];
+                locucionesColocadas++;
+            }
+        }
+        verificarCancelacion();
+        bloque.setCanciones(cancionesBloque);
+
+        if (plan.separador.getSinSeparar() > 0) {
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Bloque {}: {} canciones sin la separación de artista pedida con el propio bloque o sus vecinos",
+                    bloque.getHoraInicio() + "-" + bloque.getHoraFin(), plan.separador.getSinSeparar());
+        }
+        if (locucionesColocadas < locuciones.size()) {
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Bloque {}: quedan fuera {} de sus {} locuciones",
+                    bloque.getHoraInicio() + "-" + bloque.getHoraFin(), locuciones.size() - locucionesColocadas, locuciones.size());
+        }
+
+        // El historial guarda las canciones del día sin inserciones, como al generarlo
+        registrarHistorial(soloCanciones(lista));
+
+        TrazaGeneracion.registrar(Nivel.INFO, "Bloque {} regenerado en {} ms: {}",
+                bloque.getHoraInicio() + "-" + bloque.getHoraFin(), (System.nanoTime() - inicio) / 1_000_000,
+                colocacion.length + " canciones, desvío " + formatearDesvio(totalMs - elegidas.objetivoMs));
+        return bloque;
+    }
+
+    /**
+     * Entradas y duraciones de la carpeta de un bloque. Si la última generación no la incluyó
+     * se escanea solo esa carpeta y se añade a lo ya escaneado.
+     */
+    private void prepararCarpeta(String rutaCarpeta) {
+        if (instantanea != null && duracionesCarpeta.containsKey(rutaCarpeta)) {
+            return;
+        }
+
+        InstantaneaCatalogo carpeta = CatalogoMusical.getInstancia().escanear(Map.of(rutaCarpeta, CatalogoMusical.PROFUNDIDAD_MUSICA));
+        CacheMetadatos.getInstancia().completar(carpeta.getTodasLasEntradas());
+        instantanea = instantanea != null ? instantanea.combinar(carpeta) : carpeta;
+        duracionesCarpeta.put(rutaCarpeta, leerDuraciones(rutaCarpeta));
 
-        // Generar contenido por bloque
+        if (persistir) {
+            CatalogoMusical.getInstancia().guardar();
+            CacheMetadatos.getInstancia().guardar();
+        }
+    }
+
+    /**
+     * Copia de la lista con solo las canciones de música de cada bloque
+     */
+    private static ListaReproduccion soloCanciones(ListaReproduccion lista) {
+        ListaReproduccion copia = new ListaReproduccion(lista.getFecha());
         for (BloqueHora bloque : lista.getBloques()) {
-            generarContenidoBloqueConVerificacion(bloque);
+            BloqueHora soloMusica = new BloqueHora(bloque.getHoraInicio(), bloque.getHoraFin(), bloque.getGenero(), bloque.getRutaCarpeta());
+            for (Cancion cancion : bloque.getCanciones()) {
+                if (esCancionDeCarpeta(cancion, bloque.getRutaCarpeta())) {
+                    soloMusica.agregarCancion(cancion);
+                }
+            }
+            copia.agregarBloque(soloMusica);
         }
+        return copia;
+    }
 
-        // CORREGIDO: Insertar elementos especiales después de generar las canciones
-        insertarElementosEspecialesCorregido(lista);
-        generarCierre(lista);
+    private static boolean esMarcadorTiempo(Cancion cancion) {
+        return ".time".equals(cancion.getRutaArchivo());
+    }
+
+    /**
+     * Canción de música del bloque: elegida del catálogo o, en una lista leída de un .m3u,
+     * un archivo dentro de la carpeta del bloque
+     */
+    private static boolean esCancionDeCarpeta(Cancion cancion, String rutaCarpeta) {
+        if (cancion.getEntrada() != null) {
+            return true;
+        }
+        if (rutaCarpeta == null || rutaCarpeta.isEmpty() || cancion.getRutaArchivo() == null) {
+            return false;
+        }
+        return new File(cancion.getRutaArchivo()).getAbsolutePath()
+                .startsWith(new File(rutaCarpeta).getAbsolutePath() + File.separator);
+    }
+
+    private static int idDe(Cancion cancion) {
+        return cancion.getEntrada() != null ? cancion.getEntrada().getId() : RegistroIds.obtener(cancion.getRutaArchivo());
+    }
 
+    private static long duracionCanciones(List<Cancion> canciones) {
+        long totalMs = 0;
+        for (Cancion cancion : canciones) {
+            totalMs += cancion.getDuracion() != null ? cancion.getDuracion().toMillis() : DURACION_CANCION_DEFAULT.toMillis();
+        }
+        return totalMs;
+    }
+
+    /**
+     * Nombre del archivo .m3u de un día, el mismo que propone la exportación manual
+     */
+    public static String nombreArchivoDia(LocalDate fecha) {
+        return "Lista_" + fecha.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".m3u";
+    }
+
+    /**
+     * Lo que sonó antes de la fecha dentro de la ventana de descanso; null si el descanso está desactivado
+     */
+    private HistorialEmisiones.IndiceDescanso indiceDescanso(LocalDate fecha) {
+        if (descansoHoras <= 0) {
+            return null;
+        }
+        return HistorialEmisiones.getInstancia().indiceAntesDe(fecha, Duration.ofHours(descansoHoras));
+    }
+
+    /**
+     * Semilla de un día: no depende de qué otros días se generen ni en qué orden
+     */
+    private long semillaDia(LocalDate fecha) {
+        return FlujoAleatorio.semillaDerivada(semillaGeneracion, fecha.toEpochDay());
+    }
+
+    private SeparadorArtistas crearSeparador() {
+        return new SeparadorArtistas(separacionArtistaCanciones, separacionArtistaMinutos);
+    }
+
+    private void iniciarProgreso(OyenteProgreso oyente, int totalBloques) {
+        oyenteProgreso = oyente;
+        bloquesTerminados.set(0);
+        bloquesTotales = totalBloques;
+    }
+
+    private void informar(String mensaje) {
+        OyenteProgreso oyente = oyenteProgreso;
+        if (oyente != null) {
+            oyente.progreso(mensaje, bloquesTerminados.get(), bloquesTotales);
+        }
+    }
+
+    /**
+     * Corta la generación si el oyente la canceló o se interrumpió el hilo
+     */
+    private void verificarCancelacion() {
+        OyenteProgreso oyente = oyenteProgreso;
+        if ((oyente != null && oyente.isCancelado()) || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Generación cancelada");
+        }
+    }
+
+    /**
+     * Escaneo, metadatos y rotadores: lo que comparten todos los días de una generación
+     */
+    private void prepararGeneracion(List<ConfiguracionBloque> configuracion) {
+        iniciarSemilla();
+
+        // Fase de escaneo: todas las carpetas a la vez, una sola vez por generación
+        informar("Escaneando carpetas...");
+        instantanea = escanearCarpetas(configuracion);
+        verificarCancelacion();
+
+        // Duraciones reales: solo se sondean los archivos nuevos o modificados
+        informar("Leyendo duraciones y etiquetas...");
+        CacheMetadatos.getInstancia().completar(instantanea.getTodasLasEntradas());
+        verificarCancelacion();
+
+        duracionesCarpeta.clear();
+        for (ConfiguracionBloque config : configuracion) {
+            duracionesCarpeta.computeIfAbsent(config.getRutaCarpeta(), this::leerDuraciones);
+        }
+
+        inicializarRotadores();
+    }
+
+    private void iniciarSemilla() {
+        semillaGeneracion = semilla != null ? semilla : ThreadLocalRandom.current().nextLong();
+        regeneraciones = 0;
+        TrazaGeneracion.registrar(Nivel.INFO, "Semilla de generación: {}", semillaGeneracion);
+    }
+
+    private long[] leerDuraciones(String rutaCarpeta) {
+        return CacheMetadatos.getInstancia().obtenerDuracionesMs(
+                instantanea.obtenerTabla(rutaCarpeta), DURACION_CANCION_DEFAULT.toMillis());
+    }
+
+    /**
+     * Persistir lo escaneado para que la próxima generación no vuelva a listar carpetas sin cambios
+     */
+    private void guardarCatalogo() {
+        for (RotadorElementos rotador : Arrays.asList(rotadorIdentificaciones, rotadorFelicitaciones, rotadorPromosA, rotadorPromosB)) {
+            if (rotador != null) {
+                rotador.guardarEstado();
+            }
+        }
+        if (!persistir) {
+            return;
+        }
+
+        CatalogoMusical.getInstancia().guardar();
+        CacheMetadatos.getInstancia().guardar();
+        EstadoRotadores.getInstancia().guardar();
+    }
+
+    private void registrarHistorial(ListaReproduccion lista) {
+        if (persistir) {
+            HistorialEmisiones.getInstancia().registrar(lista);
+        }
+    }
+
+    /**
+     * Bloques, apertura y canciones de un día, todavía sin inserciones ni cierre.
+     * Los bloques se llenan a la vez; después, en el orden del día, se fija el orden
+     * de sus canciones respetando la separación de artistas entre bloques.
+     */
+    private ListaReproduccion planificarDia(LocalDate fecha, List<ConfiguracionBloque> configuracion, PlanDia plan) {
+        ListaReproduccion lista = new ListaReproduccion(fecha);
+        configurarBloques(lista, configuracion);
+        generarApertura(lista, plan.flujo(FLUJO_APERTURA));
+
+        // El primero comparte su hora con la apertura
+        List<BloqueHora> bloques = lista.getBloques();
+        Duration apertura = duracionTotal(lista.getApertura());
+        CancionesElegidas[] elegidas = new CancionesElegidas[bloques.size()];
+        List<List<Integer>> grupos = agruparPorCarpeta(bloques);
+        String[] raizGrupo = raicesDeGrupos(bloques, grupos);
+        List<Integer> conCarpeta = grupos.stream().flatMap(List::stream).sorted().collect(Collectors.toList());
+
+        // Sin el orden del día no se sabe qué locución cae en cada bloque: al llenarlos a la vez se elige
+        // con la duración media y, al colocarlas, se vuelve a elegir entre los mismos candidatos con la locución real
+        if (conCarpeta.size() <= 1 || (semilla != null && grupos.size() <= 1)) {
+            // En orden, con la duración exacta de cada locución
+            llenarGrupo(conCarpeta, bloques, apertura, plan, elegidas, raizGrupo);
+        } else if (semilla != null) {
+            // Con semilla fija solo van a la vez los grupos que no comparten canciones; dentro de cada grupo
+            // en orden, así qué bloque se queda una canción no depende de los hilos
+            plan.llenadoEnOrden = false;
+            grupos.parallelStream().forEach(grupo -> llenarGrupo(grupo, bloques, apertura, plan, elegidas, raizGrupo));
+        } else {
+            // Todos los bloques a la vez: los de una misma carpeta compiten por sus canciones,
+            // cada uno reclama las suyas en el conjunto del día y vuelve a elegir si otro se le adelantó
+            plan.llenadoEnOrden = false;
+            conCarpeta.parallelStream().forEach(indice -> llenarBloqueDelDia(indice, bloques, apertura, plan, elegidas, raizGrupo));
+        }
+
+        int locucionesAnteriores = 0;
+        Duration ocupado = apertura;
+        for (int indice = 0; indice < bloques.size(); indice++) {
+            if (elegidas[indice] != null) {
+                locucionesAnteriores += colocarCanciones(bloques.get(indice), ocupado, plan, elegidas[indice], locucionesAnteriores);
+            }
+            ocupado = Duration.ZERO;
+        }
         return lista;
     }
 
+    /**
+     * Bloques del día agrupados por carpeta, en orden dentro de cada grupo. Dos carpetas van
+     * al mismo grupo si una contiene a la otra, porque pueden ofrecer la misma canción:
+     * dos grupos nunca compiten por una canción.
+     */
+    private static List<List<Integer>> agruparPorCarpeta(List<BloqueHora> bloques) {
+        List<List<String>> carpetasGrupo = new ArrayList<>();
+        List<List<Integer>> grupos = new ArrayList<>();
+        for (int indice = 0; indice < bloques.size(); indice++) {
+            String rutaCarpeta = bloques.get(indice).getRutaCarpeta();
+            if (rutaCarpeta == null || rutaCarpeta.isEmpty()) {
+                continue;
+            }
+            String carpeta = new File(rutaCarpeta).getAbsolutePath();
+
+            int destino = -1;
+            for (int g = 0; g < grupos.size(); g++) {
+                if (!solapa(carpetasGrupo.get(g), carpeta)) {
+                    continue;
+                }
+                if (destino < 0) {
+                    destino = g;
+                } else {
+                    // La carpeta une dos grupos que hasta ahora eran independientes
+                    carpetasGrupo.get(destino).addAll(carpetasGrupo.remove(g));
+                    grupos.get(destino).addAll(grupos.remove(g));
+                    g--;
+                }
+            }
+            if (destino < 0) {
+                destino = grupos.size();
+                carpetasGrupo.add(new ArrayList<>());
+                grupos.add(new ArrayList<>());
+            }
+            carpetasGrupo.get(destino).add(carpeta);
+            grupos.get(destino).add(indice);
+        }
+        for (List<Integer> grupo : grupos) {
+            Collections.sort(grupo);
+        }
+        return grupos;
+    }
+
+    private static boolean solapa(List<String> carpetas, String carpeta) {
+        for (String otra : carpetas) {
+            if (otra.equals(carpeta) || otra.startsWith(carpeta + File.separator) || carpeta.startsWith(otra + File.separator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Carpeta de cada grupo que contiene a las demás del grupo, indexada por bloque
+     * (null en los bloques sin carpeta). Con la misma configuración es la misma en todos los días.
+     */
+    private static String[] raicesDeGrupos(List<BloqueHora> bloques, List<List<Integer>> grupos) {
+        String[] raices = new String[bloques.size()];
+        for (List<Integer> grupo : grupos) {
+            String raiz = null;
+            for (int indice : grupo) {
+                String carpeta = new File(bloques.get(indice).getRutaCarpeta()).getAbsolutePath();
+                if (raiz == null || carpeta.length() < raiz.length()) {
+                    raiz = carpeta;
+                }
+            }
+            for (int indice : grupo) {
+                raices[indice] = raiz;
+            }
+        }
+        return raices;
+    }
+
+    /**
+     * Elige las canciones de los bloques de un grupo, uno tras otro en el orden del día
+     */
+    private void llenarGrupo(List<Integer> grupo, List<BloqueHora> bloques, Duration apertura, PlanDia plan,
+                             CancionesElegidas[] elegidas, String[] raizGrupo) {
+        for (int indice : grupo) {
+            llenarBloqueDelDia(indice, bloques, apertura, plan, elegidas, raizGrupo);
+        }
+    }
+
+    private void llenarBloqueDelDia(int indice, List<BloqueHora> bloques, Duration apertura, PlanDia plan,
+                                    CancionesElegidas[] elegidas, String[] raizGrupo) {
+        verificarCancelacion();
+        BloqueHora bloque = bloques.get(indice);
+        Duration ocupado = indice == 0 ? apertura : Duration.ZERO;
+        // Cada bloque tiene su propio flujo aleatorio, derivado de su posición en el día
+        elegidas[indice] = generarContenidoBloqueConVerificacion(bloque, ocupado, plan, plan.flujo(FLUJO_BLOQUE, indice),
+                raizGrupo[indice]);
+        if (plan.llenadoEnOrden) {
+            plan.locucionesPlanificadas += elegidas[indice].getTotal() / CADA_N_CANCIONES_LOCUCION;
+        }
+
+        int terminados = bloquesTerminados.incrementAndGet();
+        OyenteProgreso oyente = oyenteProgreso;
+        if (oyente != null) {
+            oyente.progreso("Lista del " + plan.fecha + ": bloque " + bloque.getHoraInicio() + "-" + bloque.getHoraFin() +
+                    " (" + terminados + "/" + bloquesTotales + ")", terminados, bloquesTotales);
+        }
+    }
+
+    /**
+     * Lista en paralelo todas las carpetas distintas de los bloques y de los elementos especiales
+     */
+    private InstantaneaCatalogo escanearCarpetas(List<ConfiguracionBloque> configuracion) {
+        // Las carpetas de música pueden tener subcarpetas por artista; las especiales no
+        Map<String, Integer> rutas = new LinkedHashMap<>();
+        for (ConfiguracionBloque config : configuracion) {
+            rutas.put(config.getRutaCarpeta(), CatalogoMusical.PROFUNDIDAD_MUSICA);
+        }
+        rutas.putIfAbsent(rutaElementosEspeciales, 0);
+        rutas.putIfAbsent(rutaIdentificaciones, 0);
+        rutas.putIfAbsent(rutaFelicitaciones, 0);
+        rutas.putIfAbsent(rutaPromosA, 0);
+        rutas.putIfAbsent(rutaPromosB, 0);
+
+        long inicio = System.nanoTime();
+        InstantaneaCatalogo resultado = CatalogoMusical.getInstancia().escanear(rutas);
+        TrazaGeneracion.registrar(Nivel.INFO, "Escaneo de {} carpetas en {} ms",
+                resultado.getTotalCarpetas(), (System.nanoTime() - inicio) / 1_000_000);
+        return resultado;
+    }
+
     /**
      * NUEVO: Método corregido para insertar elementos especiales
      * Funciona bloque por bloque, insertando cada 3 canciones según el patrón
@@ -68,8 +756,8 @@ public class GeneradorListaService {
             List<Cancion> cancionesOriginales = new ArrayList<>(bloque.getCanciones());
             List<Cancion> cancionesConInserciones = new ArrayList<>();
 
-            System.out.println("\nProcesando bloque: " + bloque.getHoraInicio() + "-" + bloque.getHoraFin());
-            System.out.println("Canciones originales: " + cancionesOriginales.size());
+            TrazaGeneracion.registrar(Nivel.DEPURACION, "Insertando en bloque {}-{} ({} canciones)",
+                    bloque.getHoraInicio(), bloque.getHoraFin(), cancionesOriginales.size());
 
             for (int i = 0; i < cancionesOriginales.size(); i++) {
                 // Agregar la canción
@@ -77,8 +765,6 @@ public class GeneradorListaService {
 
                 // Verificar si es momento de insertar locución (cada 3 canciones)
                 if ((i + 1) % CADA_N_CANCIONES_LOCUCION == 0) {
-                    System.out.println("Insertando locución después de canción " + (i + 1));
-
                     // Insertar marcador de tiempo
                     Cancion marcadorTiempo = crearMarcadorTiempo();
                     cancionesConInserciones.add(marcadorTiempo);
@@ -91,12 +777,12 @@ public class GeneradorListaService {
                         if (elemento != null) {
                             Cancion cancionEspecial = convertirInsercionACancion(elemento);
                             cancionesConInserciones.add(cancionEspecial);
-                            System.out.println("  - Insertado: " + elemento.getNombre() + " (" + elemento.getTipo().getNombre() + ")");
+                            TrazaGeneracion.registrar(Nivel.DEPURACION, "  Locución {} tras la canción {}: {}",
+                                    contadorLocucionesGlobal, i + 1, elemento.getNombre());
                         }
                     }
 
                     contadorLocucionesGlobal++;
-                    System.out.println("Contador global de locuciones: " + contadorLocucionesGlobal);
                 }
             }
 
@@ -104,19 +790,20 @@ public class GeneradorListaService {
             bloque.setCanciones(cancionesConInserciones);
             bloque.setInserciones(new ArrayList<>()); // Limpiar inserciones separadas
 
-            System.out.println("Bloque finalizado con " + cancionesConInserciones.size() + " elementos totales");
+            TrazaGeneracion.registrar(Nivel.DEPURACION, "Bloque {}-{} finalizado con {} elementos",
+                    bloque.getHoraInicio(), bloque.getHoraFin(), cancionesConInserciones.size());
         }
     }
 
     /**
      * NUEVO: Crea marcador de tiempo
      */
-    private Cancion crearMarcadorTiempo() {
+    static Cancion crearMarcadorTiempo() {
         Cancion marcadorTiempo = new Cancion();
         marcadorTiempo.setTitulo("TIME_MARKER");
         marcadorTiempo.setArtista("TIME_MARKER");
         marcadorTiempo.setRutaArchivo(".time");
-        marcadorTiempo.setDuracion(Duration.ofSeconds(1));
+        marcadorTiempo.setDuracion(DURACION_MARCADOR_TIEMPO);
         marcadorTiempo.setGenero(Genero.VARIADO);
         return marcadorTiempo;
     }
@@ -133,59 +820,48 @@ public class GeneradorListaService {
         List<InsercionEspecial> elementos = new ArrayList<>();
         int posicionEnCiclo = numeroLocucion % 3; // Ciclo de 3
 
-        System.out.println("  Locución " + numeroLocucion + ", posición en ciclo: " + posicionEnCiclo);
-
         switch (posicionEnCiclo) {
             case 0: // Identificación + Felicitación
-                System.out.println("  Patrón: Identificación + Felicitación");
                 if (rotadorIdentificaciones != null) {
                     InsercionEspecial identificacion = rotadorIdentificaciones.obtenerSiguiente();
                     if (identificacion != null) {
                         elementos.add(identificacion);
-                        System.out.println("    - Identificación: " + identificacion.getNombre());
                     }
                 }
                 if (rotadorFelicitaciones != null) {
                     InsercionEspecial felicitacion = rotadorFelicitaciones.obtenerSiguiente();
                     if (felicitacion != null) {
                         elementos.add(felicitacion);
-                        System.out.println("    - Felicitación: " + felicitacion.getNombre());
                     }
                 }
                 break;
 
             case 1: // PromoA + PromoB (primera vez)
-                System.out.println("  Patrón: PromoA + PromoB (primera vez)");
                 if (rotadorPromosA != null) {
                     InsercionEspecial promoA = rotadorPromosA.obtenerSiguiente();
                     if (promoA != null) {
                         elementos.add(promoA);
-                        System.out.println("    - PromoA: " + promoA.getNombre());
                     }
                 }
                 if (rotadorPromosB != null) {
                     InsercionEspecial promoB = rotadorPromosB.obtenerSiguiente();
                     if (promoB != null) {
                         elementos.add(promoB);
-                        System.out.println("    - PromoB: " + promoB.getNombre());
                     }
                 }
                 break;
 
             case 2: // PromoA + PromoB (segunda vez)
-                System.out.println("  Patrón: PromoA + PromoB (segunda vez)");
                 if (rotadorPromosA != null) {
                     InsercionEspecial promoA = rotadorPromosA.obtenerSiguiente();
                     if (promoA != null) {
                         elementos.add(promoA);
-                        System.out.println("    - PromoA: " + promoA.getNombre());
                     }
                 }
                 if (rotadorPromosB != null) {
                     InsercionEspecial promoB = rotadorPromosB.obtenerSiguiente();
                     if (promoB != null) {
                         elementos.add(promoB);
-                        System.out.println("    - PromoB: " + promoB.getNombre());
                     }
                 }
                 break;
@@ -195,59 +871,275 @@ public class GeneradorListaService {
     }
 
     /**
-     * Método que genera contenido verificando que no se repitan canciones
+     * Método que genera contenido verificando que no se repitan canciones.
+     * Las canciones se eligen por duración para que, con marcadores e inserciones,
+     * el bloque ocupe su hora dentro de la tolerancia.
      */
-    private void generarContenidoBloqueConVerificacion(BloqueHora bloque) {
-        if (bloque.getRutaCarpeta() == null || bloque.getRutaCarpeta().isEmpty()) {
-            return;
+    private CancionesElegidas generarContenidoBloqueConVerificacion(BloqueHora bloque, Duration ocupado, PlanDia plan,
+                                                                    RandomGenerator random, String raizGrupo) {
+        if (plan.usadasEnRango == null) {
+            return reclamarBloque(bloque, ocupado, plan, random);
         }
 
-        List<Cancion> cancionesBloque = new ArrayList<>();
-        List<String> archivosDisponibles = ArchivoService.obtenerArchivosAudio(bloque.getRutaCarpeta());
-
-        // Mezclar archivos disponibles
-        Collections.shuffle(archivosDisponibles);
-
-        int cancionesNecesarias = CANCIONES_POR_HORA;
-        int intentos = 0;
-        int maxIntentos = archivosDisponibles.size() * 2;
+        // Por grupo y no por carpeta: un día que llena /Musica y otro que llena /Musica/Rock compiten por las mismas canciones
+        Object bloqueo = bloqueosCarpeta.computeIfAbsent(raizGrupo, ruta -> new Object());
+        synchronized (bloqueo) {
+            return reclamarBloque(bloque, ocupado, plan, random);
+        }
+    }
 
-        for (String rutaArchivo : archivosDisponibles) {
-            if (cancionesBloque.size() >= cancionesNecesarias) {
-                break;
+    /**
+     * Elige las canciones del bloque y las reclama en el conjunto del día. Si otro bloque
+     * reclamó antes alguna de ellas se vuelve a elegir, ya sin las que están tomadas.
+     */
+    private CancionesElegidas reclamarBloque(BloqueHora bloque, Duration ocupado, PlanDia plan, RandomGenerator random) {
+        for (int intento = 1; ; intento++) {
+            CancionesElegidas elegidas = llenarBloque(bloque, ocupado, plan, random);
+            boolean ultimo = intento == INTENTOS_RECLAMO;
+            if (elegidas.reclamar(plan.usadas, ultimo) || ultimo) {
+                elegidas.marcarEnRango(plan.usadasEnRango);
+                return elegidas;
             }
+            TrazaGeneracion.registrar(Nivel.DEPURACION, "Bloque {}: otro bloque tomó una de sus canciones, se vuelve a elegir",
+                    bloque.getHoraInicio() + "-" + bloque.getHoraFin());
+        }
+    }
 
-            if (intentos++ > maxIntentos) {
-                System.out.println("Advertencia: No se pudieron encontrar suficientes canciones únicas para el bloque " +
-                        bloque.getHoraInicio() + "-" + bloque.getHoraFin());
-                break;
+    private CancionesElegidas llenarBloque(BloqueHora bloque, Duration ocupado, PlanDia plan, RandomGenerator random) {
+        // Primero las que nadie usó en el rango ni están en descanso; luego las que llevan
+        // más tiempo sin sonar, y las de otros días del rango solo si faltan
+        TablaEntradas entradas = instantanea.obtenerTabla(bloque.getRutaCarpeta());
+        long[] duracionesCarpetaMs = duracionesCarpeta.computeIfAbsent(bloque.getRutaCarpeta(), this::leerDuraciones);
+        LocalDateTime inicioBloque = plan.fecha.atTime(bloque.getHoraInicio());
+        long objetivoMs = duracionBloque(bloque).minus(ocupado).toMillis();
+
+        // Muestreo sin reemplazo, ya en orden aleatorio: se deja de sacar canciones cuando las libres
+        // cubren el bloque más la ventana que recorre el rellenador, así una carpeta grande cuesta
+        // lo mismo que una pequeña. Las ya usadas hoy se rechazan al salir.
+        MuestraAleatoria muestra = new MuestraAleatoria(entradas.size(), random);
+        List<Integer> libres = new ArrayList<>();
+        List<Integer> enDescanso = new ArrayList<>();
+        List<Integer> usadasOtrosDias = new ArrayList<>();
+        long sumaLibresMs = 0;
+        int libresParaObjetivo = -1;
+        int sacada;
+        while ((sacada = muestra.siguiente(indice -> plan.usadas.contiene(entradas.getId(indice)))) >= 0) {
+            int id = entradas.getId(sacada);
+            if (plan.usadasEnRango != null && plan.usadasEnRango.contiene(id)) {
+                usadasOtrosDias.add(sacada);
+            } else if (plan.descanso != null && plan.descanso.enDescanso(id, inicioBloque)) {
+                enDescanso.add(sacada);
+            } else {
+                libres.add(sacada);
+                sumaLibresMs += duracionesCarpetaMs[sacada];
+                if (libresParaObjetivo < 0 && sumaLibresMs >= objetivoMs) {
+                    libresParaObjetivo = libres.size();
+                }
+                if (libresParaObjetivo >= 0 && libres.size() >= libresParaObjetivo + RellenadorBloque.VENTANA_REPARACION) {
+                    break;
+                }
             }
+        }
+
+        if (!enDescanso.isEmpty()) {
+            enDescanso.sort(Comparator.comparingLong((Integer i) ->
+                    plan.descanso.minutosDesdeUltimaEmision(entradas.getId(i), inicioBloque)).reversed());
+        }
+        libres.addAll(enDescanso);
+        libres.addAll(usadasOtrosDias);
+
+        // Los primeros candidatos, los que recorre el rellenador, ya van separados por artista
+        long[] duracionesMezcladasMs = new long[libres.size()];
+        for (int i = 0; i < duracionesMezcladasMs.length; i++) {
+            duracionesMezcladasMs[i] = duracionesCarpetaMs[libres.get(i)];
+        }
+
+        // Los otros bloques pueden estar eligiendo a la vez: aquí solo cuenta la separación dentro del bloque,
+        // la del bloque anterior se aplica al colocarlas
+        SeparadorArtistas separadorBloque = crearSeparador();
+        separadorBloque.iniciarBloque(bloque.getHoraInicio(), ocupado);
+        int[] orden = separadorBloque.ordenarCandidatos(
+                i -> artistaDe(entradas.get(libres.get(i))), duracionesMezcladasMs, objetivoMs);
+
+        List<EntradaCatalogo> candidatos = new ArrayList<>(libres.size());
+        long[] duracionesMs = new long[libres.size()];
+        for (int i = 0; i < duracionesMs.length; i++) {
+            candidatos.add(entradas.get(libres.get(orden[i])));
+            duracionesMs[i] = duracionesMezcladasMs[orden[i]];
+        }
 
-            // Verificar si la canción ya fue usada
-            if (!cancionesUsadas.contains(rutaArchivo)) {
-                Cancion cancion = crearCancionDesdeRuta(rutaArchivo, bloque.getGenero());
-                cancionesBloque.add(cancion);
-                cancionesUsadas.add(rutaArchivo);
+        CancionesElegidas elegidas = new CancionesElegidas(candidatos, duracionesMs, objetivoMs);
+        if (plan.llenadoEnOrden) {
+            elegir(elegidas, plan.locucionesPlanificadas, plan.previsionExacta, id -> true);
+        } else {
+            elegir(elegidas, 0, false, id -> true);
+        }
+        return elegidas;
+    }
+
+    /**
+     * Elige entre los candidatos las canciones que, con sus locuciones, mejor llenan el bloque
+     */
+    private void elegir(CancionesElegidas elegidas, int primeraLocucion, boolean previsionExacta, IntPredicate disponible) {
+        elegir(elegidas, disponible,
+                cantidad -> duracionLocucionesMs(primeraLocucion, cantidad / CADA_N_CANCIONES_LOCUCION, previsionExacta));
+        elegidas.primeraLocucion = primeraLocucion;
+        elegidas.previsionExacta = previsionExacta;
+    }
+
+    /**
+     * Igual, con la duración de las locuciones que recibe el bloque según cuántas canciones tenga
+     */
+    private static void elegir(CancionesElegidas elegidas, IntPredicate disponible, IntToLongFunction rellenoMs) {
+        List<Integer> indices = new ArrayList<>(elegidas.candidatos.size());
+        for (int i = 0; i < elegidas.candidatos.size(); i++) {
+            if (disponible.test(elegidas.candidatos.get(i).getId())) {
+                indices.add(i);
             }
         }
+        long[] duracionesMs = new long[indices.size()];
+        for (int i = 0; i < duracionesMs.length; i++) {
+            duracionesMs[i] = elegidas.duracionesMs[indices.get(i)];
+        }
+
+        int[] seleccion = RellenadorBloque.seleccionar(duracionesMs, elegidas.objetivoMs, rellenoMs);
+        for (int i = 0; i < seleccion.length; i++) {
+            seleccion[i] = indices.get(seleccion[i]);
+        }
+        elegidas.seleccion = seleccion;
+    }
+
+    /**
+     * Ordena las canciones elegidas según la separación de artistas, que ya conoce los bloques
+     * anteriores, y las agrega al bloque. Se llama en el orden del día.
+     *
+     * @return locuciones que tendrá el bloque
+     */
+    private int colocarCanciones(BloqueHora bloque, Duration ocupado, PlanDia plan, CancionesElegidas elegidas,
+                                 int locucionesAnteriores) {
+        if (elegidas.primeraLocucion != locucionesAnteriores || elegidas.previsionExacta != plan.previsionExacta) {
+            // Se eligieron sin saber qué locuciones caían en el bloque: se repite la elección, que es barata,
+            // entre los mismos candidatos menos los que tomaron después otros bloques de la carpeta
+            elegidas.liberar(plan.usadas);
+            elegir(elegidas, locucionesAnteriores, plan.previsionExacta, id -> !plan.usadas.contiene(id));
+            elegidas.reclamar(plan.usadas, true);
+            elegidas.marcarEnRango(plan.usadasEnRango);
+        }
+
+        long[] duracionesMs = new long[elegidas.getTotal()];
+        for (int i = 0; i < duracionesMs.length; i++) {
+            duracionesMs[i] = elegidas.duracionesMs[elegidas.seleccion[i]];
+        }
+        plan.separador.iniciarBloque(bloque.getHoraInicio(), ocupado);
+        int[] colocacion = plan.separador.colocar(i -> artistaDe(elegidas.getArchivo(i)), duracionesMs);
+
+        List<Cancion> cancionesBloque = new ArrayList<>(colocacion.length);
+        long sumaMs = 0;
+        for (int posicion : colocacion) {
+            cancionesBloque.add(crearCancionDesdeEntrada(elegidas.getArchivo(posicion), bloque.getGenero()));
+            sumaMs += duracionesMs[posicion];
+        }
+
+        int locuciones = cancionesBloque.size() / CADA_N_CANCIONES_LOCUCION;
+        long totalMs = sumaMs + duracionLocucionesMs(locucionesAnteriores, locuciones, plan.previsionExacta);
 
         bloque.setCanciones(cancionesBloque);
 
-        System.out.println("Bloque " + bloque.getHoraInicio() + "-" + bloque.getHoraFin() +
-                ": " + cancionesBloque.size() + " canciones únicas agregadas. " +
-                "Total canciones usadas en la lista: " + cancionesUsadas.size());
+        long desvioMs = totalMs - elegidas.objetivoMs;
+        if (Math.abs(desvioMs) > Duration.ofMinutes(bloque.getToleranciaMinutos()).toMillis()) {
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Advertencia: el bloque {} queda fuera de tolerancia ({}); hay {} canciones disponibles",
+                    bloque.getHoraInicio() + "-" + bloque.getHoraFin(), formatearDesvio(desvioMs), elegidas.candidatos.size());
+        }
+
+        TrazaGeneracion.registrar(Nivel.INFO, "Bloque {}: {} canciones únicas agregadas, desvío {}",
+                bloque.getHoraInicio() + "-" + bloque.getHoraFin(), cancionesBloque.size(), formatearDesvio(desvioMs));
+        if (plan.separador.getSinSeparar() > 0) {
+            TrazaGeneracion.registrar(Nivel.INFO, "Bloque {}: {} canciones sin la separación de artista pedida (pocos artistas disponibles)",
+                    bloque.getHoraInicio() + "-" + bloque.getHoraFin(), plan.separador.getSinSeparar());
+        }
+        return locuciones;
+    }
+
+    /**
+     * Artista de una entrada con el mismo criterio que {@link #crearCancionDesdeEntrada}: etiquetas ID3
+     * o "Artista - Título" en el nombre; null si no se conoce
+     */
+    static String artistaDe(EntradaCatalogo archivo) {
+        MetadatosAudio metadatos = CacheMetadatos.getInstancia().obtener(archivo);
+        if (metadatos.getArtista() != null && metadatos.getTitulo() != null) {
+            return metadatos.getArtista();
+        }
+        String nombreSinExtension = archivo.getNombreSinExtension();
+        int separador = nombreSinExtension.indexOf(" - ");
+        return separador >= 0 ? nombreSinExtension.substring(0, separador).trim() : null;
+    }
+
+    /**
+     * Duración nominal del bloque (un bloque que cruza medianoche suma 24 horas)
+     */
+    private Duration duracionBloque(BloqueHora bloque) {
+        Duration duracion = Duration.between(bloque.getHoraInicio(), bloque.getHoraFin());
+        return duracion.isNegative() ? duracion.plusDays(1) : duracion;
+    }
+
+    /**
+     * Duración de las locuciones desde la indicada, sin avanzar los rotadores:
+     * marcador de tiempo más los elementos que el patrón asigna a cada una.
+     * Sin previsión exacta (varios días a la vez) se usa la duración media de cada rotador.
+     */
+    private long duracionLocucionesMs(int primeraLocucion, int cantidad, boolean previsionExacta) {
+        long totalMs = 0;
+        for (int numero = primeraLocucion; numero < primeraLocucion + cantidad; numero++) {
+            totalMs += DURACION_MARCADOR_TIEMPO.toMillis();
+
+            // Locuciones anteriores de cada tipo = posición que tendrá el rotador al llegar a esta
+            int identificacionesPrevias = (numero + 2) / 3;
+            int promosPrevias = numero - identificacionesPrevias;
+            if (numero % 3 == 0) {
+                totalMs += duracionPrevistaMs(rotadorIdentificaciones, identificacionesPrevias, previsionExacta);
+                totalMs += duracionPrevistaMs(rotadorFelicitaciones, identificacionesPrevias, previsionExacta);
+            } else {
+                totalMs += duracionPrevistaMs(rotadorPromosA, promosPrevias, previsionExacta);
+                totalMs += duracionPrevistaMs(rotadorPromosB, promosPrevias, previsionExacta);
+            }
+        }
+        return totalMs;
+    }
+
+    private static long duracionPrevistaMs(RotadorElementos rotador, int desplazamiento, boolean previsionExacta) {
+        if (rotador == null) {
+            return 0;
+        }
+        return previsionExacta ? rotador.duracionPrevista(desplazamiento).toMillis() : rotador.getDuracionMediaMs();
+    }
+
+    private static Duration duracionTotal(List<InsercionEspecial> inserciones) {
+        Duration total = Duration.ZERO;
+        for (InsercionEspecial insercion : inserciones) {
+            total = total.plus(insercion.getDuracion());
+        }
+        return total;
+    }
+
+    private static String formatearDesvio(long desvioMs) {
+        long segundos = Math.abs(desvioMs) / 1000;
+        return (desvioMs < 0 ? "-" : "+") + segundos / 60 + ":" + String.format("%02d", segundos % 60);
     }
 
     /**
-     * Método auxiliar para crear canción desde ruta
+     * Método auxiliar para crear canción desde una entrada del catálogo
      */
-    private Cancion crearCancionDesdeRuta(String rutaArchivo, Genero genero) {
-        File archivo = new File(rutaArchivo);
-        String nombreSinExtension = archivo.getName().replaceFirst("[.][^.]+$", "");
+    static Cancion crearCancionDesdeEntrada(EntradaCatalogo archivo, Genero genero) {
+        String nombreSinExtension = archivo.getNombreSinExtension();
 
         Cancion cancion = new Cancion();
 
-        if (nombreSinExtension.contains(" - ")) {
+        MetadatosAudio metadatos = CacheMetadatos.getInstancia().obtener(archivo);
+        if (metadatos.getArtista() != null && metadatos.getTitulo() != null) {
+            // Etiquetas ID3: más fiables que el nombre del archivo
+            cancion.setArtista(metadatos.getArtista());
+            cancion.setTitulo(metadatos.getTitulo());
+        } else if (nombreSinExtension.contains(" - ")) {
             String[] partes = nombreSinExtension.split(" - ", 2);
             cancion.setArtista(partes[0].trim());
             cancion.setTitulo(partes[1].trim());
@@ -256,9 +1148,9 @@ public class GeneradorListaService {
             cancion.setTitulo(nombreSinExtension);
         }
 
-        cancion.setRutaArchivo(rutaArchivo);
+        cancion.setEntrada(archivo);
         cancion.setGenero(genero);
-        cancion.setDuracion(Duration.ofMinutes(3).plusSeconds(30));
+        cancion.setDuracion(CacheMetadatos.getInstancia().obtenerDuracion(archivo, DURACION_CANCION_DEFAULT));
 
         return cancion;
     }
@@ -268,37 +1160,38 @@ public class GeneradorListaService {
      */
     // Reemplazar el método inicializarRotadores() en GeneradorListaService.java
     private void inicializarRotadores() {
-        System.out.println("Inicializando rotadores...");
 
         if (rutaIdentificaciones != null && !rutaIdentificaciones.isEmpty()) {
-            System.out.println("Inicializando rotador de identificaciones: " + rutaIdentificaciones);
-            rotadorIdentificaciones = new RotadorElementos(rutaIdentificaciones, "identificacion");
+            rotadorIdentificaciones = new RotadorElementos(rutaIdentificaciones, "identificacion", instantanea.obtenerEntradas(rutaIdentificaciones), semillaRotador("identificacion"));
         } else {
-            System.out.println("ADVERTENCIA: Ruta de identificaciones no configurada");
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "ADVERTENCIA: Ruta de identificaciones no configurada");
         }
 
         if (rutaFelicitaciones != null && !rutaFelicitaciones.isEmpty()) {
-            System.out.println("Inicializando rotador de felicitaciones: " + rutaFelicitaciones);
-            rotadorFelicitaciones = new RotadorElementos(rutaFelicitaciones, "felicitacion");
+            rotadorFelicitaciones = new RotadorElementos(rutaFelicitaciones, "felicitacion", instantanea.obtenerEntradas(rutaFelicitaciones), semillaRotador("felicitacion"));
         } else {
-            System.out.println("ADVERTENCIA: Ruta de felicitaciones no configurada");
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "ADVERTENCIA: Ruta de felicitaciones no configurada");
         }
 
         if (rutaPromosA != null && !rutaPromosA.isEmpty()) {
-            System.out.println("Inicializando rotador de promosA: " + rutaPromosA);
-            rotadorPromosA = new RotadorElementos(rutaPromosA, "promoa");
+            rotadorPromosA = new RotadorElementos(rutaPromosA, "promoa", instantanea.obtenerEntradas(rutaPromosA), semillaRotador("promoa"));
         } else {
-            System.out.println("ADVERTENCIA: Ruta de promosA no configurada");
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "ADVERTENCIA: Ruta de promosA no configurada");
         }
 
         if (rutaPromosB != null && !rutaPromosB.isEmpty()) {
-            System.out.println("Inicializando rotador de promosB: " + rutaPromosB);
-            rotadorPromosB = new RotadorElementos(rutaPromosB, "promob");
+            rotadorPromosB = new RotadorElementos(rutaPromosB, "promob", instantanea.obtenerEntradas(rutaPromosB), semillaRotador("promob"));
         } else {
-            System.out.println("ADVERTENCIA: Ruta de promosB no configurada");
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "ADVERTENCIA: Ruta de promosB no configurada");
         }
 
-        System.out.println("Rotadores inicializados.");
+    }
+
+    /**
+     * Semilla del punto de partida de un rotador, o null para seguir donde quedó la generación anterior
+     */
+    private Long semillaRotador(String prefijoArchivo) {
+        return semilla != null ? FlujoAleatorio.semillaDerivada(semillaGeneracion, FLUJO_ROTADOR, prefijoArchivo.hashCode()) : null;
     }
 
     /**
@@ -322,19 +1215,19 @@ public class GeneradorListaService {
     /**
      * Genera la secuencia de apertura
      */
-    private void generarApertura(ListaReproduccion lista) {
+    private void generarApertura(ListaReproduccion lista, RandomGenerator random) {
         List<InsercionEspecial> apertura = new ArrayList<>();
 
         // 1. Himno Nacional (archivos que empiecen con "01")
-        InsercionEspecial himnoNacional = obtenerElementoPorIdentificador("01", InsercionEspecial.TipoInsercion.HIMNO_NACIONAL);
+        InsercionEspecial himnoNacional = obtenerElementoPorIdentificador("01", InsercionEspecial.TipoInsercion.HIMNO_NACIONAL, random);
         if (himnoNacional != null) apertura.add(himnoNacional);
 
         // 2. Himno de Guerrero (archivos que empiecen con "02")
-        InsercionEspecial himnoGuerrero = obtenerElementoPorIdentificador("02", InsercionEspecial.TipoInsercion.HIMNO_GUERRERO);
+        InsercionEspecial himnoGuerrero = obtenerElementoPorIdentificador("02", InsercionEspecial.TipoInsercion.HIMNO_GUERRERO, random);
         if (himnoGuerrero != null) apertura.add(himnoGuerrero);
 
         // 3. Poema (archivos que empiecen con "03")
-        InsercionEspecial poema = obtenerElementoPorIdentificador("03", InsercionEspecial.TipoInsercion.POEMA);
+        InsercionEspecial poema = obtenerElementoPorIdentificador("03", InsercionEspecial.TipoInsercion.POEMA, random);
         if (poema != null) apertura.add(poema);
 
         lista.setApertura(apertura);
@@ -343,17 +1236,17 @@ public class GeneradorListaService {
     /**
      * Genera la secuencia de cierre (orden inverso a la apertura)
      */
-    private void generarCierre(ListaReproduccion lista) {
+    private void generarCierre(ListaReproduccion lista, RandomGenerator random) {
         List<InsercionEspecial> cierre = new ArrayList<>();
 
         // Orden inverso: Poema, Himno Guerrero, Himno Nacional
-        InsercionEspecial poema = obtenerElementoPorIdentificador("03", InsercionEspecial.TipoInsercion.POEMA);
+        InsercionEspecial poema = obtenerElementoPorIdentificador("03", InsercionEspecial.TipoInsercion.POEMA, random);
         if (poema != null) cierre.add(poema);
 
-        InsercionEspecial himnoGuerrero = obtenerElementoPorIdentificador("02", InsercionEspecial.TipoInsercion.HIMNO_GUERRERO);
+        InsercionEspecial himnoGuerrero = obtenerElementoPorIdentificador("02", InsercionEspecial.TipoInsercion.HIMNO_GUERRERO, random);
         if (himnoGuerrero != null) cierre.add(himnoGuerrero);
 
-        InsercionEspecial himnoNacional = obtenerElementoPorIdentificador("01", InsercionEspecial.TipoInsercion.HIMNO_NACIONAL);
+        InsercionEspecial himnoNacional = obtenerElementoPorIdentificador("01", InsercionEspecial.TipoInsercion.HIMNO_NACIONAL, random);
         if (himnoNacional != null) cierre.add(himnoNacional);
 
         lista.setCierre(cierre);
@@ -362,46 +1255,33 @@ public class GeneradorListaService {
     /**
      * Obtiene un elemento por identificador de la carpeta de elementos especiales
      */
-    private InsercionEspecial obtenerElementoPorIdentificador(String identificador, InsercionEspecial.TipoInsercion tipo) {
-        File carpeta = new File(rutaElementosEspeciales);
-        if (!carpeta.exists() || !carpeta.isDirectory()) {
-            return null;
+    private InsercionEspecial obtenerElementoPorIdentificador(String identificador, InsercionEspecial.TipoInsercion tipo,
+                                                              RandomGenerator random) {
+        List<EntradaCatalogo> archivos = new ArrayList<>();
+        for (EntradaCatalogo entrada : instantanea.obtenerEntradas(rutaElementosEspeciales)) {
+            if (entrada.getNombre().startsWith(identificador)) {
+                archivos.add(entrada);
+            }
         }
 
-        File[] archivos = carpeta.listFiles(file ->
-                file.isFile() &&
-                        file.getName().startsWith(identificador) &&
-                        esArchivoAudio(file.getName())
-        );
-
-        if (archivos == null || archivos.length == 0) {
+        if (archivos.isEmpty()) {
             return null;
         }
 
         // Seleccionar archivo aleatorio si hay varios con el mismo identificador
-        File archivoSeleccionado = archivos[new Random().nextInt(archivos.length)];
+        EntradaCatalogo archivoSeleccionado = archivos.get(random.nextInt(archivos.size()));
         return crearInsercionDesdeArchivo(archivoSeleccionado, tipo);
     }
 
-    /**
-     * Verifica si un archivo es de audio
-     */
-    private boolean esArchivoAudio(String nombreArchivo) {
-        String extension = nombreArchivo.toLowerCase();
-        return extension.endsWith(".mp3") || extension.endsWith(".wav") ||
-                extension.endsWith(".wma") || extension.endsWith(".ogg") ||
-                extension.endsWith(".aac");
-    }
-
     /**
      * Crea una inserción especial desde un archivo
      */
-    private InsercionEspecial crearInsercionDesdeArchivo(File archivo, InsercionEspecial.TipoInsercion tipo) {
+    static InsercionEspecial crearInsercionDesdeArchivo(EntradaCatalogo archivo, InsercionEspecial.TipoInsercion tipo) {
         InsercionEspecial insercion = new InsercionEspecial();
-        String nombreSinExtension = archivo.getName().replaceFirst("[.][^.]+$", "");
+        String nombreSinExtension = archivo.getNombreSinExtension();
 
         insercion.setNombre(nombreSinExtension);
-        insercion.setRutaArchivo(archivo.getAbsolutePath());
+        insercion.setRutaArchivo(archivo.getRutaAbsoluta());
         insercion.setTipo(tipo);
 
         switch (tipo) {
@@ -416,13 +1296,16 @@ public class GeneradorListaService {
                 insercion.setDuracion(Duration.ofSeconds(30));
         }
 
+        // La duración por tipo solo queda si no se pudo leer la real del archivo
+        insercion.setDuracion(CacheMetadatos.getInstancia().obtenerDuracion(archivo, insercion.getDuracion()));
+
         return insercion;
     }
 
     /**
      * Convierte una inserción especial en una canción para poder insertarla en la secuencia
      */
-    private Cancion convertirInsercionACancion(InsercionEspecial insercion) {
+    static Cancion convertirInsercionACancion(InsercionEspecial insercion) {
         Cancion cancion = new Cancion();
         cancion.setTitulo(insercion.getNombre());
         cancion.setArtista(insercion.getTipo().getNombre());
@@ -451,6 +1334,43 @@ public class GeneradorListaService {
         return configuracion;
     }
 
+    public int getDescansoHoras() { return descansoHoras; }
+    public void setDescansoHoras(int descansoHoras) {
+        this.descansoHoras = Math.max(0, descansoHoras);
+    }
+
+    public int getSeparacionArtistaCanciones() { return separacionArtistaCanciones; }
+    public void setSeparacionArtistaCanciones(int separacionArtistaCanciones) {
+        this.separacionArtistaCanciones = Math.max(0, separacionArtistaCanciones);
+    }
+
+    public int getSeparacionArtistaMinutos() { return separacionArtistaMinutos; }
+    public void setSeparacionArtistaMinutos(int separacionArtistaMinutos) {
+        this.separacionArtistaMinutos = Math.max(0, separacionArtistaMinutos);
+    }
+
+    public Long getSemilla() { return semilla; }
+
+    /**
+     * Fija la semilla de las próximas generaciones: con la misma semilla y el mismo catálogo
+     * se obtiene exactamente la misma lista. Con null cada generación usa una semilla nueva.
+     * Con semilla fija los rotadores empiezan donde indica la semilla y no donde quedaron.
+     */
+    public void setSemilla(Long semilla) {
+        this.semilla = semilla;
+    }
+
+    public boolean isPersistir() { return persistir; }
+
+    /**
+     * Con false las generaciones no escriben en la carpeta de datos: no anotan el historial
+     * de emisiones ni guardan catálogo, metadatos ni estado de los rotadores. Para medir
+     * la generación sin el coste de la persistencia.
+     */
+    public void setPersistir(boolean persistir) {
+        this.persistir = persistir;
+    }
+
     // Getters y Setters para rutas de carpetas especiales
     public String getRutaElementosEspeciales() { return rutaElementosEspeciales; }
     public void setRutaElementosEspeciales(String rutaElementosEspeciales) {
@@ -477,6 +1397,124 @@ public class GeneradorListaService {
         this.rutaPromosB = rutaPromosB;
     }
 
+    /**
+     * Estado de la planificación de un día: canciones ya elegidas y locuciones reservadas
+     */
+    private static class PlanDia {
+        private final LocalDate fecha;
+        private final long semilla;
+        private final BitSetConcurrente usadas;        // por número de entrada del catálogo
+        private final BitSetConcurrente usadasEnRango; // null si se genera un solo día
+        private final boolean previsionExacta;
+        private boolean llenadoEnOrden = true;         // false si los bloques se llenan a la vez
+        private final HistorialEmisiones.IndiceDescanso descanso; // null si el descanso está desactivado
+        private final SeparadorArtistas separador;
+        private int locucionesPlanificadas;
+
+        PlanDia(LocalDate fecha, long semilla, BitSetConcurrente usadas, BitSetConcurrente usadasEnRango, boolean previsionExacta,
+                HistorialEmisiones.IndiceDescanso descanso, SeparadorArtistas separador) {
+            this.fecha = fecha;
+            this.semilla = semilla;
+            this.usadas = usadas;
+            this.usadasEnRango = usadasEnRango;
+            this.previsionExacta = previsionExacta;
+            this.descanso = descanso;
+            this.separador = separador;
+        }
+
+        /**
+         * Flujo aleatorio propio de una parte del día (apertura, un bloque...)
+         */
+        SplittableRandom flujo(long... claves) {
+            return FlujoAleatorio.derivar(semilla, claves);
+        }
+    }
+
+    /**
+     * Candidatos de un bloque en el orden en que los recorre el rellenador y los que se eligieron,
+     * antes de ordenarlos en el día. Se conservan los candidatos para poder volver a elegir.
+     */
+    private static class CancionesElegidas {
+        private final List<EntradaCatalogo> candidatos;
+        private final long[] duracionesMs;       // de cada candidato
+        private final long objetivoMs;
+        private int[] seleccion = new int[0];    // índices de los candidatos elegidos
+        private int primeraLocucion;             // previsión de locuciones con la que se eligieron
+        private boolean previsionExacta;
+
+        CancionesElegidas(List<EntradaCatalogo> candidatos, long[] duracionesMs, long objetivoMs) {
+            this.candidatos = candidatos;
+            this.duracionesMs = duracionesMs;
+            this.objetivoMs = objetivoMs;
+        }
+
+        int getTotal() {
+            return seleccion.length;
+        }
+
+        EntradaCatalogo getArchivo(int posicion) {
+            return candidatos.get(seleccion[posicion]);
+        }
+
+        /**
+         * Reclama todas las elegidas. Si otro bloque se adelantó con alguna se devuelven las ya
+         * reclamadas y false; si es el último intento, en cambio, las perdidas se quitan del bloque.
+         */
+        boolean reclamar(BitSetConcurrente usadas, boolean quedarseConLasDemas) {
+            boolean[] reclamada = new boolean[seleccion.length];
+            int perdidas = 0;
+            for (int i = 0; i < seleccion.length; i++) {
+                reclamada[i] = usadas.agregar(getArchivo(i).getId());
+                if (!reclamada[i]) {
+                    perdidas++;
+                }
+            }
+            if (perdidas == 0) {
+                return true;
+            }
+
+            if (!quedarseConLasDemas) {
+                for (int i = 0; i < seleccion.length; i++) {
+                    if (reclamada[i]) {
+                        usadas.quitar(getArchivo(i).getId());
+                    }
+                }
+                return false;
+            }
+
+            int[] conservadas = new int[seleccion.length - perdidas];
+            int total = 0;
+            for (int i = 0; i < seleccion.length; i++) {
+                if (reclamada[i]) {
+                    conservadas[total++] = seleccion[i];
+                }
+            }
+            seleccion = conservadas;
+            return false;
+        }
+
+        /**
+         * Devuelve las elegidas al conjunto del día para volver a elegir
+         */
+        void liberar(BitSetConcurrente usadas) {
+            for (int i = 0; i < seleccion.length; i++) {
+                usadas.quitar(getArchivo(i).getId());
+            }
+        }
+
+        /**
+         * Marca las elegidas como usadas en el rango; las que deja de elegir un bloque siguen marcadas
+         */
+        void marcarEnRango(BitSetConcurrente usadasEnRango) {
+            if (usadasEnRango == null) {
+                return;
+            }
+            for (int i = 0; i < seleccion.length; i++) {
+                usadasEnRango.agregar(getArchivo(i).getId());
+            }
+        }
+    }
+
     // Clase auxiliar para configuración de bloques
     public static class ConfiguracionBloque {
         private LocalTime horaInicio;
@@ -510,158 +1548,269 @@ public class GeneradorListaService {
      */
     /**
      * Clase interna CORREGIDA para manejar la rotación de elementos especiales
-     * Maneja secuencia numérica correcta: inicio aleatorio, luego secuencial
+     * Maneja secuencia numérica correcta: inicio aleatorio, luego secuencial.
+     * Es pública para poder medirla desde el módulo de benchmarks.
      */
-    private static class RotadorElementos {
+    public static class RotadorElementos {
+        private static final Pattern NUMERO_INICIAL = Pattern.compile("^(\\d{2,3})");
+        private static final Pattern NUMERO = Pattern.compile("(\\d{2,3})");
+        private static final int SIN_NUMERO = 999; // se ordena al final
+
         private String rutaCarpeta;
         private String prefijoArchivo;
         private int indiceActual;
-        private List<File> archivosDisponibles;
-        private Random random = new Random();
+        private List<EntradaCatalogo> archivosDisponibles;
+        private final RandomGenerator random;
+        private final boolean retomarPosicion;
         private boolean inicializado = false;
+        private volatile long duracionMediaMs = -1;
+        private long huella;
+
+        public RotadorElementos(String rutaCarpeta, String prefijoArchivo, List<EntradaCatalogo> entradasCarpeta) {
+            this(rutaCarpeta, prefijoArchivo, entradasCarpeta, null);
+        }
 
-        public RotadorElementos(String rutaCarpeta, String prefijoArchivo) {
+        /**
+         * Con semilla, el punto de partida sale de ella en lugar del estado guardado
+         */
+        public RotadorElementos(String rutaCarpeta, String prefijoArchivo, List<EntradaCatalogo> entradasCarpeta, Long semilla) {
             this.rutaCarpeta = rutaCarpeta;
             this.prefijoArchivo = prefijoArchivo;
+            this.random = semilla != null ? new SplittableRandom(semilla) : new SplittableRandom();
+            this.retomarPosicion = semilla == null;
             this.archivosDisponibles = new ArrayList<>();
-            inicializar();
+            inicializar(entradasCarpeta);
         }
 
-        private void inicializar() {
+        private void inicializar(List<EntradaCatalogo> entradasCarpeta) {
             File carpeta = new File(rutaCarpeta);
             if (!carpeta.exists() || !carpeta.isDirectory()) {
-                System.out.println("Carpeta no existe: " + rutaCarpeta);
+                TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Carpeta no existe: {}", rutaCarpeta);
                 return;
             }
 
-            // Buscar TODOS los archivos de audio numerados
-            File[] archivos = carpeta.listFiles(file -> {
-                return file.isFile() &&
-                        esArchivoAudio(file.getName()) &&
-                        tieneNumeroAlInicio(file.getName());
-            });
+            // Si la carpeta no cambió desde la última vez, se retoma la secuencia guardada sin reordenar
+            huella = calcularHuella(entradasCarpeta);
+            EstadoRotadores.Estado guardado = EstadoRotadores.getInstancia().obtener(clave());
+            if (guardado != null && guardado.getHuella() == huella && retomar(guardado, entradasCarpeta)) {
+                inicializado = true;
+                TrazaGeneracion.registrar(Nivel.INFO, "Rotador {} retomado: {} archivos, sigue en {}",
+                        prefijoArchivo, archivosDisponibles.size(), archivosDisponibles.get(indiceActual).getNombre());
+                return;
+            }
 
-            if (archivos != null && archivos.length > 0) {
-                System.out.println("Rotador " + prefijoArchivo + " - Archivos encontrados en " + rutaCarpeta + ":");
-                for (File archivo : archivos) {
-                    System.out.println("  - " + archivo.getName() + " (número: " + extraerNumeroDeArchivo(archivo.getName()) + ")");
+            // Buscar TODOS los archivos de audio numerados (el catálogo ya filtra los de audio)
+            List<EntradaCatalogo> archivos = new ArrayList<>();
+            for (EntradaCatalogo entrada : entradasCarpeta) {
+                if (tieneNumeroAlInicio(entrada.getNombre())) {
+                    archivos.add(entrada);
                 }
+            }
 
-                // CORREGIDO: Ordenar por número extraído, no por nombre
-                java.util.Arrays.sort(archivos, (a, b) -> {
-                    int numA = Integer.parseInt(extraerNumeroDeArchivo(a.getName()));
-                    int numB = Integer.parseInt(extraerNumeroDeArchivo(b.getName()));
-                    return Integer.compare(numA, numB);
-                });
+            if (!archivos.isEmpty()) {
+                TrazaGeneracion.registrar(Nivel.DEPURACION, "Rotador {}: {} archivos numerados en {}",
+                        prefijoArchivo, archivos.size(), rutaCarpeta);
 
-                // Agregar archivos ordenados a la lista
-                for (File archivo : archivos) {
-                    archivosDisponibles.add(archivo);
+                // CORREGIDO: Ordenar por número extraído, no por nombre (cada número se extrae una sola vez)
+                Map<EntradaCatalogo, Integer> numeros = new HashMap<>();
+                for (EntradaCatalogo archivo : archivos) {
+                    numeros.put(archivo, extraerNumeroDeArchivo(archivo.getNombre()));
                 }
+                archivos.sort(Comparator.comparingInt(numeros::get));
+
+                // Agregar archivos ordenados a la lista
+                archivosDisponibles.addAll(archivos);
 
                 if (!archivosDisponibles.isEmpty()) {
-                    // INICIO ALEATORIO: Empezar desde un índice aleatorio
-                    indiceActual = random.nextInt(archivosDisponibles.size());
+                    // Si la carpeta cambió se sigue por el archivo que tocaba; si ya no está, inicio aleatorio
+                    indiceActual = guardado != null && retomarPosicion ? posicionDe(guardado) : -1;
+                    if (indiceActual < 0) {
+                        indiceActual = random.nextInt(archivosDisponibles.size());
+                    }
                     inicializado = true;
 
-                    System.out.println("Rotador " + prefijoArchivo + " inicializado:");
-                    System.out.println("  - Total archivos: " + archivosDisponibles.size());
-                    System.out.println("  - Índice inicial aleatorio: " + indiceActual);
-                    System.out.println("  - Archivo inicial: " + archivosDisponibles.get(indiceActual).getName());
-                    System.out.println("  - Secuencia ordenada:");
-                    for (int i = 0; i < archivosDisponibles.size(); i++) {
-                        System.out.println("    [" + i + "] " + archivosDisponibles.get(i).getName());
+                    TrazaGeneracion.registrar(Nivel.INFO, "Rotador {} inicializado: {} archivos, empieza en {}",
+                            prefijoArchivo, archivosDisponibles.size(), archivosDisponibles.get(indiceActual).getNombre());
+                    if (TrazaGeneracion.activo(Nivel.DEPURACION)) {
+                        for (int i = 0; i < archivosDisponibles.size(); i++) {
+                            TrazaGeneracion.registrar(Nivel.DEPURACION, "  [{}] {}", i, archivosDisponibles.get(i).getNombre());
+                        }
                     }
                 }
             } else {
-                System.out.println("No se encontraron archivos numerados en: " + rutaCarpeta);
-                System.out.println("Archivos en la carpeta:");
-                File[] todosArchivos = carpeta.listFiles();
+                TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "No se encontraron archivos numerados en: {}", rutaCarpeta);
+                File[] todosArchivos = TrazaGeneracion.activo(Nivel.DEPURACION) ? carpeta.listFiles() : null;
                 if (todosArchivos != null) {
                     for (File archivo : todosArchivos) {
-                        boolean esAudio = esArchivoAudio(archivo.getName());
-                        boolean tieneNumero = tieneNumeroAlInicio(archivo.getName());
-                        System.out.println("  - " + archivo.getName() +
-                                " (es audio: " + esAudio + ", tiene número: " + tieneNumero + ")");
+                        TrazaGeneracion.registrar(Nivel.DEPURACION, "  - {} (es audio: {}, tiene número: {})", archivo.getName(),
+                                EscanerCarpetas.esArchivoAudio(archivo.getName()), tieneNumeroAlInicio(archivo.getName()));
                     }
                 }
             }
         }
 
+        /**
+         * Reconstruye la secuencia guardada con las entradas actuales; false si falta alguna
+         */
+        private boolean retomar(EstadoRotadores.Estado guardado, List<EntradaCatalogo> entradasCarpeta) {
+            if (guardado.getSecuencia().isEmpty()) {
+                return false;
+            }
+            Map<String, EntradaCatalogo> porRuta = new HashMap<>();
+            for (EntradaCatalogo entrada : entradasCarpeta) {
+                porRuta.put(entrada.getRutaRelativa(), entrada);
+            }
+            List<EntradaCatalogo> secuencia = new ArrayList<>(guardado.getSecuencia().size());
+            for (String ruta : guardado.getSecuencia()) {
+                EntradaCatalogo entrada = porRuta.get(ruta);
+                if (entrada == null) {
+                    return false;
+                }
+                secuencia.add(entrada);
+            }
+            archivosDisponibles.addAll(secuencia);
+            indiceActual = retomarPosicion ? Math.floorMod(guardado.getCursor(), secuencia.size()) : random.nextInt(secuencia.size());
+            return true;
+        }
+
+        /**
+         * Posición en la secuencia nueva del archivo que tocaba en la guardada, -1 si ya no está
+         */
+        private int posicionDe(EstadoRotadores.Estado guardado) {
+            List<String> anterior = guardado.getSecuencia();
+            if (guardado.getCursor() < 0 || guardado.getCursor() >= anterior.size()) {
+                return -1;
+            }
+            String siguiente = anterior.get(guardado.getCursor());
+            for (int i = 0; i < archivosDisponibles.size(); i++) {
+                if (archivosDisponibles.get(i).getRutaRelativa().equals(siguiente)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Guarda la secuencia y el próximo elemento para que la siguiente generación continúe desde aquí
+         */
+        public void guardarEstado() {
+            if (!inicializado) {
+                return;
+            }
+            List<String> secuencia = new ArrayList<>(archivosDisponibles.size());
+            for (EntradaCatalogo archivo : archivosDisponibles) {
+                secuencia.add(archivo.getRutaRelativa());
+            }
+            EstadoRotadores.getInstancia().actualizar(clave(), huella, secuencia, indiceActual);
+        }
+
+        private String clave() {
+            return prefijoArchivo + "|" + new File(rutaCarpeta).getAbsolutePath();
+        }
+
+        /**
+         * Huella del contenido de la carpeta: cambia si se agrega, quita, renombra o modifica un archivo.
+         * No depende del orden en que el catálogo devuelve las entradas.
+         */
+        private static long calcularHuella(List<EntradaCatalogo> entradasCarpeta) {
+            long suma = 0;
+            for (EntradaCatalogo entrada : entradasCarpeta) {
+                long h = entrada.getRutaRelativa().hashCode();
+                h = h * 31 + entrada.getTamano();
+                h = h * 31 + entrada.getFechaModificacion();
+                suma += FlujoAleatorio.mezclar(h);
+            }
+            return FlujoAleatorio.mezclar(suma + entradasCarpeta.size());
+        }
+
         /**
          * CORREGIDO: Verifica si el archivo tiene número al inicio (01, 02, etc.)
          */
-        private boolean tieneNumeroAlInicio(String nombreArchivo) {
+        private static boolean tieneNumeroAlInicio(String nombreArchivo) {
             // Buscar patrón de 2-3 dígitos al inicio del nombre
-            java.util.regex.Pattern patron = java.util.regex.Pattern.compile("^(\\d{2,3})");
-            java.util.regex.Matcher matcher = patron.matcher(nombreArchivo);
-            return matcher.find();
+            return NUMERO_INICIAL.matcher(nombreArchivo).find();
         }
 
         /**
          * CORREGIDO: Extrae el número del archivo (debe existir)
          */
-        private String extraerNumeroDeArchivo(String nombreArchivo) {
+        private static int extraerNumeroDeArchivo(String nombreArchivo) {
             // Buscar número de 2-3 dígitos al inicio
-            java.util.regex.Pattern patron = java.util.regex.Pattern.compile("^(\\d{2,3})");
-            java.util.regex.Matcher matcher = patron.matcher(nombreArchivo);
-
+            Matcher matcher = NUMERO_INICIAL.matcher(nombreArchivo);
             if (matcher.find()) {
-                return matcher.group(1);
+                return Integer.parseInt(matcher.group(1));
             }
 
             // Si no encuentra al inicio, buscar en cualquier parte
-            patron = java.util.regex.Pattern.compile("(\\d{2,3})");
-            matcher = patron.matcher(nombreArchivo);
-
+            matcher = NUMERO.matcher(nombreArchivo);
             if (matcher.find()) {
-                return matcher.group(1);
+                return Integer.parseInt(matcher.group(1));
             }
 
-            return "999"; // Valor por defecto (se ordenará al final)
+            return SIN_NUMERO; // Valor por defecto (se ordenará al final)
         }
 
-        private boolean esArchivoAudio(String nombreArchivo) {
-            String extension = nombreArchivo.toLowerCase();
-            return extension.endsWith(".mp3") || extension.endsWith(".wav") ||
-                    extension.endsWith(".wma") || extension.endsWith(".ogg") ||
-                    extension.endsWith(".aac");
+        public int getTotalArchivos() {
+            return archivosDisponibles.size();
+        }
+
+        /**
+         * Duración del elemento que saldrá tras el indicado número de avances, sin avanzar
+         */
+        public Duration duracionPrevista(int desplazamiento) {
+            if (!inicializado || archivosDisponibles.isEmpty()) {
+                return Duration.ZERO;
+            }
+            EntradaCatalogo archivo = archivosDisponibles.get((indiceActual + desplazamiento) % archivosDisponibles.size());
+            return crearInsercionDesdeArchivo(archivo).getDuracion();
+        }
+
+        /**
+         * Duración media de los elementos del rotador, en milisegundos
+         */
+        public long getDuracionMediaMs() {
+            if (!inicializado || archivosDisponibles.isEmpty()) {
+                return 0;
+            }
+            if (duracionMediaMs < 0) {
+                long totalMs = 0;
+                for (EntradaCatalogo archivo : archivosDisponibles) {
+                    totalMs += crearInsercionDesdeArchivo(archivo).getDuracion().toMillis();
+                }
+                duracionMediaMs = totalMs / archivosDisponibles.size();
+            }
+            return duracionMediaMs;
         }
 
         public InsercionEspecial obtenerSiguiente() {
             if (!inicializado || archivosDisponibles.isEmpty()) {
-                System.out.println("Rotador " + prefijoArchivo + " no inicializado o sin elementos");
+                TrazaGeneracion.registrar(Nivel.DEPURACION, "Rotador {} no inicializado o sin elementos", prefijoArchivo);
                 return null;
             }
 
             // Obtener archivo actual
-            File archivoActual = archivosDisponibles.get(indiceActual);
+            EntradaCatalogo archivoActual = archivosDisponibles.get(indiceActual);
             InsercionEspecial elemento = crearInsercionDesdeArchivo(archivoActual);
 
-            System.out.println("Rotador " + prefijoArchivo + " seleccionó:");
-            System.out.println("  - Índice: " + indiceActual + "/" + (archivosDisponibles.size() - 1));
-            System.out.println("  - Archivo: " + archivoActual.getName());
-            System.out.println("  - Número: " + extraerNumeroDeArchivo(archivoActual.getName()));
+            TrazaGeneracion.registrar(Nivel.DEPURACION, "Rotador {} seleccionó [{}] {}",
+                    prefijoArchivo, indiceActual, archivoActual.getNombre());
 
             // SECUENCIAL: Avanzar al siguiente índice de forma secuencial (con reinicio)
             indiceActual = (indiceActual + 1) % archivosDisponibles.size();
 
             if (indiceActual == 0) {
-                System.out.println("  - Reiniciando secuencia para " + prefijoArchivo);
+                TrazaGeneracion.registrar(Nivel.DEPURACION, "Rotador {} reinicia su secuencia", prefijoArchivo);
             }
 
-            System.out.println("  - Próximo índice: " + indiceActual + " (" +
-                    (archivosDisponibles.isEmpty() ? "N/A" : archivosDisponibles.get(indiceActual).getName()) + ")");
-
             return elemento;
         }
 
-        private InsercionEspecial crearInsercionDesdeArchivo(File archivo) {
+        private InsercionEspecial crearInsercionDesdeArchivo(EntradaCatalogo archivo) {
             InsercionEspecial insercion = new InsercionEspecial();
-            String nombreSinExtension = archivo.getName().replaceFirst("[.][^.]+$", "");
+            String nombreSinExtension = archivo.getNombreSinExtension();
 
             insercion.setNombre(nombreSinExtension);
-            insercion.setRutaArchivo(archivo.getAbsolutePath());
+            insercion.setRutaArchivo(archivo.getRutaAbsoluta());
             insercion.setDuracion(Duration.ofSeconds(30));
 
             switch (prefijoArchivo.toLowerCase()) {
@@ -682,6 +1831,9 @@ public class GeneradorListaService {
                     insercion.setTipo(InsercionEspecial.TipoInsercion.PROMO);
             }
 
+            // La duración por tipo solo queda si no se pudo leer la real del archivo
+            insercion.setDuracion(CacheMetadatos.getInstancia().obtenerDuracion(archivo, insercion.getDuracion()));
+
             return insercion;
         }
     }
@@ -0,0 +1,373 @@
+package com.radio.services;
+
+import com.radio.catalog.RegistroIds;
+import com.radio.models.BloqueHora;
+import com.radio.models.Cancion;
+import com.radio.models.ListaReproduccion;
+import com.radio.utils.DirectorioDatos;
+import com.radio.utils.TrazaGeneracion;
+import com.radio.utils.TrazaGeneracion.Nivel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Historial persistente de las canciones programadas, para que una canción descanse
+ * de un día al siguiente aunque cada lista se genere por separado.
+ *
+ * El archivo solo crece por el final: cada ruta nueva se escribe una vez y recibe un número,
+ * y cada día se guarda como pares (número, minutos desde la canción anterior) en varints,
+ * unos 4 bytes por canción. Si un día se vuelve a generar, su último registro reemplaza al anterior.
+ */
+public class HistorialEmisiones {
+
+    private static final String NOMBRE_ARCHIVO = "historial.dat";
+    private static final int MAGICO = 0x5A524845; // "ZRHE"
+    private static final int VERSION = 1;
+    private static final int TAMANO_CABECERA = 8;
+    private static final byte REGISTRO_RUTA = 1;
+    private static final byte REGISTRO_DIA = 2;
+    private static final int MINUTOS_DIA = 24 * 60;
+    private static final int NUNCA = Integer.MIN_VALUE;
+
+    private static HistorialEmisiones instancia;
+
+    private final File archivo;
+    private final List<String> rutas = new ArrayList<>();
+    private final Map<String, Integer> idPorRuta = new HashMap<>();
+    private int[] idCatalogo = new int[0]; // número de RegistroIds de cada ruta del historial, -1 si aún no se buscó
+    private final TreeMap<Long, EmisionesDia> dias = new TreeMap<>();
+    private int diasReemplazados = 0;
+    private boolean reiniciarArchivo = false;
+
+    /**
+     * Canciones de un día: número de ruta y minuto desde el inicio del día, en orden de emisión
+     */
+    private static class EmisionesDia {
+        private final int[] ids;
+        private final int[] minutos;
+
+        EmisionesDia(int[] ids, int[] minutos) {
+            this.ids = ids;
+            this.minutos = minutos;
+        }
+    }
+
+    /**
+     * Última emisión de cada canción en los días anteriores a una fecha, dentro de una ventana de descanso.
+     * Se consulta por el número de la entrada del catálogo: cada consulta es un acceso a un arreglo.
+     */
+    public static class IndiceDescanso {
+        private final int[] ultimaEmision;
+        private final long ventanaMinutos;
+
+        IndiceDescanso(int[] ultimaEmision, long ventanaMinutos) {
+            this.ultimaEmision = ultimaEmision;
+            this.ventanaMinutos = ventanaMinutos;
+        }
+
+        /**
+         * Indica si la canción sonó dentro de la ventana de descanso anterior al momento indicado
+         */
+        public boolean enDescanso(int idCancion, LocalDateTime momento) {
+            return minutosDesdeUltimaEmision(idCancion, momento) < ventanaMinutos;
+        }
+
+        /**
+         * Minutos entre la última emisión registrada y el momento indicado; Long.MAX_VALUE si no consta ninguna
+         */
+        public long minutosDesdeUltimaEmision(int idCancion, LocalDateTime momento) {
+            if (idCancion >= ultimaEmision.length || ultimaEmision[idCancion] == NUNCA) {
+                return Long.MAX_VALUE;
+            }
+            return minutoAbsoluto(momento) - ultimaEmision[idCancion];
+        }
+    }
+
+    HistorialEmisiones(File archivo) {
+        this.archivo = archivo;
+        cargar();
+    }
+
+    public static synchronized HistorialEmisiones getInstancia() {
+        if (instancia == null) {
+            instancia = new HistorialEmisiones(DirectorioDatos.archivo(NOMBRE_ARCHIVO));
+        }
+        return instancia;
+    }
+
+    /**
+     * Registra las canciones de una lista, antes de repartir las inserciones.
+     * El minuto de cada canción se estima sumando duraciones desde el inicio de su bloque.
+     */
+    public synchronized void registrar(ListaReproduccion lista) {
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> minutos = new ArrayList<>();
+        ByteArrayOutputStream registro = new ByteArrayOutputStream();
+
+        for (BloqueHora bloque : lista.getBloques()) {
+            long segundos = bloque.getHoraInicio().toSecondOfDay();
+            for (Cancion cancion : bloque.getCanciones()) {
+                String ruta = cancion.getRutaArchivo();
+                Integer id = idPorRuta.get(ruta);
+                if (id == null) {
+                    id = rutas.size();
+                    rutas.add(ruta);
+                    idPorRuta.put(ruta, id);
+                    byte[] bytes = ruta.getBytes(StandardCharsets.UTF_8);
+                    registro.write(REGISTRO_RUTA);
+                    escribirVarint(registro, bytes.length);
+                    registro.write(bytes, 0, bytes.length);
+                }
+                ids.add(id);
+                minutos.add((int) (segundos / 60));
+                if (cancion.getDuracion() != null) {
+                    segundos += cancion.getDuracion().getSeconds();
+                }
+            }
+        }
+
+        EmisionesDia dia = new EmisionesDia(
+                ids.stream().mapToInt(Integer::intValue).toArray(),
+                minutos.stream().mapToInt(Integer::intValue).toArray());
+        long epocaDia = lista.getFecha().toEpochDay();
+        escribirDia(registro, epocaDia, dia);
+
+        if (dias.put(epocaDia, dia) != null) {
+            diasReemplazados++;
+        }
+        anexar(registro.toByteArray());
+    }
+
+    /**
+     * Índice de lo que sonó en los días anteriores a la fecha, limitado a la ventana de descanso.
+     * Los días iguales o posteriores no cuentan: un día que se vuelve a generar no descansa de sí mismo.
+     */
+    public synchronized IndiceDescanso indiceAntesDe(LocalDate fecha, Duration ventana) {
+        // Un bloque puede cruzar la medianoche: se mira un día más de lo que cubre la ventana
+        long primerDia = fecha.toEpochDay() - ventana.toDays() - 2;
+        Collection<Map.Entry<Long, EmisionesDia>> enVentana =
+                dias.subMap(primerDia, true, fecha.toEpochDay(), false).entrySet();
+
+        // Traducir primero: buscar una ruta nueva puede ampliar el registro
+        if (idCatalogo.length < rutas.size()) {
+            int anterior = idCatalogo.length;
+            idCatalogo = Arrays.copyOf(idCatalogo, rutas.size());
+            Arrays.fill(idCatalogo, anterior, idCatalogo.length, -1);
+        }
+        for (Map.Entry<Long, EmisionesDia> registro : enVentana) {
+            for (int id : registro.getValue().ids) {
+                if (idCatalogo[id] < 0) {
+                    idCatalogo[id] = RegistroIds.obtener(rutas.get(id));
+                }
+            }
+        }
+
+        int[] ultimaEmision = new int[RegistroIds.getTotal()];
+        Arrays.fill(ultimaEmision, NUNCA);
+        for (Map.Entry<Long, EmisionesDia> registro : enVentana) {
+            int base = (int) (registro.getKey() * MINUTOS_DIA);
+            EmisionesDia dia = registro.getValue();
+            for (int i = 0; i < dia.ids.length; i++) {
+                int id = idCatalogo[dia.ids[i]];
+                ultimaEmision[id] = Math.max(ultimaEmision[id], base + dia.minutos[i]);
+            }
+        }
+        return new IndiceDescanso(ultimaEmision, ventana.toMinutes());
+    }
+
+    public synchronized int getTotalDias() {
+        return dias.size();
+    }
+
+    private static int minutoAbsoluto(LocalDateTime momento) {
+        return (int) (momento.toLocalDate().toEpochDay() * MINUTOS_DIA + momento.toLocalTime().toSecondOfDay() / 60);
+    }
+
+    private static void escribirDia(ByteArrayOutputStream salida, long epocaDia, EmisionesDia dia) {
+        salida.write(REGISTRO_DIA);
+        escribirVarint(salida, epocaDia);
+        escribirVarint(salida, dia.ids.length);
+        int minutoAnterior = 0;
+        for (int i = 0; i < dia.ids.length; i++) {
+            escribirVarint(salida, dia.ids[i]);
+            // Zigzag: un bloque configurado fuera de orden da diferencias negativas
+            int delta = dia.minutos[i] - minutoAnterior;
+            escribirVarint(salida, (delta << 1) ^ (delta >> 31));
+            minutoAnterior = dia.minutos[i];
+        }
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            salida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        salida.write((int) valor);
+    }
+
+    private static byte[] cabecera() {
+        return ByteBuffer.allocate(TAMANO_CABECERA).putInt(MAGICO).putInt(VERSION).array();
+    }
+
+    /**
+     * Añade los registros al final del archivo con una sola escritura
+     */
+    private void anexar(byte[] registros) {
+        boolean nuevo = reiniciarArchivo || !archivo.exists() || archivo.length() < TAMANO_CABECERA;
+        StandardOpenOption modo = nuevo ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND;
+
+        try (FileChannel canal = FileChannel.open(archivo.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, modo)) {
+            // Un archivo nuevo o ilegible se reescribe entero con lo que hay en memoria
+            ByteBuffer buffer = ByteBuffer.wrap(nuevo ? contenidoCompleto() : registros);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(false);
+            reiniciarArchivo = false;
+        } catch (IOException e) {
+            // Las rutas nuevas ya tienen número en memoria pero quizá no llegaron al archivo (o quedó
+            // un registro a medias): la próxima escritura lo reescribe entero
+            reiniciarArchivo = true;
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al guardar el historial de emisiones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archivo sin los días reemplazados, con las rutas en el orden de sus números
+     */
+    private byte[] contenidoCompleto() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        salida.writeBytes(cabecera());
+        for (String ruta : rutas) {
+            byte[] bytes = ruta.getBytes(StandardCharsets.UTF_8);
+            salida.write(REGISTRO_RUTA);
+            escribirVarint(salida, bytes.length);
+            salida.write(bytes, 0, bytes.length);
+        }
+        for (Map.Entry<Long, EmisionesDia> registro : dias.entrySet()) {
+            escribirDia(salida, registro.getKey(), registro.getValue());
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Reescribe el archivo cuando la mitad o más de sus días fueron reemplazados
+     */
+    private void compactar() {
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try {
+            Files.write(temporal.toPath(), contenidoCompleto());
+            Files.move(temporal.toPath(), archivo.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diasReemplazados = 0;
+        } catch (IOException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al compactar el historial de emisiones: {}", e.getMessage());
+        }
+    }
+
+    private void cargar() {
+        if (!archivo.exists()) {
+            return;
+        }
+
+        ByteBuffer datos;
+        try {
+            datos = ByteBuffer.wrap(Files.readAllBytes(archivo.toPath()));
+        } catch (IOException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al leer el historial de emisiones, se reiniciará: {}", e.getMessage());
+            reiniciarArchivo = true;
+            return;
+        }
+
+        if (datos.remaining() < TAMANO_CABECERA || datos.getInt() != MAGICO || datos.getInt() != VERSION) {
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Historial de emisiones con formato desconocido, se reiniciará.");
+            reiniciarArchivo = true;
+            return;
+        }
+
+        int finValido = datos.position();
+        try {
+            while (datos.hasRemaining()) {
+                byte tipo = datos.get();
+                if (tipo == REGISTRO_RUTA) {
+                    byte[] bytes = new byte[(int) leerVarint(datos)];
+                    datos.get(bytes);
+                    String ruta = new String(bytes, StandardCharsets.UTF_8);
+                    idPorRuta.put(ruta, rutas.size());
+                    rutas.add(ruta);
+                } else if (tipo == REGISTRO_DIA) {
+                    long epocaDia = leerVarint(datos);
+                    int[] ids = new int[(int) leerVarint(datos)];
+                    int[] minutos = new int[ids.length];
+                    int minuto = 0;
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = (int) leerVarint(datos);
+                        if (ids[i] >= rutas.size()) {
+                            throw new IOException("número de ruta desconocido: " + ids[i]);
+                        }
+                        int zigzag = (int) leerVarint(datos);
+                        minuto += (zigzag >>> 1) ^ -(zigzag & 1);
+                        minutos[i] = minuto;
+                    }
+                    if (dias.put(epocaDia, new EmisionesDia(ids, minutos)) != null) {
+                        diasReemplazados++;
+                    }
+                } else {
+                    throw new IOException("tipo de registro desconocido: " + tipo);
+                }
+                finValido = datos.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // Un cierre a mitad de escritura deja un registro incompleto al final: se descarta
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Historial de emisiones con un registro incompleto, se trunca en el byte {}", finValido);
+            truncar(finValido);
+        } catch (IOException | RuntimeException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Historial de emisiones dañado, se trunca en el byte {}: {}", finValido, e.getMessage());
+            truncar(finValido);
+        }
+
+        if (diasReemplazados > 0 && diasReemplazados >= dias.size()) {
+            compactar();
+        }
+    }
+
+    private void truncar(long longitud) {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.WRITE)) {
+            canal.truncate(longitud);
+        } catch (IOException e) {
+            reiniciarArchivo = true;
+        }
+    }
+
+    private static long leerVarint(ByteBuffer datos) throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            byte b = datos.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("varint demasiado largo");
+    }
+}
@@ -0,0 +1,590 @@
+package com.radio.services;
+
+import com.radio.catalog.CacheMetadatos;
+import com.radio.catalog.CarpetaCatalogo;
+import com.radio.catalog.CatalogoMusical;
+import com.radio.catalog.EntradaCatalogo;
+import com.radio.models.*;
+import com.radio.utils.DetectorCodificacion;
+import com.radio.utils.TrazaGeneracion;
+import com.radio.utils.TrazaGeneracion.Nivel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reconstruye una ListaReproduccion a partir de un .m3u escrito por el generador.
+ *
+ * El archivo se recorre una vez, línea por línea. Después se comprueba de una sola vez,
+ * contra el catálogo y en paralelo, qué rutas siguen existiendo, y se arma la lista:
+ * apertura y cierre son los elementos especiales del principio y del final, las inserciones
+ * son los elementos que siguen a cada .time, y las canciones se reparten en bloques.
+ *
+ * Con la configuración de bloques con la que se generó, cada bloque toma su horario, género y carpeta,
+ * y una canción pasa al bloque siguiente cuando se acaba el tiempo del bloque o cuando ya viene de la
+ * carpeta del siguiente. Sin configuración se supone un bloque por hora desde la hora de inicio
+ * de la lista, partiendo por tiempo y por cambio de carpeta.
+ */
+public class LectorListaM3u {
+
+    private static final String MARCADOR_HORA = ".time";
+    private static final Duration DURACION_BLOQUE = Duration.ofHours(1);
+    /** Una canción que empieza a menos de este margen del fin del bloque ya pertenece al siguiente */
+    private static final long MARGEN_CAMBIO_BLOQUE_MS = 60_000;
+    /** Tras cada .time el generador pone como mucho dos inserciones */
+    private static final int MAX_INSERCIONES_POR_LOCUCION = 2;
+    private static final Pattern FECHA_EN_NOMBRE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+
+    private LectorListaM3u() {
+    }
+
+    /**
+     * Línea con una ruta (o un .time) tal como aparece en el archivo
+     */
+    private static final class Elemento {
+        final String ruta;
+        final boolean marcador;
+        /** Orden del elemento desde el último .time (1, 2, ...); 0 si todavía no hubo ninguno */
+        final int posicionTrasHora;
+        /** Número de .time vistos antes del elemento, empezando en 0 */
+        final int locucion;
+        final long duracionExtinfMs;
+
+        Elemento(String ruta, boolean marcador, int posicionTrasHora, int locucion, long duracionExtinfMs) {
+            this.ruta = ruta;
+            this.marcador = marcador;
+            this.posicionTrasHora = posicionTrasHora;
+            this.locucion = locucion;
+            this.duracionExtinfMs = duracionExtinfMs;
+        }
+
+        String carpeta() {
+            return new File(ruta).getParent();
+        }
+    }
+
+    private static final class ArchivoLeido {
+        final String rutaArchivo;
+        final List<Elemento> elementos = new ArrayList<>();
+
+        ArchivoLeido(String rutaArchivo) {
+            this.rutaArchivo = rutaArchivo;
+        }
+    }
+
+    public static ListaReproduccion cargar(String rutaArchivo) {
+        return cargar(rutaArchivo, null);
+    }
+
+    /**
+     * Carga una lista repartiendo sus canciones en los bloques configurados (null para suponer bloques de una hora)
+     */
+    public static ListaReproduccion cargar(String rutaArchivo, List<GeneradorListaService.ConfiguracionBloque> configuracion) {
+        return cargar(Collections.singletonList(rutaArchivo), configuracion).get(0);
+    }
+
+    /**
+     * Carga varias listas (por ejemplo, las de un mes) compartiendo una sola consulta al catálogo.
+     * Devuelve una lista por archivo, en el mismo orden; null en los que no se pudieron leer.
+     */
+    public static List<ListaReproduccion> cargar(List<String> rutasArchivos) {
+        return cargar(rutasArchivos, null);
+    }
+
+    /**
+     * Igual que {@link #cargar(List)}, con los bloques configurados con los que se generaron las listas.
+     * Sin configuración (null o vacía) se suponen bloques de una hora.
+     */
+    public static List<ListaReproduccion> cargar(List<String> rutasArchivos,
+                                                 List<GeneradorListaService.ConfiguracionBloque> configuracion) {
+        long inicio = System.nanoTime();
+
+        List<ArchivoLeido> leidos = rutasArchivos.parallelStream()
+                .map(LectorListaM3u::leer)
+                .collect(Collectors.toList());
+
+        Set<String> rutas = new HashSet<>();
+        for (ArchivoLeido leido : leidos) {
+            if (leido != null) {
+                for (Elemento elemento : leido.elementos) {
+                    if (!elemento.marcador) {
+                        rutas.add(elemento.ruta);
+                    }
+                }
+            }
+        }
+        Map<String, EntradaCatalogo> existentes = buscarEnCatalogo(rutas);
+
+        List<ListaReproduccion> listas = leidos.parallelStream()
+                .map(leido -> leido == null ? null : armar(leido, existentes, configuracion))
+                .collect(Collectors.toList());
+
+        TrazaGeneracion.registrar(Nivel.INFO, "{} listas M3U cargadas en {} ms ({} rutas distintas)",
+                listas.size(), (System.nanoTime() - inicio) / 1_000_000, rutas.size());
+        return listas;
+    }
+
+    // ---------------------------------------------------------------- Lectura
+
+    private static ArchivoLeido leer(String rutaArchivo) {
+        DetectorCodificacion.TextoDecodificado contenido;
+        try {
+            contenido = DetectorCodificacion.leer(Paths.get(rutaArchivo));
+        } catch (IOException | InvalidPathException e) {
+            TrazaGeneracion.registrar(Nivel.ERROR, "Error al leer el archivo M3U {}: {}", rutaArchivo, e.getMessage());
+            return null;
+        }
+        TrazaGeneracion.registrar(Nivel.DEPURACION, "Lista {} leída como {}", rutaArchivo, contenido.getCodificacion());
+
+        ArchivoLeido leido = new ArchivoLeido(rutaArchivo);
+        File carpetaLista = new File(rutaArchivo).getAbsoluteFile().getParentFile();
+        String texto = contenido.getTexto();
+
+        int locucion = -1;
+        int posicionTrasHora = 0;
+        long duracionExtinfMs = -1;
+
+        int desde = 0;
+        while (desde < texto.length()) {
+            int fin = texto.indexOf('\n', desde);
+            if (fin < 0) {
+                fin = texto.length();
+            }
+            String linea = texto.substring(desde, fin).trim();
+            desde = fin + 1;
+
+            if (linea.isEmpty()) {
+                continue;
+            }
+            if (linea.startsWith("#EXTINF:")) {
+                duracionExtinfMs = duracionExtinf(linea);
+                continue;
+            }
+            if (linea.startsWith("#")) {
+                continue;
+            }
+
+            if (linea.equals(MARCADOR_HORA)) {
+                locucion++;
+                posicionTrasHora = 0;
+                leido.elementos.add(new Elemento(MARCADOR_HORA, true, 0, locucion, -1));
+            } else {
+                if (locucion >= 0) {
+                    posicionTrasHora++;
+                }
+                leido.elementos.add(new Elemento(resolverRuta(carpetaLista, linea), false,
+                        posicionTrasHora, Math.max(locucion, 0), duracionExtinfMs));
+            }
+            duracionExtinfMs = -1;
+        }
+        return leido;
+    }
+
+    /**
+     * Duración de "#EXTINF:segundos,título" en milisegundos, o -1 si no se indica
+     */
+    private static long duracionExtinf(String linea) {
+        int coma = linea.indexOf(',');
+        String segundos = linea.substring("#EXTINF:".length(), coma < 0 ? linea.length() : coma).trim();
+        try {
+            long valor = Long.parseLong(segundos);
+            return valor > 0 ? valor * 1000 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String resolverRuta(File carpetaLista, String ruta) {
+        File archivo = new File(ruta);
+        if (!archivo.isAbsolute() && carpetaLista != null) {
+            archivo = new File(carpetaLista, ruta);
+        }
+        try {
+            return archivo.toPath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return archivo.getPath();
+        }
+    }
+
+    // ---------------------------------------------------------------- Catálogo
+
+    /**
+     * Comprueba todas las rutas de una vez: cada carpeta se consulta al catálogo una sola vez y en paralelo,
+     * aprovechando la raíz ya catalogada que la contenga, y los metadatos que falten se sondean juntos.
+     */
+    private static Map<String, EntradaCatalogo> buscarEnCatalogo(Set<String> rutas) {
+        CatalogoMusical catalogo = CatalogoMusical.getInstancia();
+
+        Map<String, Integer> carpetas = new HashMap<>();
+        Map<String, String> raizPorCarpeta = new HashMap<>();
+        for (String ruta : rutas) {
+            String carpeta = new File(ruta).getParent();
+            if (carpeta == null || raizPorCarpeta.containsKey(carpeta)) {
+                continue;
+            }
+
+            String raiz = carpeta;
+            int profundidad = 0;
+            File actual = new File(carpeta);
+            for (int nivel = 0; nivel <= CatalogoMusical.PROFUNDIDAD_MUSICA && actual != null; nivel++) {
+                CarpetaCatalogo conocida = catalogo.obtenerCarpetaConocida(actual.getPath());
+                if (conocida != null && conocida.getProfundidad() >= nivel) {
+                    raiz = actual.getPath();
+                    profundidad = conocida.getProfundidad();
+                    break;
+                }
+                actual = actual.getParentFile();
+            }
+            raizPorCarpeta.put(carpeta, raiz);
+            carpetas.merge(raiz, profundidad, Math::max);
+        }
+
+        Map<String, EntradaCatalogo> existentes = new HashMap<>(rutas.size() * 2);
+        for (EntradaCatalogo entrada : catalogo.escanear(carpetas).getTodasLasEntradas()) {
+            if (rutas.contains(entrada.getRutaAbsoluta())) {
+                existentes.put(entrada.getRutaAbsoluta(), entrada);
+            }
+        }
+        CacheMetadatos.getInstancia().completar(existentes.values());
+        return existentes;
+    }
+
+    // ---------------------------------------------------------------- Armado
+
+    private static ListaReproduccion armar(ArchivoLeido leido, Map<String, EntradaCatalogo> existentes,
+                                           List<GeneradorListaService.ConfiguracionBloque> configuracion) {
+        ListaReproduccion lista = new ListaReproduccion(fechaDesdeNombre(leido.rutaArchivo));
+        lista.setRutaArchivoLst(leido.rutaArchivo);
+        List<Elemento> elementos = leido.elementos;
+
+        // Apertura y cierre: elementos especiales (01/02/03) de una misma carpeta al principio y al final
+        int inicioCuerpo = 0;
+        int finCuerpo = elementos.size();
+        String carpetaEspeciales = null;
+        if (!elementos.isEmpty() && !elementos.get(0).marcador && tipoEspecial(elementos.get(0).ruta) != null) {
+            carpetaEspeciales = elementos.get(0).carpeta();
+            while (inicioCuerpo < finCuerpo && esEspecial(elementos.get(inicioCuerpo), carpetaEspeciales)) {
+                inicioCuerpo++;
+            }
+            while (finCuerpo > inicioCuerpo && esEspecial(elementos.get(finCuerpo - 1), carpetaEspeciales)) {
+                finCuerpo--;
+            }
+        }
+
+        int faltantes = 0;
+        for (int i = 0; i < inicioCuerpo; i++) {
+            InsercionEspecial especial = crearEspecial(elementos.get(i), existentes);
+            if (especial != null) lista.getApertura().add(especial); else faltantes++;
+        }
+        for (int i = finCuerpo; i < elementos.size(); i++) {
+            InsercionEspecial especial = crearEspecial(elementos.get(i), existentes);
+            if (especial != null) lista.getCierre().add(especial); else faltantes++;
+        }
+
+        Set<String> carpetasInserciones = carpetasInserciones(elementos, inicioCuerpo, finCuerpo, carpetaEspeciales);
+        if (configuracion != null && !configuracion.isEmpty()) {
+            faltantes += repartirSegunConfiguracion(lista, elementos, inicioCuerpo, finCuerpo, existentes,
+                    carpetasInserciones, configuracion);
+        } else {
+            faltantes += repartirPorHoras(lista, elementos, inicioCuerpo, finCuerpo, existentes, carpetasInserciones);
+        }
+
+        if (!lista.getBloques().isEmpty()) {
+            lista.setHoraFin(lista.getBloques().get(lista.getBloques().size() - 1).getHoraFin());
+        }
+
+        TrazaGeneracion.registrar(Nivel.INFO, "{}: {} ({} archivos no encontrados)",
+                new File(leido.rutaArchivo).getName(), lista.toString(), faltantes);
+        return lista;
+    }
+
+    /**
+     * Reparto en bloques de una hora siguiendo el tiempo acumulado desde la hora de inicio de la lista
+     *
+     * @return archivos no encontrados
+     */
+    private static int repartirPorHoras(ListaReproduccion lista, List<Elemento> elementos, int inicioCuerpo, int finCuerpo,
+                                        Map<String, EntradaCatalogo> existentes, Set<String> carpetasInserciones) {
+        int faltantes = 0;
+        long inicioBloqueMs = lista.getHoraInicio().toSecondOfDay() * 1000L;
+        long tiempoMs = inicioBloqueMs + duracionTotalMs(lista.getApertura());
+        long bloqueMs = DURACION_BLOQUE.toMillis();
+        BloqueHora bloque = null;
+        List<String> carpetasBloque = new ArrayList<>();
+        List<Cancion> cancionesBloque = new ArrayList<>();
+
+        for (int i = inicioCuerpo; i < finCuerpo; i++) {
+            Elemento elemento = elementos.get(i);
+
+            if (elemento.marcador) {
+                if (bloque != null) {
+                    bloque.agregarCancion(GeneradorListaService.crearMarcadorTiempo());
+                }
+                tiempoMs += GeneradorListaService.DURACION_MARCADOR_TIEMPO.toMillis();
+                continue;
+            }
+
+            EntradaCatalogo entrada = existentes.get(elemento.ruta);
+            boolean esInsercion = carpetasInserciones.contains(elemento.carpeta());
+
+            if (!esInsercion && bloque != null
+                    && empiezaBloqueNuevo(tiempoMs - inicioBloqueMs, elemento.carpeta(), carpetasBloque, bloque)) {
+                cerrarBloque(bloque, carpetasBloque, cancionesBloque, lista);
+                // Cada bloque se planificó por separado: el desvío del anterior no se arrastra
+                inicioBloqueMs += bloqueMs;
+                tiempoMs = inicioBloqueMs;
+                bloque = null;
+                carpetasBloque = new ArrayList<>();
+                cancionesBloque = new ArrayList<>();
+            }
+
+            if (entrada == null) {
+                TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Advertencia: Archivo no encontrado: {}", elemento.ruta);
+                faltantes++;
+                tiempoMs += elemento.duracionExtinfMs > 0 ? elemento.duracionExtinfMs
+                        : GeneradorListaService.DURACION_CANCION_DEFAULT.toMillis();
+                continue;
+            }
+
+            Cancion cancion = crearCancion(elemento, entrada, esInsercion, Genero.VARIADO);
+            if (!esInsercion) {
+                carpetasBloque.add(elemento.carpeta());
+                cancionesBloque.add(cancion);
+            }
+
+            if (bloque == null) {
+                bloque = new BloqueHora(horaDelDia(inicioBloqueMs), horaDelDia(inicioBloqueMs + bloqueMs), Genero.VARIADO, "");
+            }
+            bloque.agregarCancion(cancion);
+            tiempoMs += cancion.getDuracion().toMillis();
+        }
+
+        if (bloque != null) {
+            cerrarBloque(bloque, carpetasBloque, cancionesBloque, lista);
+        }
+        return faltantes;
+    }
+
+    /**
+     * Reparto en los bloques configurados, en su orden: todos se crean aunque queden vacíos,
+     * así cada bloque de la lista corresponde al de la configuración con el mismo índice
+     *
+     * @return archivos no encontrados
+     */
+    private static int repartirSegunConfiguracion(ListaReproduccion lista, List<Elemento> elementos, int inicioCuerpo,
+                                                  int finCuerpo, Map<String, EntradaCatalogo> existentes,
+                                                  Set<String> carpetasInserciones,
+                                                  List<GeneradorListaService.ConfiguracionBloque> configuracion) {
+        for (GeneradorListaService.ConfiguracionBloque config : configuracion) {
+            BloqueHora bloque = new BloqueHora(config.getHoraInicio(), config.getHoraFin(), config.getGenero(), config.getRutaCarpeta());
+            bloque.setToleranciaMinutos(GeneradorListaService.TOLERANCIA_MINUTOS_DEFAULT);
+            lista.agregarBloque(bloque);
+        }
+        lista.setHoraInicio(configuracion.get(0).getHoraInicio());
+
+        List<BloqueHora> bloques = lista.getBloques();
+        int indice = 0;
+        long transcurridoMs = duracionTotalMs(lista.getApertura());
+        int faltantes = 0;
+
+        for (int i = inicioCuerpo; i < finCuerpo; i++) {
+            Elemento elemento = elementos.get(i);
+
+            if (elemento.marcador) {
+                bloques.get(indice).agregarCancion(GeneradorListaService.crearMarcadorTiempo());
+                transcurridoMs += GeneradorListaService.DURACION_MARCADOR_TIEMPO.toMillis();
+                continue;
+            }
+
+            EntradaCatalogo entrada = existentes.get(elemento.ruta);
+            boolean esInsercion = carpetasInserciones.contains(elemento.carpeta());
+
+            if (!esInsercion && indice + 1 < bloques.size()
+                    && pasaAlSiguiente(transcurridoMs, elemento.carpeta(), bloques.get(indice), bloques.get(indice + 1))) {
+                indice++;
+                transcurridoMs = 0;
+            }
+
+            if (entrada == null) {
+                TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Advertencia: Archivo no encontrado: {}", elemento.ruta);
+                faltantes++;
+                transcurridoMs += elemento.duracionExtinfMs > 0 ? elemento.duracionExtinfMs
+                        : GeneradorListaService.DURACION_CANCION_DEFAULT.toMillis();
+                continue;
+            }
+
+            BloqueHora bloque = bloques.get(indice);
+            Cancion cancion = crearCancion(elemento, entrada, esInsercion, bloque.getGenero());
+            bloque.agregarCancion(cancion);
+            transcurridoMs += cancion.getDuracion().toMillis();
+        }
+        return faltantes;
+    }
+
+    /**
+     * Con bloques configurados: la canción abre el siguiente si el actual ya está lleno,
+     * o si viene de la carpeta del siguiente y no de la del actual
+     */
+    private static boolean pasaAlSiguiente(long transcurridoMs, String carpeta, BloqueHora actual, BloqueHora siguiente) {
+        Duration duracion = Duration.between(actual.getHoraInicio(), actual.getHoraFin());
+        if (duracion.isNegative()) {
+            duracion = duracion.plusDays(1);
+        }
+        if (duracion.toMillis() - transcurridoMs <= MARGEN_CAMBIO_BLOQUE_MS) {
+            return true;
+        }
+        return !estaDentro(carpeta, actual.getRutaCarpeta()) && estaDentro(carpeta, siguiente.getRutaCarpeta());
+    }
+
+    private static boolean estaDentro(String carpeta, String raiz) {
+        if (carpeta == null || raiz == null || raiz.trim().isEmpty()) {
+            return false;
+        }
+        String raizNormalizada = resolverRuta(null, raiz.trim());
+        return (carpeta + File.separator).startsWith(new File(raizNormalizada).getAbsolutePath() + File.separator);
+    }
+
+    private static Cancion crearCancion(Elemento elemento, EntradaCatalogo entrada, boolean esInsercion, Genero genero) {
+        if (esInsercion) {
+            InsercionEspecial.TipoInsercion tipo = elemento.locucion % GeneradorListaService.CADA_N_CANCIONES_LOCUCION == 0
+                    ? InsercionEspecial.TipoInsercion.IDENTIFICACION : InsercionEspecial.TipoInsercion.PROMO;
+            return GeneradorListaService.convertirInsercionACancion(
+                    GeneradorListaService.crearInsercionDesdeArchivo(entrada, tipo));
+        }
+        return GeneradorListaService.crearCancionDesdeEntrada(entrada, genero);
+    }
+
+    /**
+     * Decide si una canción abre el bloque siguiente. Cerca del final del bloque basta el tiempo;
+     * dentro de la tolerancia del bloque también cuenta que la canción venga de otra carpeta.
+     */
+    private static boolean empiezaBloqueNuevo(long transcurridoMs, String carpeta, List<String> carpetasBloque,
+                                              BloqueHora bloque) {
+        long restanteMs = DURACION_BLOQUE.toMillis() - transcurridoMs;
+        if (restanteMs <= MARGEN_CAMBIO_BLOQUE_MS) {
+            return true;
+        }
+        if (restanteMs > Duration.ofMinutes(bloque.getToleranciaMinutos()).toMillis() || carpetasBloque.isEmpty()) {
+            return false;
+        }
+        String comun = carpetaComun(carpetasBloque);
+        return !(carpeta + File.separator).startsWith(comun + File.separator);
+    }
+
+    /**
+     * Carpetas cuyos archivos solo aparecen justo después de un .time: son las de identificaciones,
+     * felicitaciones y promociones
+     */
+    private static Set<String> carpetasInserciones(List<Elemento> elementos, int desde, int hasta, String carpetaEspeciales) {
+        Map<String, Boolean> soloTrasHora = new HashMap<>();
+        for (int i = desde; i < hasta; i++) {
+            Elemento elemento = elementos.get(i);
+            if (elemento.marcador) {
+                continue;
+            }
+            boolean trasHora = elemento.posicionTrasHora >= 1 && elemento.posicionTrasHora <= MAX_INSERCIONES_POR_LOCUCION;
+            soloTrasHora.merge(elemento.carpeta(), trasHora, Boolean::logicalAnd);
+        }
+
+        Set<String> carpetas = new HashSet<>();
+        for (Map.Entry<String, Boolean> carpeta : soloTrasHora.entrySet()) {
+            if (carpeta.getValue() && !carpeta.getKey().equals(carpetaEspeciales)) {
+                carpetas.add(carpeta.getKey());
+            }
+        }
+        return carpetas;
+    }
+
+    /**
+     * Completa el bloque con la carpeta común de sus canciones y el género que indique su nombre
+     */
+    private static void cerrarBloque(BloqueHora bloque, List<String> carpetasBloque, List<Cancion> cancionesBloque,
+                                     ListaReproduccion lista) {
+        String carpeta = carpetaComun(carpetasBloque);
+        bloque.setRutaCarpeta(carpeta);
+        bloque.setGenero(generoDeCarpeta(carpeta));
+        for (Cancion cancion : cancionesBloque) {
+            cancion.setGenero(bloque.getGenero());
+        }
+        lista.agregarBloque(bloque);
+    }
+
+    private static String carpetaComun(List<String> carpetas) {
+        if (carpetas.isEmpty()) {
+            return "";
+        }
+        File comun = new File(carpetas.get(0));
+        for (String carpeta : carpetas) {
+            while (comun != null && !(carpeta + File.separator).startsWith(comun.getPath() + File.separator)) {
+                comun = comun.getParentFile();
+            }
+        }
+        return comun != null ? comun.getPath() : "";
+    }
+
+    private static Genero generoDeCarpeta(String carpeta) {
+        for (File actual = new File(carpeta); actual != null; actual = actual.getParentFile()) {
+            for (Genero genero : Genero.values()) {
+                if (genero.getNombre().equalsIgnoreCase(actual.getName())) {
+                    return genero;
+                }
+            }
+        }
+        return Genero.VARIADO;
+    }
+
+    private static boolean esEspecial(Elemento elemento, String carpetaEspeciales) {
+        return !elemento.marcador && carpetaEspeciales.equals(elemento.carpeta()) && tipoEspecial(elemento.ruta) != null;
+    }
+
+    private static InsercionEspecial.TipoInsercion tipoEspecial(String ruta) {
+        String nombre = new File(ruta).getName();
+        if (nombre.startsWith("01")) return InsercionEspecial.TipoInsercion.HIMNO_NACIONAL;
+        if (nombre.startsWith("02")) return InsercionEspecial.TipoInsercion.HIMNO_GUERRERO;
+        if (nombre.startsWith("03")) return InsercionEspecial.TipoInsercion.POEMA;
+        return null;
+    }
+
+    private static InsercionEspecial crearEspecial(Elemento elemento, Map<String, EntradaCatalogo> existentes) {
+        EntradaCatalogo entrada = existentes.get(elemento.ruta);
+        if (entrada == null) {
+            TrazaGeneracion.registrar(Nivel.ADVERTENCIA, "Advertencia: Archivo no encontrado: {}", elemento.ruta);
+            return null;
+        }
+        return GeneradorListaService.crearInsercionDesdeArchivo(entrada, tipoEspecial(elemento.ruta));
+    }
+
+    private static long duracionTotalMs(List<InsercionEspecial> inserciones) {
+        long total = 0;
+        for (InsercionEspecial insercion : inserciones) {
+            total += insercion.getDuracion().toMillis();
+        }
+        return total;
+    }
+
+    private static LocalTime horaDelDia(long milisegundos) {
+        return LocalTime.ofSecondOfDay((milisegundos / 1000) % (24 * 3600));
+    }
+
+    private static LocalDate fechaDesdeNombre(String rutaArchivo) {
+        Matcher fecha = FECHA_EN_NOMBRE.matcher(new File(rutaArchivo).getName());
+        if (fecha.find()) {
+            try {
+                return LocalDate.parse(fecha.group(1));
+            } catch (DateTimeParseException e) {
+                // Nombre con otro formato: se usa la fecha de hoy
+            }
+        }
+        return LocalDate.now();
+    }
+}
@@ -0,0 +1,163 @@
+package com.radio.services;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Elige, de entre candidatos ya mezclados, las canciones que llenan un bloque hasta su duración objetivo.
+ * Primero toma canciones en orden mientras quepan y después repara el hueco o el exceso
+ * agregando, quitando o cambiando una canción por ronda.
+ */
+public class RellenadorBloque {
+
+    /** Candidatos no elegidos que se consideran en la reparación, además de los ya recorridos */
+    static final int VENTANA_REPARACION = 256;
+    private static final int MAX_RONDAS = 16;
+    /** Por debajo de este error no vale la pena seguir reparando */
+    private static final long PRECISION_MS = 1000;
+
+    /**
+     * Devuelve los índices de los candidatos elegidos, en el orden en que deben sonar.
+     *
+     * @param duracionesMs duración de cada candidato, en el orden mezclado
+     * @param objetivoMs   duración que debe ocupar el bloque
+     * @param rellenoMs    duración de marcadores e inserciones que recibe un bloque de n canciones
+     */
+    public static int[] seleccionar(long[] duracionesMs, long objetivoMs, IntToLongFunction rellenoMs) {
+        int total = duracionesMs.length;
+        int[] seleccion = new int[total];
+        boolean[] elegido = new boolean[total];
+        int cantidad = 0;
+        long suma = 0;
+
+        // Fase voraz: respeta el orden mezclado y se detiene con la primera canción que no cabe
+        int recorridos = 0;
+        while (recorridos < total) {
+            long duracion = duracionesMs[recorridos];
+            if (suma + duracion + rellenoMs.applyAsLong(cantidad + 1) > objetivoMs) {
+                break;
+            }
+            seleccion[cantidad++] = recorridos;
+            elegido[recorridos] = true;
+            suma += duracion;
+            recorridos++;
+        }
+
+        // Fase de reparación sobre una ventana limitada de candidatos sin usar
+        int limiteVentana = (int) Math.min(total, (long) recorridos + VENTANA_REPARACION);
+        long[] libres = ordenarLibres(duracionesMs, elegido, limiteVentana);
+
+        for (int ronda = 0; ronda < MAX_RONDAS; ronda++) {
+            long error = objetivoMs - (suma + rellenoMs.applyAsLong(cantidad));
+            if (Math.abs(error) <= PRECISION_MS) {
+                break;
+            }
+
+            long mejorError = Math.abs(error);
+            int mejorQuitar = -1;   // posición en seleccion
+            int mejorAgregar = -1;  // índice del candidato
+
+            // Agregar una canción
+            if (libres.length > 0) {
+                long cambioRelleno = rellenoMs.applyAsLong(cantidad + 1) - rellenoMs.applyAsLong(cantidad);
+                int candidato = masCercano(libres, error - cambioRelleno);
+                long nuevo = Math.abs(error - cambioRelleno - duracionesMs[candidato]);
+                if (nuevo < mejorError) {
+                    mejorError = nuevo;
+                    mejorAgregar = candidato;
+                    mejorQuitar = -1;
+                }
+            }
+
+            if (cantidad > 0) {
+                long cambioRelleno = rellenoMs.applyAsLong(cantidad) - rellenoMs.applyAsLong(cantidad - 1);
+                for (int posicion = 0; posicion < cantidad; posicion++) {
+                    long duracion = duracionesMs[seleccion[posicion]];
+
+                    // Quitar una canción
+                    long nuevo = Math.abs(error + duracion + cambioRelleno);
+                    if (nuevo < mejorError) {
+                        mejorError = nuevo;
+                        mejorQuitar = posicion;
+                        mejorAgregar = -1;
+                    }
+
+                    // Cambiar una canción por otra de duración cercana a la que falta o sobra
+                    if (libres.length > 0) {
+                        int candidato = masCercano(libres, duracion + error);
+                        nuevo = Math.abs(error + duracion - duracionesMs[candidato]);
+                        if (nuevo < mejorError) {
+                            mejorError = nuevo;
+                            mejorQuitar = posicion;
+                            mejorAgregar = candidato;
+                        }
+                    }
+                }
+            }
+
+            if (mejorQuitar < 0 && mejorAgregar < 0) {
+                break;
+            }
+
+            if (mejorQuitar >= 0 && mejorAgregar >= 0) {
+                // Cambio en el mismo lugar para conservar el orden mezclado
+                elegido[seleccion[mejorQuitar]] = false;
+                suma -= duracionesMs[seleccion[mejorQuitar]];
+                seleccion[mejorQuitar] = mejorAgregar;
+                elegido[mejorAgregar] = true;
+                suma += duracionesMs[mejorAgregar];
+            } else if (mejorQuitar >= 0) {
+                elegido[seleccion[mejorQuitar]] = false;
+                suma -= duracionesMs[seleccion[mejorQuitar]];
+                System.arraycopy(seleccion, mejorQuitar + 1, seleccion, mejorQuitar, cantidad - mejorQuitar - 1);
+                cantidad--;
+            } else {
+                seleccion[cantidad++] = mejorAgregar;
+                elegido[mejorAgregar] = true;
+                suma += duracionesMs[mejorAgregar];
+            }
+
+            libres = ordenarLibres(duracionesMs, elegido, limiteVentana);
+        }
+
+        return Arrays.copyOf(seleccion, cantidad);
+    }
+
+    /**
+     * Candidatos no elegidos de la ventana, ordenados por duración.
+     * Cada valor empaqueta la duración en los bits altos y el índice en los 24 bajos.
+     */
+    private static long[] ordenarLibres(long[] duracionesMs, boolean[] elegido, int limite) {
+        long[] libres = new long[limite];
+        int cantidad = 0;
+        for (int i = 0; i < limite; i++) {
+            if (!elegido[i]) {
+                libres[cantidad++] = (Math.max(0, duracionesMs[i]) << 24) | i;
+            }
+        }
+        libres = Arrays.copyOf(libres, cantidad);
+        Arrays.sort(libres);
+        return libres;
+    }
+
+    /**
+     * Índice del candidato libre cuya duración está más cerca de la buscada
+     */
+    private static int masCercano(long[] libres, long duracionBuscadaMs) {
+        long clave = Math.max(0, duracionBuscadaMs) << 24;
+        int posicion = Arrays.binarySearch(libres, clave);
+        if (posicion < 0) {
+            posicion = -posicion - 1;
+        }
+
+        int mejor = Math.min(posicion, libres.length - 1);
+        if (posicion > 0 && posicion < libres.length) {
+            long abajo = duracionBuscadaMs - (libres[posicion - 1] >>> 24);
+            long arriba = (libres[posicion] >>> 24) - duracionBuscadaMs;
+            if (abajo <= arriba) {
+                mejor = posicion - 1;
+            }
+        }
+        return (int) (libres[mejor] & 0xFFFFFF);
+    }
+}
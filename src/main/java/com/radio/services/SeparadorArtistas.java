@@ -0,0 +1,243 @@
+package com.radio.services;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Separación de artistas dentro de un día: un artista no vuelve a sonar hasta pasadas
+ * N canciones y M minutos, también entre un bloque y el siguiente.
+ *
+ * Guarda la última posición y el último inicio de cada artista. En cada paso toma el primer
+ * candidato permitido de una ventana de anticipación de tamaño fijo; si ninguno lo está,
+ * el que lleva más canciones sin sonar. El coste es lineal en las canciones colocadas.
+ * Si se conoce lo que suena después (al regenerar un bloque), también se separa de eso.
+ */
+public class SeparadorArtistas {
+
+    public static final int CANCIONES_DEFAULT = 4;
+    public static final int MINUTOS_DEFAULT = 30;
+    private static final int VENTANA_ANTICIPACION = 32;
+    private static final long DIA_MS = Duration.ofDays(1).toMillis();
+    private static final String ARTISTA_DESCONOCIDO = "artista desconocido";
+
+    private final int separacionCanciones;
+    private final long separacionMs;
+
+    private final Map<String, Integer> ultimaPosicion = new HashMap<>();
+    private final Map<String, Long> ultimoInicioMs = new HashMap<>();
+    private int posicion = 0;             // canciones ya colocadas en el día
+    private long relojMs = 0;             // inicio de la próxima canción desde la medianoche
+    private long inicioBloqueMs = -1;
+    private int sinSeparar = 0;           // canciones colocadas sin cumplir la separación en el último bloque
+
+    // Primera aparición de cada artista en el bloque siguiente, solo para la próxima colocación
+    private final Map<String, Integer> proximaPosicion = new HashMap<>(); // canciones desde el final del bloque
+    private final Map<String, Long> proximoInicioMs = new HashMap<>();
+
+    public SeparadorArtistas(int separacionCanciones, int separacionMinutos) {
+        this.separacionCanciones = Math.max(0, separacionCanciones);
+        this.separacionMs = Duration.ofMinutes(Math.max(0, separacionMinutos)).toMillis();
+    }
+
+    /**
+     * Sitúa el reloj al comienzo de un bloque; la apertura u otros elementos ya ocupan parte de él
+     */
+    public void iniciarBloque(LocalTime horaInicio, Duration ocupado) {
+        long inicio = horaInicio.toSecondOfDay() * 1000L;
+        if (inicio < inicioBloqueMs) {
+            inicio += DIA_MS; // el bloque anterior cruzó la medianoche
+        }
+        inicioBloqueMs = inicio;
+        relojMs = inicio + ocupado.toMillis();
+    }
+
+    /**
+     * Reordena los candidatos ya mezclados para que los primeros respeten la separación,
+     * solo hasta cubrir la duración indicada; el resto conserva su orden. No cambia el estado.
+     *
+     * @return permutación de los índices de los candidatos
+     */
+    public int[] ordenarCandidatos(IntFunction<String> artista, long[] duracionesMs, long limiteMs) {
+        return ordenar(artista, duracionesMs, limiteMs, false);
+    }
+
+    /**
+     * Ordena las canciones elegidas para el bloque y las da por colocadas
+     *
+     * @return orden en que deben sonar, como permutación de los índices recibidos
+     */
+    public int[] colocar(IntFunction<String> artista, long[] duracionesMs) {
+        return ordenar(artista, duracionesMs, Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Da por colocadas, en el orden recibido, canciones que ya están en el día,
+     * como las del bloque anterior a uno que se vuelve a generar
+     */
+    public void anotar(IntFunction<String> artista, long[] duracionesMs) {
+        for (int i = 0; i < duracionesMs.length; i++) {
+            String clave = clave(artista.apply(i));
+            if (clave != null) {
+                ultimaPosicion.put(clave, posicion);
+                ultimoInicioMs.put(clave, relojMs);
+            }
+            posicion++;
+            relojMs += duracionesMs[i];
+        }
+    }
+
+    /**
+     * Da a conocer las canciones del bloque que sigue al próximo a colocar, para que el final de este
+     * tampoco repita sus artistas. La duración de cada canción incluye lo que suena hasta la siguiente.
+     * Solo vale para la próxima llamada a {@link #colocar}.
+     */
+    public void anticipar(IntFunction<String> artista, long[] duracionesMs, LocalTime horaInicio, Duration ocupado) {
+        proximaPosicion.clear();
+        proximoInicioMs.clear();
+        long reloj = horaInicio.toSecondOfDay() * 1000L;
+        if (reloj < inicioBloqueMs) {
+            reloj += DIA_MS; // el bloque siguiente empieza pasada la medianoche
+        }
+        reloj += ocupado.toMillis();
+        for (int i = 0; i < duracionesMs.length; i++) {
+            String clave = clave(artista.apply(i));
+            if (clave != null && !proximaPosicion.containsKey(clave)) {
+                proximaPosicion.put(clave, i);
+                proximoInicioMs.put(clave, reloj);
+            }
+            reloj += duracionesMs[i];
+        }
+    }
+
+    public int getSinSeparar() {
+        return sinSeparar;
+    }
+
+    private boolean activo() {
+        return separacionCanciones > 0 || separacionMs > 0;
+    }
+
+    private int[] ordenar(IntFunction<String> artista, long[] duracionesMs, long limiteMs, boolean confirmar) {
+        int total = duracionesMs.length;
+        int[] orden = new int[total];
+        if (!activo()) {
+            for (int i = 0; i < total; i++) {
+                orden[i] = i;
+            }
+            return orden;
+        }
+
+        // Al ordenar candidatos se simula sobre mapas propios que tapan a los del día
+        Map<String, Integer> posiciones = confirmar ? ultimaPosicion : new HashMap<>();
+        Map<String, Long> inicios = confirmar ? ultimoInicioMs : new HashMap<>();
+
+        int[] ventana = new int[Math.min(VENTANA_ANTICIPACION, total)];
+        String[] artistasVentana = new String[ventana.length];
+        int enVentana = 0;
+        int siguiente = 0;
+        int colocados = 0;
+        int forzados = 0;
+        int pos = posicion;
+        long reloj = relojMs;
+        long sumaMs = 0;
+
+        while (colocados < total && sumaMs < limiteMs) {
+            while (enVentana < ventana.length && siguiente < total) {
+                ventana[enVentana] = siguiente;
+                artistasVentana[enVentana] = clave(artista.apply(siguiente));
+                enVentana++;
+                siguiente++;
+            }
+
+            int elegido = -1;
+            int masAntiguo = 0;
+            long mayorDistancia = -1;
+            long menorHolgura = Long.MAX_VALUE;
+            for (int v = 0; v < enVentana; v++) {
+                String clave = artistasVentana[v];
+                Integer ultima = clave != null ? posiciones.getOrDefault(clave, ultimaPosicion.get(clave)) : null;
+                Integer proxima = clave != null ? proximaPosicion.get(clave) : null;
+                long distancia = Long.MAX_VALUE;
+                long holgura = Long.MAX_VALUE;
+                boolean permitido = true;
+                if (ultima != null) {
+                    distancia = pos - ultima;
+                    long transcurridoMs = reloj - inicios.getOrDefault(clave, ultimoInicioMs.get(clave));
+                    permitido = distancia > separacionCanciones && transcurridoMs >= separacionMs;
+                }
+                if (proxima != null) {
+                    // El bloque siguiente empieza cuando se hayan colocado todas las canciones de este
+                    holgura = posicion + total + proxima - pos;
+                    long faltaMs = proximoInicioMs.get(clave) - reloj;
+                    distancia = Math.min(distancia, holgura);
+                    permitido &= holgura > separacionCanciones && faltaMs >= separacionMs;
+                }
+                if (permitido) {
+                    // Con el bloque siguiente a la vista, primero lo que pronto dejará de caber
+                    if (proximaPosicion.isEmpty()) {
+                        elegido = v;
+                        break;
+                    }
+                    if (elegido < 0 || holgura < menorHolgura) {
+                        elegido = v;
+                        menorHolgura = holgura;
+                    }
+                } else if (distancia > mayorDistancia) {
+                    mayorDistancia = distancia;
+                    masAntiguo = v;
+                }
+            }
+            if (elegido < 0) {
+                elegido = masAntiguo;
+                forzados++;
+            }
+
+            int indice = ventana[elegido];
+            String clave = artistasVentana[elegido];
+            System.arraycopy(ventana, elegido + 1, ventana, elegido, enVentana - elegido - 1);
+            System.arraycopy(artistasVentana, elegido + 1, artistasVentana, elegido, enVentana - elegido - 1);
+            enVentana--;
+
+            orden[colocados++] = indice;
+            if (clave != null) {
+                posiciones.put(clave, pos);
+                inicios.put(clave, reloj);
+            }
+            pos++;
+            reloj += duracionesMs[indice];
+            sumaMs += duracionesMs[indice];
+        }
+
+        // Lo que no hizo falta ordenar sigue en su orden mezclado
+        for (int v = 0; v < enVentana; v++) {
+            orden[colocados++] = ventana[v];
+        }
+        while (siguiente < total) {
+            orden[colocados++] = siguiente++;
+        }
+
+        if (confirmar) {
+            posicion = pos;
+            relojMs = reloj;
+            sinSeparar = forzados;
+            proximaPosicion.clear();
+            proximoInicioMs.clear();
+        }
+        return orden;
+    }
+
+    /**
+     * Clave de comparación del artista; los desconocidos no se separan
+     */
+    private static String clave(String artista) {
+        if (artista == null) {
+            return null;
+        }
+        String clave = artista.trim().toLowerCase(Locale.ROOT);
+        return clave.isEmpty() || clave.equals(ARTISTA_DESCONOCIDO) ? null : clave;
+    }
+}
@@ -0,0 +1,66 @@
+package com.radio.utils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Conjunto de números no negativos guardado como bits, seguro entre hilos sin bloqueos:
+ * cada alta es un compareAndSet sobre una palabra de 64 bits.
+ * Los números por encima de la capacidad inicial (canciones catalogadas después) van a un conjunto aparte.
+ */
+public class BitSetConcurrente {
+
+    private final AtomicLongArray palabras;
+    private final Set<Integer> desbordados = ConcurrentHashMap.newKeySet();
+
+    public BitSetConcurrente(int capacidad) {
+        this.palabras = new AtomicLongArray((Math.max(0, capacidad) + 63) >>> 6);
+    }
+
+    /**
+     * Agrega el número; devuelve true si no estaba, así dos hilos nunca reclaman el mismo
+     */
+    public boolean agregar(int valor) {
+        int palabra = valor >>> 6;
+        if (palabra >= palabras.length()) {
+            return desbordados.add(valor);
+        }
+        long bit = 1L << valor;
+        long actual;
+        do {
+            actual = palabras.get(palabra);
+            if ((actual & bit) != 0) {
+                return false;
+            }
+        } while (!palabras.compareAndSet(palabra, actual, actual | bit));
+        return true;
+    }
+
+    /**
+     * Quita el número; devuelve true si estaba
+     */
+    public boolean quitar(int valor) {
+        int palabra = valor >>> 6;
+        if (palabra >= palabras.length()) {
+            return desbordados.remove(valor);
+        }
+        long bit = 1L << valor;
+        long actual;
+        do {
+            actual = palabras.get(palabra);
+            if ((actual & bit) == 0) {
+                return false;
+            }
+        } while (!palabras.compareAndSet(palabra, actual, actual & ~bit));
+        return true;
+    }
+
+    public boolean contiene(int valor) {
+        int palabra = valor >>> 6;
+        if (palabra >= palabras.length()) {
+            return desbordados.contains(valor);
+        }
+        return (palabras.get(palabra) & (1L << valor)) != 0;
+    }
+}
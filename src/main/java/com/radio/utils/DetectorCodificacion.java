@@ -0,0 +1,97 @@
+package com.radio.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Detecta la codificación de un archivo de texto (listas .m3u, configuraciones) leyéndolo una sola vez.
+ *
+ * Orden: marca BOM si existe; UTF-8 si todos los bytes forman secuencias válidas;
+ * Windows-1252 si ningún byte cae en sus posiciones sin definir; ISO-8859-1 en otro caso.
+ * Los decodificadores son estrictos, así que validar y decodificar es la misma operación.
+ */
+public class DetectorCodificacion {
+
+    public static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    /**
+     * Texto de un archivo junto con la codificación con la que se leyó
+     */
+    public static class TextoDecodificado {
+        private final String texto;
+        private final Charset codificacion;
+
+        TextoDecodificado(String texto, Charset codificacion) {
+            this.texto = texto;
+            this.codificacion = codificacion;
+        }
+
+        public String getTexto() { return texto; }
+        public Charset getCodificacion() { return codificacion; }
+    }
+
+    private DetectorCodificacion() {
+    }
+
+    public static TextoDecodificado leer(Path archivo) throws IOException {
+        return decodificar(Files.readAllBytes(archivo));
+    }
+
+    public static TextoDecodificado decodificar(byte[] bytes) {
+        if (empiezaCon(bytes, 0xEF, 0xBB, 0xBF)) {
+            return new TextoDecodificado(new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        }
+        if (empiezaCon(bytes, 0xFF, 0xFE)) {
+            return new TextoDecodificado(new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16LE), StandardCharsets.UTF_16LE);
+        }
+        if (empiezaCon(bytes, 0xFE, 0xFF)) {
+            return new TextoDecodificado(new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16BE), StandardCharsets.UTF_16BE);
+        }
+
+        // El tramo ASCII inicial se lee igual en las tres codificaciones: solo se decodifica una vez
+        int ascii = 0;
+        while (ascii < bytes.length && bytes[ascii] >= 0) {
+            ascii++;
+        }
+        String prefijo = new String(bytes, 0, ascii, StandardCharsets.ISO_8859_1);
+        if (ascii == bytes.length) {
+            return new TextoDecodificado(prefijo, StandardCharsets.UTF_8);
+        }
+
+        ByteBuffer resto = ByteBuffer.wrap(bytes, ascii, bytes.length - ascii);
+        for (Charset codificacion : new Charset[]{StandardCharsets.UTF_8, WINDOWS_1252}) {
+            try {
+                CharBuffer texto = codificacion.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(resto.duplicate());
+                return new TextoDecodificado(prefijo + texto, codificacion);
+            } catch (CharacterCodingException e) {
+                // Probar la siguiente
+            }
+        }
+
+        // ISO-8859-1 define los 256 bytes: nunca falla
+        return new TextoDecodificado(prefijo + new String(bytes, ascii, bytes.length - ascii, StandardCharsets.ISO_8859_1),
+                StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean empiezaCon(byte[] bytes, int... marca) {
+        if (bytes.length < marca.length) {
+            return false;
+        }
+        for (int i = 0; i < marca.length; i++) {
+            if ((bytes[i] & 0xFF) != marca[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.radio.utils;
+
+import java.io.File;
+
+/**
+ * Ubicación de los archivos persistentes de la aplicación (catálogo, cachés, estado).
+ * Por defecto es ~/.generador-zararadio; se puede cambiar con -Dradio.datos=RUTA
+ */
+public class DirectorioDatos {
+
+    private static final String PROPIEDAD_DIRECTORIO = "radio.datos";
+    private static final String NOMBRE_DIRECTORIO = ".generador-zararadio";
+
+    private DirectorioDatos() {}
+
+    /**
+     * Devuelve la carpeta de datos, creándola si todavía no existe
+     */
+    public static File obtener() {
+        String configurado = System.getProperty(PROPIEDAD_DIRECTORIO);
+        File directorio = (configurado != null && !configurado.isEmpty())
+                ? new File(configurado)
+                : new File(System.getProperty("user.home"), NOMBRE_DIRECTORIO);
+
+        if (!directorio.exists() && !directorio.mkdirs()) {
+            System.err.println("No se pudo crear el directorio de datos: " + directorio.getAbsolutePath());
+        }
+        return directorio;
+    }
+
+    /**
+     * Devuelve un archivo dentro de la carpeta de datos
+     */
+    public static File archivo(String nombre) {
+        return new File(obtener(), nombre);
+    }
+}
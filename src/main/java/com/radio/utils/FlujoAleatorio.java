@@ -0,0 +1,43 @@
+package com.radio.utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Flujos aleatorios independientes derivados de una semilla y de claves (día, bloque, rotador).
+ * Cada flujo depende solo de su semilla y sus claves, no del orden en que se piden
+ * ni del hilo que lo usa: la misma semilla reproduce exactamente la misma lista.
+ */
+public final class FlujoAleatorio {
+
+    private static final long PROPORCION_AUREA = 0x9E3779B97F4A7C15L;
+
+    private FlujoAleatorio() {}
+
+    /**
+     * Flujo propio de la combinación semilla + claves
+     */
+    public static SplittableRandom derivar(long semilla, long... claves) {
+        return new SplittableRandom(semillaDerivada(semilla, claves));
+    }
+
+    /**
+     * Semilla de la combinación, para seguir derivando a partir de ella
+     */
+    public static long semillaDerivada(long semilla, long... claves) {
+        long h = mezclar(semilla);
+        for (long clave : claves) {
+            h = mezclar(h + PROPORCION_AUREA + mezclar(clave));
+        }
+        return h;
+    }
+
+    /**
+     * Finalizador de SplitMix64: cambia cada bit de la salida con la mitad de probabilidad
+     * ante el cambio de un solo bit de la entrada
+     */
+    public static long mezclar(long valor) {
+        valor = (valor ^ (valor >>> 30)) * 0xBF58476D1CE4E5B9L;
+        valor = (valor ^ (valor >>> 27)) * 0x94D049BB133111EBL;
+        return valor ^ (valor >>> 31);
+    }
+}
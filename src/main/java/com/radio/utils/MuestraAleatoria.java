@@ -0,0 +1,73 @@
+package com.radio.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Extrae al azar índices distintos de [0, total), uno por llamada, con un Fisher–Yates parcial.
+ * Solo se recuerdan las posiciones intercambiadas, así que k extracciones cuestan O(k)
+ * en tiempo y memoria, sea cual sea el tamaño de la carpeta.
+ */
+public class MuestraAleatoria {
+
+    private final int total;
+    private final RandomGenerator random;
+    private final Map<Integer, Integer> intercambios = new HashMap<>();
+    private int extraidos = 0;
+
+    public MuestraAleatoria(int total, RandomGenerator random) {
+        this.total = total;
+        this.random = random;
+    }
+
+    public boolean hayMas() {
+        return extraidos < total;
+    }
+
+    /**
+     * Siguiente índice al azar entre los que todavía no salieron
+     */
+    public int siguiente() {
+        if (!hayMas()) {
+            throw new IllegalStateException("No quedan índices por extraer");
+        }
+        int posicion = extraidos + random.nextInt(total - extraidos);
+        int elegido = intercambios.getOrDefault(posicion, posicion);
+
+        // La posición actual ya no se vuelve a leer: su valor pasa al hueco del elegido
+        Integer actual = intercambios.remove(extraidos);
+        if (posicion != extraidos) {
+            intercambios.put(posicion, actual != null ? actual : extraidos);
+        }
+        extraidos++;
+        return elegido;
+    }
+
+    /**
+     * Siguiente índice al azar que no se rechace; -1 si no queda ninguno.
+     * Los rechazados cuentan como extraídos y no vuelven a salir.
+     */
+    public int siguiente(IntPredicate rechazar) {
+        while (hayMas()) {
+            int indice = siguiente();
+            if (!rechazar.test(indice)) {
+                return indice;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hasta cantidad índices distintos de [0, total), en orden aleatorio
+     */
+    public static int[] elegir(int total, int cantidad, RandomGenerator random) {
+        MuestraAleatoria muestra = new MuestraAleatoria(total, random);
+        int[] elegidos = new int[Math.max(0, Math.min(cantidad, total))];
+        for (int i = 0; i < elegidos.length; i++) {
+            elegidos[i] = muestra.siguiente();
+        }
+        return elegidos;
+    }
+}
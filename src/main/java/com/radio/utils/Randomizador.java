@@ -1,22 +1,24 @@
 package com.radio.utils;
 
+import com.radio.catalog.CacheMetadatos;
+import com.radio.catalog.CatalogoMusical;
+import com.radio.catalog.EntradaCatalogo;
+import com.radio.catalog.MetadatosAudio;
 import com.radio.models.Cancion;
 import com.radio.models.InsercionEspecial;
-import java.io.File;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
-
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Selecciones aleatorias sueltas fuera del generador. Por defecto cada hilo usa su propio
+ * generador (sin contención entre hilos); las variantes con RandomGenerator permiten
+ * pasar un flujo con semilla para repetir el resultado.
+ */
 public class Randomizador {
-    private static final Random random = new Random();
-
-    // Extensiones de audio compatibles con ZaraRadio
-    private static final List<String> EXTENSIONES_AUDIO = Arrays.asList(
-            ".mp3", ".wav", ".wma", ".ogg", ".aac"
-    );
 
     /**
      * Obtiene una lista de archivos de audio de una carpeta de forma aleatoria
@@ -24,29 +26,15 @@ public class Randomizador {
     public static List<Cancion> obtenerCancionesAleatorias(String rutaCarpeta, int cantidad) {
         List<Cancion> canciones = new ArrayList<>();
 
-        File carpeta = new File(rutaCarpeta);
-        if (!carpeta.exists() || !carpeta.isDirectory()) {
-            return canciones;
-        }
-
-        File[] archivos = carpeta.listFiles(file ->
-                file.isFile() && esArchivoAudio(file.getName())
-        );
-
-        if (archivos == null || archivos.length == 0) {
+        List<EntradaCatalogo> archivos = CatalogoMusical.getInstancia()
+                .obtenerEntradas(rutaCarpeta, CatalogoMusical.PROFUNDIDAD_MUSICA);
+        if (archivos.isEmpty()) {
             return canciones;
         }
 
-        // Convertir archivos a lista y mezclar
-        List<File> listaArchivos = new ArrayList<>(Arrays.asList(archivos));
-        Collections.shuffle(listaArchivos, random);
-
-        // Tomar la cantidad solicitada (o todos si hay menos)
-        int cantidadFinal = Math.min(cantidad, listaArchivos.size());
-
-        for (int i = 0; i < cantidadFinal; i++) {
-            File archivo = listaArchivos.get(i);
-            Cancion cancion = crearCancionDesdeArchivo(archivo);
+        // Tomar la cantidad solicitada (o todos si hay menos) sin copiar ni mezclar la carpeta
+        for (int indice : MuestraAleatoria.elegir(archivos.size(), cantidad, ThreadLocalRandom.current())) {
+            Cancion cancion = crearCancionDesdeArchivo(archivos.get(indice));
             canciones.add(cancion);
         }
 
@@ -66,21 +54,13 @@ public class Randomizador {
      */
     public static InsercionEspecial obtenerInsercionAleatoria(String rutaCarpeta,
                                                               InsercionEspecial.TipoInsercion tipo) {
-        File carpeta = new File(rutaCarpeta);
-        if (!carpeta.exists() || !carpeta.isDirectory()) {
-            return null;
-        }
-
-        File[] archivos = carpeta.listFiles(file ->
-                file.isFile() && esArchivoAudio(file.getName())
-        );
-
-        if (archivos == null || archivos.length == 0) {
+        List<EntradaCatalogo> archivos = CatalogoMusical.getInstancia().obtenerEntradas(rutaCarpeta);
+        if (archivos.isEmpty()) {
             return null;
         }
 
         // Seleccionar archivo aleatorio
-        File archivoSeleccionado = archivos[random.nextInt(archivos.length)];
+        EntradaCatalogo archivoSeleccionado = archivos.get(ThreadLocalRandom.current().nextInt(archivos.size()));
 
         return crearInsercionDesdeArchivo(archivoSeleccionado, tipo);
     }
@@ -93,27 +73,13 @@ public class Randomizador {
                                                                        int cantidad) {
         List<InsercionEspecial> inserciones = new ArrayList<>();
 
-        File carpeta = new File(rutaCarpeta);
-        if (!carpeta.exists() || !carpeta.isDirectory()) {
-            return inserciones;
-        }
-
-        File[] archivos = carpeta.listFiles(file ->
-                file.isFile() && esArchivoAudio(file.getName())
-        );
-
-        if (archivos == null || archivos.length == 0) {
+        List<EntradaCatalogo> archivos = CatalogoMusical.getInstancia().obtenerEntradas(rutaCarpeta);
+        if (archivos.isEmpty()) {
             return inserciones;
         }
 
-        List<File> listaArchivos = new ArrayList<>(Arrays.asList(archivos));
-        Collections.shuffle(listaArchivos, random);
-
-        int cantidadFinal = Math.min(cantidad, listaArchivos.size());
-
-        for (int i = 0; i < cantidadFinal; i++) {
-            File archivo = listaArchivos.get(i);
-            InsercionEspecial insercion = crearInsercionDesdeArchivo(archivo, tipo);
+        for (int indice : MuestraAleatoria.elegir(archivos.size(), cantidad, ThreadLocalRandom.current())) {
+            InsercionEspecial insercion = crearInsercionDesdeArchivo(archivos.get(indice), tipo);
             inserciones.add(insercion);
         }
 
@@ -124,32 +90,52 @@ public class Randomizador {
      * Mezcla una lista existente de canciones
      */
     public static void mezclarCanciones(List<Cancion> canciones) {
-        Collections.shuffle(canciones, random);
+        Collections.shuffle(canciones, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Mezcla una lista existente de canciones con el flujo indicado
+     */
+    public static void mezclarCanciones(List<Cancion> canciones, RandomGenerator random) {
+        for (int i = canciones.size() - 1; i > 0; i--) {
+            Collections.swap(canciones, i, random.nextInt(i + 1));
+        }
     }
 
     /**
-     * Selecciona elementos aleatorios de una lista sin modificar la original
+     * Selecciona elementos aleatorios de una lista sin modificar la original.
+     * Devuelve una lista nueva del tamaño pedido, no una vista sobre una copia entera.
      */
     public static <T> List<T> seleccionarAleatorios(List<T> lista, int cantidad) {
-        List<T> copia = new ArrayList<>(lista);
-        Collections.shuffle(copia, random);
-        return copia.subList(0, Math.min(cantidad, copia.size()));
+        return seleccionarAleatorios(lista, cantidad, ThreadLocalRandom.current());
     }
 
-    // Métodos auxiliares privados
-    private static boolean esArchivoAudio(String nombreArchivo) {
-        String extension = nombreArchivo.toLowerCase();
-        return EXTENSIONES_AUDIO.stream().anyMatch(extension::endsWith);
+    /**
+     * Igual que {@link #seleccionarAleatorios(List, int)}, con el flujo indicado
+     */
+    public static <T> List<T> seleccionarAleatorios(List<T> lista, int cantidad, RandomGenerator random) {
+        int[] indices = MuestraAleatoria.elegir(lista.size(), cantidad, random);
+        List<T> seleccion = new ArrayList<>(indices.length);
+        for (int indice : indices) {
+            seleccion.add(lista.get(indice));
+        }
+        return seleccion;
     }
 
-    private static Cancion crearCancionDesdeArchivo(File archivo) {
+    // Métodos auxiliares privados
+    private static Cancion crearCancionDesdeArchivo(EntradaCatalogo archivo) {
         Cancion cancion = new Cancion();
 
         // Extraer información básica del nombre del archivo
-        String nombreSinExtension = archivo.getName().replaceFirst("[.][^.]+$", "");
-
-        // Intentar separar artista y título si están separados por " - "
-        if (nombreSinExtension.contains(" - ")) {
+        String nombreSinExtension = archivo.getNombreSinExtension();
+
+        MetadatosAudio metadatos = CacheMetadatos.getInstancia().obtener(archivo);
+        if (metadatos.getArtista() != null && metadatos.getTitulo() != null) {
+            // Etiquetas ID3: más fiables que el nombre del archivo
+            cancion.setArtista(metadatos.getArtista());
+            cancion.setTitulo(metadatos.getTitulo());
+        } else if (nombreSinExtension.contains(" - ")) {
+            // Intentar separar artista y título si están separados por " - "
             String[] partes = nombreSinExtension.split(" - ", 2);
             cancion.setArtista(partes[0].trim());
             cancion.setTitulo(partes[1].trim());
@@ -158,20 +144,21 @@ public class Randomizador {
             cancion.setTitulo(nombreSinExtension);
         }
 
-        cancion.setRutaArchivo(archivo.getAbsolutePath());
-        cancion.setDuracion(Duration.ofMinutes(3).plusSeconds(30)); // Duración estimada por defecto
+        cancion.setEntrada(archivo);
+        // Duración real leída de la cabecera; 3:30 solo si no se pudo determinar
+        cancion.setDuracion(CacheMetadatos.getInstancia().obtenerDuracion(archivo, Duration.ofMinutes(3).plusSeconds(30)));
 
         return cancion;
     }
 
-    private static InsercionEspecial crearInsercionDesdeArchivo(File archivo,
+    private static InsercionEspecial crearInsercionDesdeArchivo(EntradaCatalogo archivo,
                                                                 InsercionEspecial.TipoInsercion tipo) {
         InsercionEspecial insercion = new InsercionEspecial();
 
-        String nombreSinExtension = archivo.getName().replaceFirst("[.][^.]+$", "");
+        String nombreSinExtension = archivo.getNombreSinExtension();
 
         insercion.setNombre(nombreSinExtension);
-        insercion.setRutaArchivo(archivo.getAbsolutePath());
+        insercion.setRutaArchivo(archivo.getRutaAbsoluta());
         insercion.setTipo(tipo);
 
         // Duraciones estimadas según el tipo
@@ -196,6 +183,9 @@ public class Randomizador {
                 insercion.setDuracion(Duration.ofSeconds(30));
         }
 
+        // La duración por tipo solo queda si no se pudo leer la real del archivo
+        insercion.setDuracion(CacheMetadatos.getInstancia().obtenerDuracion(archivo, insercion.getDuracion()));
+
         return insercion;
     }
 }
\ No newline at end of file
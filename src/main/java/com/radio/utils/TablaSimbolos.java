@@ -0,0 +1,46 @@
+package com.radio.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Textos repetidos (artistas, carpetas, géneros) guardados una sola vez y referidos por número.
+ * Una columna de números de símbolo ocupa 4 bytes por fila en lugar de una cadena propia.
+ */
+public class TablaSimbolos {
+
+    /** Número que representa la ausencia de texto (null) */
+    public static final int NINGUNO = -1;
+
+    private final Map<String, Integer> numeros = new HashMap<>();
+    private final List<String> textos = new ArrayList<>();
+
+    /**
+     * Número del texto, agregándolo si todavía no estaba; NINGUNO para null
+     */
+    public synchronized int obtener(String texto) {
+        if (texto == null) {
+            return NINGUNO;
+        }
+        Integer numero = numeros.get(texto);
+        if (numero == null) {
+            numero = textos.size();
+            textos.add(texto);
+            numeros.put(texto, numero);
+        }
+        return numero;
+    }
+
+    /**
+     * Texto del número, o null para NINGUNO
+     */
+    public synchronized String texto(int numero) {
+        return numero == NINGUNO ? null : textos.get(numero);
+    }
+
+    public synchronized int getTotal() {
+        return textos.size();
+    }
+}
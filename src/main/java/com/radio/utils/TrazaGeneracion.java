@@ -0,0 +1,205 @@
+package com.radio.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traza de la generación: eventos con nivel guardados en un búfer circular preasignado.
+ * Registrar solo copia referencias de los argumentos inmutables (textos, números, fechas, enumerados);
+ * el texto se arma al volcar la traza, y con el nivel desactivado la llamada no hace nada.
+ * Cualquier otro argumento se convierte a texto al registrarlo: el búfer no retiene objetos
+ * grandes y el volcado muestra su estado en el momento del evento. Aun así conviene pasar
+ * valores ya resumidos (un total, un nombre) en lugar de listas o modelos completos.
+ * Las advertencias y errores se muestran también en consola.
+ *
+ * Los mensajes usan {} como marcador de cada argumento:
+ * TrazaGeneracion.registrar(Nivel.DEPURACION, "Rotador {} seleccionó {}", prefijo, nombre)
+ */
+public class TrazaGeneracion {
+
+    public enum Nivel {
+        DEPURACION, INFO, ADVERTENCIA, ERROR
+    }
+
+    private static final int CAPACIDAD = 8192; // potencia de 2
+    private static final DateTimeFormatter FORMATO_HORA =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final Evento[] eventos = new Evento[CAPACIDAD];
+    private static final AtomicLong siguiente = new AtomicLong();
+    private static volatile int nivelMinimo = leerNivelInicial().ordinal();
+    private static volatile boolean ecoConsola = Boolean.getBoolean("radio.traza.consola");
+
+    static {
+        for (int i = 0; i < CAPACIDAD; i++) {
+            eventos[i] = new Evento();
+        }
+    }
+
+    private TrazaGeneracion() {
+    }
+
+    /**
+     * Nivel mínimo que se registra; se puede fijar al arrancar con -Dradio.traza=DEPURACION
+     */
+    public static void setNivel(Nivel nivel) {
+        nivelMinimo = nivel.ordinal();
+    }
+
+    /**
+     * Muestra en consola todos los eventos registrados, no solo advertencias y errores
+     */
+    public static void setEcoConsola(boolean eco) {
+        ecoConsola = eco;
+    }
+
+    public static boolean activo(Nivel nivel) {
+        return nivel.ordinal() >= nivelMinimo;
+    }
+
+    public static void registrar(Nivel nivel, String mensaje) {
+        registrar(nivel, mensaje, null, null, null);
+    }
+
+    public static void registrar(Nivel nivel, String mensaje, Object a) {
+        registrar(nivel, mensaje, a, null, null);
+    }
+
+    public static void registrar(Nivel nivel, String mensaje, Object a, Object b) {
+        registrar(nivel, mensaje, a, b, null);
+    }
+
+    public static void registrar(Nivel nivel, String mensaje, Object a, Object b, Object c) {
+        if (nivel.ordinal() < nivelMinimo) {
+            return;
+        }
+
+        long secuencia = siguiente.getAndIncrement();
+        Evento evento = eventos[(int) (secuencia & (CAPACIDAD - 1))];
+        synchronized (evento) {
+            evento.secuencia = secuencia;
+            evento.instanteMs = System.currentTimeMillis();
+            evento.hilo = Thread.currentThread().getName();
+            evento.nivel = nivel;
+            evento.mensaje = mensaje;
+            evento.a = retener(a);
+            evento.b = retener(b);
+            evento.c = retener(c);
+        }
+
+        if (ecoConsola || nivel.ordinal() >= Nivel.ADVERTENCIA.ordinal()) {
+            (nivel == Nivel.ERROR ? System.err : System.out).println(formatearMensaje(mensaje, a, b, c));
+        }
+    }
+
+    /**
+     * Últimos eventos registrados, del más antiguo al más reciente, ya formateados
+     */
+    public static List<String> ultimos(int cantidad) {
+        long fin = siguiente.get();
+        long inicio = Math.max(0, fin - Math.min(cantidad, CAPACIDAD));
+
+        List<String> lineas = new ArrayList<>((int) (fin - inicio));
+        for (long secuencia = inicio; secuencia < fin; secuencia++) {
+            Evento evento = eventos[(int) (secuencia & (CAPACIDAD - 1))];
+            synchronized (evento) {
+                // Si ya fue sobrescrito por uno más nuevo se omite
+                if (evento.secuencia == secuencia && evento.nivel != null) {
+                    lineas.add(FORMATO_HORA.format(Instant.ofEpochMilli(evento.instanteMs)) + " " +
+                            String.format("%-11s", evento.nivel) + " [" + evento.hilo + "] " +
+                            formatearMensaje(evento.mensaje, evento.a, evento.b, evento.c));
+                }
+            }
+        }
+        return lineas;
+    }
+
+    /**
+     * Guarda los últimos eventos en un archivo de texto UTF-8
+     */
+    public static void volcar(Path archivo, int cantidad) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            for (String linea : ultimos(cantidad)) {
+                writer.write(linea);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Vuelca la traza completa al archivo traza.log de la carpeta de datos y devuelve su ruta,
+     * o null si no se pudo escribir
+     */
+    public static Path volcarEnDirectorioDatos() {
+        Path archivo = DirectorioDatos.archivo("traza.log").toPath();
+        try {
+            volcar(archivo, CAPACIDAD);
+            return archivo;
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la traza: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Los valores inmutables se guardan tal cual; el resto, como su texto actual
+     */
+    private static Object retener(Object argumento) {
+        if (argumento == null || argumento instanceof String
+                || argumento instanceof Number || argumento instanceof Boolean || argumento instanceof Character
+                || argumento instanceof Enum || argumento instanceof TemporalAccessor) {
+            return argumento;
+        }
+        return String.valueOf(argumento);
+    }
+
+    private static String formatearMensaje(String mensaje, Object a, Object b, Object c) {
+        if (!mensaje.contains("{}")) {
+            return mensaje;
+        }
+
+        Object[] argumentos = {a, b, c};
+        StringBuilder texto = new StringBuilder(mensaje.length() + 32);
+        int argumento = 0;
+        int desde = 0;
+        int marcador;
+        while ((marcador = mensaje.indexOf("{}", desde)) >= 0 && argumento < argumentos.length) {
+            texto.append(mensaje, desde, marcador).append(argumentos[argumento++]);
+            desde = marcador + 2;
+        }
+        return texto.append(mensaje, desde, mensaje.length()).toString();
+    }
+
+    private static Nivel leerNivelInicial() {
+        String valor = System.getProperty("radio.traza");
+        if (valor != null) {
+            try {
+                return Nivel.valueOf(valor.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Nivel de traza desconocido: " + valor);
+            }
+        }
+        return Nivel.INFO;
+    }
+
+    private static final class Evento {
+        private long secuencia = -1;
+        private long instanteMs;
+        private String hilo;
+        private Nivel nivel;
+        private String mensaje;
+        private Object a;
+        private Object b;
+        private Object c;
+    }
+}